@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+/**
+ * Thrown when IPFS node could not provide data within deadline, typically as blocks are not available from any peer
+ * (node would otherwise keep looking for them indefinitely).
+ */
+public class IpfsContentUnavailableException extends IOException {
+    /**
+     * The deadline that was exceeded.
+     */
+    public enum Reason {
+        /**
+         * Stat of path did not complete in time.
+         */
+        STAT_TIMEOUT,
+        /**
+         * Content retrieval did not start in time: content is most likely not available at all.
+         */
+        FIRST_BYTE_TIMEOUT,
+        /**
+         * Content retrieval started, but stalled: content may be partially available.
+         */
+        STALLED
+    }
+
+    private final Reason reason;
+
+    public IpfsContentUnavailableException(String message, Reason reason, Throwable cause) {
+        super(message, cause);
+        this.reason = requireNonNull(reason);
+    }
+
+    public Reason reason() {
+        return reason;
+    }
+}
@@ -12,8 +12,11 @@ import io.ipfs.multihash.Multihash;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Namespace publisher, that exposes IPFS related methods.
@@ -67,13 +70,118 @@ public interface IpfsNamespacePublisher extends Closeable {
      */
     Optional<Stat> stat(String relPath) throws IOException;
 
+    /**
+     * Directory listing entry.
+     */
+    interface Entry {
+        /**
+         * The name of entry within directory.
+         */
+        String name();
+
+        /**
+         * The CID of entry.
+         */
+        Cid hash();
+
+        /**
+         * The size of entry (makes sense for files).
+         */
+        long size();
+
+        /**
+         * Returns {@code true} if this entry is a file.
+         */
+        boolean file();
+    }
+
+    /**
+     * Lists directory at IPFS MFS path, if exists. Entries are parsed as node streams them, hence even huge (HAMT
+     * sharded) directories are not materialized in memory. Returned stream must be closed.
+     */
+    Optional<Stream<Entry>> list(String relPath) throws IOException;
+
     /**
      * Gets the content from IPFS CID.
      */
     Optional<InputStream> get(Multihash multihash) throws IOException;
 
+    /**
+     * Fetches all blocks of file at IPFS MFS path into node blockstore, without transferring content to client, so
+     * later retrieval is served from node local storage. Returns {@code false} if there is no such file.
+     */
+    boolean warm(String relPath) throws IOException;
+
+    /**
+     * Returns local copy of file at IPFS MFS path, if directory bundling is enabled and directory of file could be
+     * bundled: on first request, directory is fetched as whole, so its other files are served from local disk. If
+     * empty, file should be retrieved as usual, as it may still exist.
+     */
+    Optional<Path> getBundled(String relPath) throws IOException;
+
+    /**
+     * Whether {@link #getBundled(String)} of file at IPFS MFS path would fetch its directory first, as bundling of it
+     * was not attempted yet. Such a call is a bulk transfer, whatever file is requested.
+     */
+    boolean fetchesBundle(String relPath);
+
+    /**
+     * Records that file at IPFS MFS path was retrieved in this session, so its blocks (and blocks of directories
+     * leading to it) are saved into CAR snapshot on close, if snapshot is enabled.
+     */
+    void recordAccess(String relPath);
+
+    /**
+     * Links content, that node already has (like DAG imported in bulk), at IPFS MFS path, replacing existing content.
+     * If path is empty, content replaces the whole namespace (under namespace prefix, if any).
+     */
+    void link(String relPath, Cid cid) throws IOException;
+
+    /**
+     * Content upload to IPFS MFS path.
+     */
+    interface Upload extends Closeable {
+        /**
+         * The stream to write content to. Content is sent to node in fixed size chunks as it is written, hence memory
+         * use does not depend on content size.
+         */
+        OutputStream outputStream();
+
+        /**
+         * Aborts the upload, leaving MFS path untouched. Has no effect on closed upload.
+         */
+        void abort();
+
+        /**
+         * Completes the upload and puts content to MFS path, unless upload was aborted.
+         */
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Starts upload of content to IPFS MFS path.
+     */
+    Upload put(String relPath) throws IOException;
+
+    /**
+     * Starts upload of content of given local file to IPFS MFS path. The file content must still be written to
+     * upload, but if publisher is configured to add content by reference, and node has filestore enabled, node will
+     * reference the file instead of storing a copy of its content. Resulting CID is same in both cases.
+     */
+    Upload put(String relPath, Path file) throws IOException;
+
     /**
      * Puts the content to IPFS MFS path.
      */
-    void put(String relPath, InputStream inputStream) throws IOException;
+    default void put(String relPath, InputStream inputStream) throws IOException {
+        try (Upload upload = put(relPath)) {
+            try {
+                inputStream.transferTo(upload.outputStream());
+            } catch (IOException | RuntimeException e) {
+                upload.abort();
+                throw e;
+            }
+        }
+    }
 }
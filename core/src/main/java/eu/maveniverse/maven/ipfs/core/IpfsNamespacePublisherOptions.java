@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Tuning options of {@link IpfsNamespacePublisher}, that do not affect what namespace is published and where.
+ */
+public final class IpfsNamespacePublisherOptions {
+    /**
+     * Supported chunkers: fixed size {@code size-N}, Rabin fingerprinting {@code rabin[-min-avg-max]} and
+     * {@code buzhash}.
+     */
+    private static final Pattern CHUNKER = Pattern.compile("size-\\d+|rabin(-\\d+-\\d+-\\d+)?|rabin-\\d+|buzhash");
+
+    /**
+     * Options with all defaults.
+     */
+    public static final IpfsNamespacePublisherOptions DEFAULTS = builder().build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final boolean nocopy;
+    private final String chunker;
+    private final Duration statTimeout;
+    private final Duration firstByteTimeout;
+    private final Duration stallTimeout;
+    private final Duration negativeCacheTtl;
+    private final Path negativeCacheDirectory;
+    private final long bundleMaxSize;
+    private final boolean warmPin;
+    private final int warmPinThreads;
+    private final Path warmPinStateDirectory;
+    private final Path carSnapshot;
+    private final List<String> peers;
+    private final boolean ipnsPubsub;
+    private final boolean namespaceIndex;
+    private final String pinningService;
+    private final String pinningServiceToken;
+    private final Duration pinningServiceWait;
+    private final boolean provideNew;
+    private final Duration provideWait;
+    private final boolean localFirst;
+    private final Duration localFirstHedge;
+    private final boolean overwriteUnresolved;
+
+    private IpfsNamespacePublisherOptions(Builder builder) {
+        this.nocopy = builder.nocopy;
+        this.chunker = builder.chunker;
+        this.statTimeout = builder.statTimeout;
+        this.firstByteTimeout = builder.firstByteTimeout;
+        this.stallTimeout = builder.stallTimeout;
+        this.negativeCacheTtl = builder.negativeCacheTtl;
+        this.negativeCacheDirectory = builder.negativeCacheDirectory;
+        this.bundleMaxSize = builder.bundleMaxSize;
+        this.warmPin = builder.warmPin;
+        this.warmPinThreads = builder.warmPinThreads;
+        this.warmPinStateDirectory = builder.warmPinStateDirectory;
+        this.carSnapshot = builder.carSnapshot;
+        this.peers = List.copyOf(builder.peers);
+        this.ipnsPubsub = builder.ipnsPubsub;
+        this.namespaceIndex = builder.namespaceIndex;
+        this.pinningService = builder.pinningService;
+        this.pinningServiceToken = builder.pinningServiceToken;
+        this.pinningServiceWait = builder.pinningServiceWait;
+        this.provideNew = builder.provideNew;
+        this.provideWait = builder.provideWait;
+        this.localFirst = builder.localFirst;
+        this.localFirstHedge = builder.localFirstHedge;
+        this.overwriteUnresolved = builder.overwriteUnresolved;
+    }
+
+    /**
+     * Whether content backed by local files should be added by reference (filestore), instead of being copied into
+     * node blockstore. Used only if node has filestore enabled.
+     */
+    public boolean nocopy() {
+        return nocopy;
+    }
+
+    /**
+     * The chunker to split added content with, if empty, node default is used (fixed size chunks). Content defined
+     * chunkers ({@code rabin}, {@code buzhash}) let consecutive versions of big artifacts share blocks. Note: chunker
+     * affects resulting CIDs.
+     */
+    public Optional<String> chunker() {
+        return Optional.ofNullable(chunker);
+    }
+
+    /**
+     * The deadline of path stat. Stat may need to fetch blocks of lazily loaded directories from network.
+     */
+    public Duration statTimeout() {
+        return statTimeout;
+    }
+
+    /**
+     * The deadline to receive first byte of content. Node looks for blocks not available from any peer indefinitely.
+     */
+    public Duration firstByteTimeout() {
+        return firstByteTimeout;
+    }
+
+    /**
+     * The longest tolerated pause between bytes of content being received.
+     */
+    public Duration stallTimeout() {
+        return stallTimeout;
+    }
+
+    /**
+     * How long are not found metadata and snapshot paths cached, if zero, they are not cached. Other paths not found
+     * are cached as long as namespace root is unchanged.
+     */
+    public Duration negativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    /**
+     * The directory to persist not found paths into, to be reused by later sessions, if empty, they are not persisted.
+     * Entries of roots not used for 30 days are deleted.
+     */
+    public Optional<Path> negativeCacheDirectory() {
+        return Optional.ofNullable(negativeCacheDirectory);
+    }
+
+    /**
+     * The maximum cumulative size of directory, that is fetched as whole on first request of a file in it, to serve
+     * sibling files from local disk. If zero, directories are not fetched as whole.
+     */
+    public long bundleMaxSize() {
+        return bundleMaxSize;
+    }
+
+    /**
+     * Whether refreshed namespace should be pinned by fetching all its blocks with parallel workers (reporting
+     * progress and resuming interrupted warm-up), instead of plain recursive pin.
+     */
+    public boolean warmPin() {
+        return warmPin;
+    }
+
+    /**
+     * The count of parallel workers of warm-pin.
+     */
+    public int warmPinThreads() {
+        return warmPinThreads;
+    }
+
+    /**
+     * The directory to record warm-pin progress into, if empty, interrupted warm-up starts over.
+     */
+    public Optional<Path> warmPinStateDirectory() {
+        return Optional.ofNullable(warmPinStateDirectory);
+    }
+
+    /**
+     * The CAR file to import into node on open, and to save blocks read in session into on close, if empty, no
+     * snapshot is used.
+     */
+    public Optional<Path> carSnapshot() {
+        return Optional.ofNullable(carSnapshot);
+    }
+
+    /**
+     * Multiaddresses (with {@code /p2p/} peer ID) of peers known to provide namespace content, like its publisher
+     * nodes. Node connects to them directly, and keeps the connections, so blocks are got without provider lookup.
+     */
+    public List<String> peers() {
+        return peers;
+    }
+
+    /**
+     * Whether namespace should be kept current by subscription to its IPNS over PubSub topic, instead of being
+     * resolved on every refresh. Refreshed namespace is updated as soon as new record is announced.
+     */
+    public boolean ipnsPubsub() {
+        return ipnsPubsub;
+    }
+
+    /**
+     * Whether publisher should place binary index of all namespace paths at namespace root before publishing, and
+     * whether consumer should answer path lookups from index found there, instead of asking node for each path.
+     */
+    public boolean namespaceIndex() {
+        return namespaceIndex;
+    }
+
+    /**
+     * The endpoint of IPFS Pinning Service API, that published namespace root is replicated to, if empty, namespace
+     * is not replicated.
+     */
+    public Optional<String> pinningService() {
+        return Optional.ofNullable(pinningService);
+    }
+
+    /**
+     * The access token of pinning service, if any.
+     */
+    public Optional<String> pinningServiceToken() {
+        return Optional.ofNullable(pinningServiceToken);
+    }
+
+    /**
+     * How long publish waits for replicated namespace root to be pinned by pinning service, failing if it is not. If
+     * zero, replication is not waited for, only reported.
+     */
+    public Duration pinningServiceWait() {
+        return pinningServiceWait;
+    }
+
+    /**
+     * Whether blocks new in published namespace root (compared to previous root) should be announced to routing
+     * right after publishing, in background, instead of being left to node reprovider.
+     */
+    public boolean provideNew() {
+        return provideNew;
+    }
+
+    /**
+     * How long closing of session waits for announcing of new blocks (see {@link #provideNew()}) to end. Blocks not
+     * announced by then are left to reprovider. If zero, announcing is not waited for.
+     */
+    public Duration provideWait() {
+        return provideWait;
+    }
+
+    /**
+     * Whether path lookups and content retrieval should first run with node offline, answering from local blocks
+     * right away, and go online only if content is not local.
+     */
+    public boolean localFirst() {
+        return localFirst;
+    }
+
+    /**
+     * How long offline lookup may take, before online lookup is started in parallel.
+     */
+    public Duration localFirstHedge() {
+        return localFirstHedge;
+    }
+
+    /**
+     * Whether refreshed namespace should be published even if its latest record cannot be resolved before publishing,
+     * overwriting changes published by someone else since refresh, instead of failing.
+     */
+    public boolean overwriteUnresolved() {
+        return overwriteUnresolved;
+    }
+
+    public static final class Builder {
+        private boolean nocopy;
+        private String chunker;
+        private Duration statTimeout = Duration.ofSeconds(30);
+        private Duration firstByteTimeout = Duration.ofSeconds(30);
+        private Duration stallTimeout = Duration.ofSeconds(60);
+        private Duration negativeCacheTtl = Duration.ofMinutes(1);
+        private Path negativeCacheDirectory;
+        private long bundleMaxSize;
+        private boolean warmPin;
+        private int warmPinThreads = 8;
+        private Path warmPinStateDirectory;
+        private Path carSnapshot;
+        private List<String> peers = List.of();
+        private boolean ipnsPubsub;
+        private boolean namespaceIndex;
+        private String pinningService;
+        private String pinningServiceToken;
+        private Duration pinningServiceWait = Duration.ZERO;
+        private boolean provideNew;
+        private Duration provideWait = Duration.ofMinutes(1);
+        private boolean localFirst;
+        private Duration localFirstHedge = Duration.ofMillis(100);
+        private boolean overwriteUnresolved;
+
+        private Builder() {}
+
+        public Builder nocopy(boolean nocopy) {
+            this.nocopy = nocopy;
+            return this;
+        }
+
+        public Builder chunker(String chunker) {
+            if (chunker != null
+                    && !chunker.isBlank()
+                    && !CHUNKER.matcher(chunker).matches()) {
+                throw new IllegalArgumentException("Unsupported chunker: " + chunker);
+            }
+            this.chunker = chunker == null || chunker.isBlank() ? null : chunker;
+            return this;
+        }
+
+        public Builder statTimeout(Duration statTimeout) {
+            this.statTimeout = positive(statTimeout);
+            return this;
+        }
+
+        public Builder firstByteTimeout(Duration firstByteTimeout) {
+            this.firstByteTimeout = positive(firstByteTimeout);
+            return this;
+        }
+
+        public Builder stallTimeout(Duration stallTimeout) {
+            this.stallTimeout = positive(stallTimeout);
+            return this;
+        }
+
+        public Builder negativeCacheTtl(Duration negativeCacheTtl) {
+            if (negativeCacheTtl.isNegative()) {
+                throw new IllegalArgumentException("TTL must not be negative: " + negativeCacheTtl);
+            }
+            this.negativeCacheTtl = negativeCacheTtl;
+            return this;
+        }
+
+        public Builder negativeCacheDirectory(Path negativeCacheDirectory) {
+            this.negativeCacheDirectory = negativeCacheDirectory;
+            return this;
+        }
+
+        public Builder bundleMaxSize(long bundleMaxSize) {
+            if (bundleMaxSize < 0) {
+                throw new IllegalArgumentException("Size must not be negative: " + bundleMaxSize);
+            }
+            this.bundleMaxSize = bundleMaxSize;
+            return this;
+        }
+
+        public Builder warmPin(boolean warmPin) {
+            this.warmPin = warmPin;
+            return this;
+        }
+
+        public Builder warmPinThreads(int warmPinThreads) {
+            if (warmPinThreads < 1) {
+                throw new IllegalArgumentException("Threads must be positive: " + warmPinThreads);
+            }
+            this.warmPinThreads = warmPinThreads;
+            return this;
+        }
+
+        public Builder warmPinStateDirectory(Path warmPinStateDirectory) {
+            this.warmPinStateDirectory = warmPinStateDirectory;
+            return this;
+        }
+
+        public Builder carSnapshot(Path carSnapshot) {
+            this.carSnapshot = carSnapshot;
+            return this;
+        }
+
+        public Builder peers(Collection<String> peers) {
+            for (String peer : peers) {
+                if (!peer.startsWith("/") || !peer.contains("/p2p/")) {
+                    throw new IllegalArgumentException("Peer multiaddress must end with /p2p/<peerID>: " + peer);
+                }
+            }
+            this.peers = List.copyOf(peers);
+            return this;
+        }
+
+        public Builder ipnsPubsub(boolean ipnsPubsub) {
+            this.ipnsPubsub = ipnsPubsub;
+            return this;
+        }
+
+        public Builder namespaceIndex(boolean namespaceIndex) {
+            this.namespaceIndex = namespaceIndex;
+            return this;
+        }
+
+        public Builder pinningService(String pinningService) {
+            if (pinningService != null
+                    && !pinningService.isBlank()
+                    && !pinningService.startsWith("http://")
+                    && !pinningService.startsWith("https://")) {
+                throw new IllegalArgumentException("Pinning service must be HTTP(S) URL: " + pinningService);
+            }
+            this.pinningService = pinningService == null || pinningService.isBlank() ? null : pinningService;
+            return this;
+        }
+
+        public Builder pinningServiceToken(String pinningServiceToken) {
+            this.pinningServiceToken =
+                    pinningServiceToken == null || pinningServiceToken.isBlank() ? null : pinningServiceToken;
+            return this;
+        }
+
+        public Builder pinningServiceWait(Duration pinningServiceWait) {
+            if (pinningServiceWait.isNegative()) {
+                throw new IllegalArgumentException("Wait must not be negative: " + pinningServiceWait);
+            }
+            this.pinningServiceWait = pinningServiceWait;
+            return this;
+        }
+
+        public Builder provideNew(boolean provideNew) {
+            this.provideNew = provideNew;
+            return this;
+        }
+
+        public Builder provideWait(Duration provideWait) {
+            if (provideWait.isNegative()) {
+                throw new IllegalArgumentException("Wait must not be negative: " + provideWait);
+            }
+            this.provideWait = provideWait;
+            return this;
+        }
+
+        public Builder localFirst(boolean localFirst) {
+            this.localFirst = localFirst;
+            return this;
+        }
+
+        public Builder localFirstHedge(Duration localFirstHedge) {
+            this.localFirstHedge = positive(localFirstHedge);
+            return this;
+        }
+
+        public Builder overwriteUnresolved(boolean overwriteUnresolved) {
+            this.overwriteUnresolved = overwriteUnresolved;
+            return this;
+        }
+
+        private static Duration positive(Duration duration) {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Timeout must be positive: " + duration);
+            }
+            return duration;
+        }
+
+        public IpfsNamespacePublisherOptions build() {
+            return new IpfsNamespacePublisherOptions(this);
+        }
+    }
+}
@@ -26,7 +26,8 @@ public interface IpfsNamespacePublisherRegistry {
             String namespaceKey,
             boolean namespaceKeyCreate,
             boolean refreshNamespace,
-            boolean publishNamespace)
+            boolean publishNamespace,
+            IpfsNamespacePublisherOptions options)
             throws IOException;
 
     /**
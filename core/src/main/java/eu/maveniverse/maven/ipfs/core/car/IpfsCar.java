@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.car;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CARv1 encoding: a header followed by sections of blocks. CIDs are in binary form.
+ */
+public final class IpfsCar {
+    private IpfsCar() {}
+
+    /**
+     * Returns CARv1 header: length prefixed DAG-CBOR map {@code {"roots": [root], "version": 1}}.
+     *
+     * @param root the binary CID to declare as CAR root (CAR requires at least one).
+     */
+    public static byte[] header(byte[] root) throws IOException {
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        cbor.write(0xa2); // map(2), keys in DAG-CBOR order (shorter first)
+        cbor.write(0x65); // text(5)
+        cbor.write("roots".getBytes(StandardCharsets.US_ASCII));
+        cbor.write(0x81); // array(1)
+        cbor.write(0xd8); // tag(42): CID
+        cbor.write(42);
+        cborBytesHead(cbor, root.length + 1);
+        cbor.write(0x00); // identity multibase prefix
+        cbor.write(root);
+        cbor.write(0x67); // text(7)
+        cbor.write("version".getBytes(StandardCharsets.US_ASCII));
+        cbor.write(0x01);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeVarint(header, cbor.size());
+        cbor.writeTo(header);
+        return header.toByteArray();
+    }
+
+    /**
+     * Writes CARv1 section: length prefixed binary CID followed by block data.
+     */
+    public static void writeBlock(OutputStream out, byte[] cid, byte[] data) throws IOException {
+        writeVarint(out, (long) cid.length + data.length);
+        out.write(cid);
+        out.write(data);
+    }
+
+    /**
+     * Writes unsigned LEB128 varint, as used by CAR and multiformats.
+     */
+    public static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void cborBytesHead(OutputStream out, int length) throws IOException {
+        if (length < 24) {
+            out.write(0x40 + length);
+        } else if (length < 256) {
+            out.write(0x58);
+            out.write(length);
+        } else {
+            out.write(0x59);
+            out.write(length >>> 8);
+            out.write(length & 0xff);
+        }
+    }
+}
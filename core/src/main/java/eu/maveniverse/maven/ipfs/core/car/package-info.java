@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+/**
+ * Encoding of CARv1 (Content Addressable aRchive) files, shared by modules that write them.
+ */
+package eu.maveniverse.maven.ipfs.core.car;
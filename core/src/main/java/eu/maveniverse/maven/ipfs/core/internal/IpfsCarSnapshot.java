@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.car.IpfsCar;
+import io.ipfs.cid.Cid;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of blocks read in a session, kept as CARv1 file: restoring it into a node with empty blockstore (like one
+ * of ephemeral CI runner) makes the content read by previous session available without network.
+ */
+public class IpfsCarSnapshot {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IpfsRpc rpc;
+    private final Path file;
+
+    public IpfsCarSnapshot(IpfsRpc rpc, Path file) {
+        this.rpc = requireNonNull(rpc);
+        this.file = requireNonNull(file);
+    }
+
+    /**
+     * Imports snapshot blocks into node blockstore, if snapshot file exists. Blocks are not pinned.
+     */
+    public void restore() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            logger.debug("No CAR snapshot {} to restore", file);
+            return;
+        }
+        Map<String, Object> result;
+        try (IpfsRpc.Upload upload = rpc.upload("dag/import", "pin-roots", "false", "stats", "true")) {
+            Files.copy(file, upload);
+            result = upload.finish();
+        }
+        logger.info("Restored CAR snapshot {}: {}", file, result.getOrDefault("Stats", result));
+    }
+
+    /**
+     * Writes given blocks, retrieved from node, as snapshot file, replacing existing one.
+     *
+     * @param root the CID to declare as CAR root (CAR requires at least one).
+     * @param blocks the blocks to write.
+     */
+    public void save(Cid root, Collection<Cid> blocks) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(
+                file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            long size = 0;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                out.write(IpfsCar.header(root.toBytes()));
+                for (Cid block : blocks) {
+                    byte[] data;
+                    try (InputStream in = rpc.stream("block/get", "arg", block.toString())) {
+                        data = in.readAllBytes();
+                    }
+                    size += data.length;
+                    IpfsCar.writeBlock(out, block.toBytes(), data);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved CAR snapshot {}: {} blocks, {} bytes", file, blocks.size(), size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
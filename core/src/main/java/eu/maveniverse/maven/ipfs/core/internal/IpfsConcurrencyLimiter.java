@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Adaptive (AIMD) concurrency limiter for IPFS node RPC calls. Each {@link Endpoint} class has its own limit of
+ * in-flight calls, that is increased additively while calls succeed within the latency budget, and decreased
+ * multiplicatively on errors or when latency grows beyond the tolerated multiple of observed no-load latency.
+ * <p>
+ * One instance is meant to be shared by all publishers talking to the same node.
+ */
+public class IpfsConcurrencyLimiter {
+    /**
+     * Endpoint classes, each with its own initial and maximum limit.
+     */
+    public enum Endpoint {
+        /**
+         * Metadata lookups, like {@code files/stat}: cheap for node, many of them.
+         */
+        STAT(16, 64),
+        /**
+         * Content retrieval, like {@code cat}: may keep bitswap busy for long.
+         */
+        CAT(8, 32),
+        /**
+         * Content addition, like {@code add}: CPU and disk heavy on node side.
+         */
+        ADD(2, 8),
+        /**
+         * Everything else: MFS manipulation, pins, keys, IPNS.
+         */
+        OTHER(4, 16);
+
+        private final int initialLimit;
+        private final int maxLimit;
+
+        Endpoint(int initialLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+    }
+
+    /**
+     * An RPC call that may fail with {@link IOException}.
+     */
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Acquired slot for one in-flight call. Latency is sampled once, and slot has to be released once.
+     */
+    public interface Permit {
+        /**
+         * Restarts latency measurement, for calls where permit is held while caller transfers data.
+         */
+        void mark();
+
+        /**
+         * Records the outcome of call, measuring latency since permit acquisition or last {@link #mark()}.
+         */
+        void sample(boolean success);
+
+        /**
+         * Releases the slot.
+         */
+        void release();
+    }
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final long LATENCY_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Map<Endpoint, Limit> limits;
+
+    public IpfsConcurrencyLimiter() {
+        this.limits = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            limits.put(endpoint, new Limit(endpoint.initialLimit, endpoint.maxLimit));
+        }
+    }
+
+    /**
+     * Invokes call while holding a permit of given endpoint class. Exceptions are considered as error signal, hence
+     * callers should handle "expected" failures (like non-existent path) within the call.
+     */
+    public <T> T call(Endpoint endpoint, IOCallable<T> callable) throws IOException {
+        Permit permit = acquire(endpoint);
+        boolean success = false;
+        try {
+            T result = callable.call();
+            success = true;
+            return result;
+        } finally {
+            permit.sample(success);
+            permit.release();
+        }
+    }
+
+    /**
+     * Acquires a permit for given endpoint class, blocking if limit is reached.
+     */
+    public Permit acquire(Endpoint endpoint) throws IOException {
+        Limit limit = limits.get(requireNonNull(endpoint));
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for IPFS " + endpoint + " permit");
+        }
+        AtomicLong started = new AtomicLong(System.nanoTime());
+        AtomicBoolean sampled = new AtomicBoolean(false);
+        AtomicBoolean released = new AtomicBoolean(false);
+        return new Permit() {
+            @Override
+            public void mark() {
+                started.set(System.nanoTime());
+            }
+
+            @Override
+            public void sample(boolean success) {
+                if (sampled.compareAndSet(false, true)) {
+                    limit.sample(System.nanoTime() - started.get(), success);
+                }
+            }
+
+            @Override
+            public void release() {
+                if (released.compareAndSet(false, true)) {
+                    limit.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the stream to release permit when stream is closed. To be used with streaming calls, where latency is
+     * sampled once response arrives, but slot remains occupied while the response is being consumed.
+     */
+    public InputStream releaseOnClose(Permit permit, InputStream inputStream) {
+        requireNonNull(permit);
+        return new FilterInputStream(requireNonNull(inputStream)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    permit.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the current limit of given endpoint class.
+     */
+    public int limit(Endpoint endpoint) {
+        return limits.get(requireNonNull(endpoint)).limit();
+    }
+
+    @Override
+    public String toString() {
+        return limits.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().limit())
+                .collect(Collectors.joining(", ", "limits{", "}"));
+    }
+
+    private static final class Limit {
+        private final int maxLimit;
+        private double limit;
+        private int inFlight;
+        private long noLoadRttNanos;
+
+        private Limit(int initialLimit, int maxLimit) {
+            this.maxLimit = maxLimit;
+            this.limit = initialLimit;
+            this.inFlight = 0;
+            this.noLoadRttNanos = Long.MAX_VALUE;
+        }
+
+        private synchronized int limit() {
+            return (int) limit;
+        }
+
+        private synchronized void acquire() throws InterruptedException {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+            inFlight++;
+        }
+
+        private synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+
+        private synchronized void sample(long rttNanos, boolean success) {
+            if (!success) {
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+                return;
+            }
+            if (rttNanos < noLoadRttNanos) {
+                noLoadRttNanos = rttNanos;
+            } else {
+                // let baseline slowly drift upward, so a single lucky call does not pin it forever
+                noLoadRttNanos += (rttNanos - noLoadRttNanos) / 100;
+            }
+            if (rttNanos > LATENCY_FLOOR_NANOS && rttNanos > noLoadRttNanos * LATENCY_TOLERANCE) {
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+            } else if (inFlight * 2 >= limit) {
+                // grow only if limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session local cache of whole directories: on first request of a file, the directory containing it is fetched as
+ * one archive (if not bigger than maximum size) and unpacked to local disk, so requests of sibling files (like JAR
+ * and checksums after POM) are served locally. Directories are unpacked by CID into a temporary directory, that is
+ * deleted on close.
+ */
+public class IpfsDirectoryBundles implements Closeable {
+    private static final int BLOCK = 512;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final long maxSize;
+    private final IOFunction<String, Optional<IpfsNamespacePublisher.Stat>> stat;
+    private final IOFunction<Cid, InputStream> archive;
+    private final ConcurrentMap<String, CompletableFuture<Optional<Path>>> bundles;
+    private volatile Path directory;
+
+    /**
+     * @param maxSize the maximum cumulative size of directory to fetch as whole.
+     * @param stat the stat of directory by relative path.
+     * @param archive the tar archive of directory by CID.
+     */
+    public IpfsDirectoryBundles(
+            long maxSize,
+            IOFunction<String, Optional<IpfsNamespacePublisher.Stat>> stat,
+            IOFunction<Cid, InputStream> archive) {
+        this.maxSize = maxSize;
+        this.stat = requireNonNull(stat);
+        this.archive = requireNonNull(archive);
+        this.bundles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns local copy of file, if its directory is (or could be) bundled and it contains the file. Failure to
+     * bundle directory is not fatal, it is logged and directory is not attempted again.
+     */
+    public Optional<Path> get(String relPath) throws IOException {
+        int slash = relPath.lastIndexOf('/');
+        if (slash < 1) {
+            return Optional.empty();
+        }
+        String dir = relPath.substring(0, slash);
+        CompletableFuture<Optional<Path>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<Path>> bundle = bundles.putIfAbsent(dir, created);
+        if (bundle == null) {
+            bundle = created;
+            created.complete(fetch(dir));
+        }
+        Optional<Path> root = bundle.join();
+        if (root.isPresent()) {
+            Path file = root.orElseThrow().resolve(relPath.substring(slash + 1));
+            if (Files.isRegularFile(file)) {
+                return Optional.of(file);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether {@link #get(String)} of file would fetch its directory, as it was not attempted yet.
+     */
+    public boolean fetches(String relPath) {
+        int slash = relPath.lastIndexOf('/');
+        return slash >= 1 && !bundles.containsKey(relPath.substring(0, slash));
+    }
+
+    /**
+     * Drops bundles that may contain given path, or be under it, as it was modified. Empty path drops all bundles.
+     */
+    public void invalidate(String relPath) {
+        bundles.keySet()
+                .removeIf(dir -> relPath.isEmpty()
+                        || relPath.startsWith(dir + "/")
+                        || dir.equals(relPath)
+                        || dir.startsWith(relPath + "/"));
+    }
+
+    private Optional<Path> fetch(String dir) {
+        try {
+            Optional<IpfsNamespacePublisher.Stat> dirStat = stat.apply(dir);
+            if (dirStat.isEmpty()
+                    || dirStat.orElseThrow().file()
+                    || dirStat.orElseThrow().cumulativeSize() > maxSize) {
+                return Optional.empty();
+            }
+            Cid cid = dirStat.orElseThrow().hash();
+            Path target = directory().resolve(cid.toString());
+            if (!Files.isDirectory(target)) {
+                Path tmp = Files.createTempDirectory(directory(), cid + ".");
+                try (InputStream content = archive.apply(cid)) {
+                    unpack(content, tmp);
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                    // unpacked concurrently under other path with same content
+                } finally {
+                    delete(tmp);
+                }
+            }
+            logger.debug("Bundled directory {} ({})", dir, cid);
+            return Optional.of(target);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not bundle directory {}: {}", dir, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path directory() throws IOException {
+        Path result = directory;
+        if (result == null) {
+            synchronized (this) {
+                result = directory;
+                if (result == null) {
+                    result = Files.createTempDirectory("ipfs-bundles-");
+                    directory = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        bundles.clear();
+        Path result = directory;
+        if (result != null) {
+            delete(result);
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.exists(path)) {
+            try (Stream<Path> paths = Files.walk(path)) {
+                for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpacks tar archive as produced by node {@code get} command: entries are under single root (named by CID),
+     * that is stripped. Long names are supported in both PAX and GNU form. Only regular files and directories are
+     * unpacked.
+     */
+    static void unpack(InputStream in, Path target) throws IOException {
+        Path root = target.toAbsolutePath().normalize();
+        byte[] header = new byte[BLOCK];
+        String longName = null;
+        while (readBlock(in, header)) {
+            if (isZero(header)) {
+                break;
+            }
+            long size = octal(header, 124, 12);
+            char type = (char) header[156];
+            if (type == 'x' || type == 'L') {
+                String data = new String(readData(in, size), StandardCharsets.UTF_8);
+                longName = type == 'L' ? data.replace("\0", "") : paxPath(data);
+                continue;
+            }
+            String name = longName != null ? longName : name(header);
+            longName = null;
+            int slash = name.indexOf('/');
+            String relative = slash < 0 ? "" : name.substring(slash + 1);
+            Path dest = root.resolve(relative).normalize();
+            if (!dest.startsWith(root)) {
+                throw new IOException("Archive entry outside of target: " + name);
+            }
+            if (type == '5') {
+                Files.createDirectories(dest);
+            } else if ((type == '0' || type == '\0') && !relative.isEmpty()) {
+                Files.createDirectories(dest.getParent());
+                try (OutputStream out = Files.newOutputStream(dest)) {
+                    copy(in, out, size);
+                }
+                skipPadding(in, size);
+            } else {
+                skip(in, size);
+                skipPadding(in, size);
+            }
+        }
+    }
+
+    private static String name(byte[] header) {
+        String name = string(header, 0, 100);
+        if ("ustar".equals(string(header, 257, 6).trim())) {
+            String prefix = string(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String paxPath(String data) {
+        // records are "<length> <key>=<value>\n"
+        String path = null;
+        for (String record : data.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space > 0 && record.startsWith("path=", space + 1)) {
+                path = record.substring(space + 6);
+            }
+        }
+        return path;
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, BLOCK);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK) {
+            throw new EOFException("Truncated archive");
+        }
+        return true;
+    }
+
+    private static byte[] readData(InputStream in, long size) throws IOException {
+        byte[] data = in.readNBytes(Math.toIntExact(size));
+        if (data.length < size) {
+            throw new EOFException("Truncated archive");
+        }
+        skipPadding(in, size);
+        return data;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size) throws IOException {
+        byte[] buffer = new byte[8192];
+        long remaining = size;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Truncated archive");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        skip(in, (BLOCK - size % BLOCK) % BLOCK);
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        copy(in, OutputStream.nullOutputStream(), count);
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long octal(byte[] header, int offset, int length) {
+        String value = string(header, offset, length).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+    }
+}
@@ -10,7 +10,9 @@ package eu.maveniverse.maven.ipfs.core.internal;
 import eu.maveniverse.maven.ipfs.core.IpfsFactory;
 import io.ipfs.api.IPFS;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
@@ -29,4 +31,28 @@ public class IpfsFactoryImpl implements IpfsFactory {
         logger.debug("Connected to IPFS node ID={} at '{}'", id.get("ID"), multiaddr);
         return ipfs;
     }
+
+    /**
+     * Creates {@link IpfsRpc} client of node at multiaddr and ensures is connected, like {@link #create(String)} does.
+     * Nodes with API on Unix domain socket, that {@link IPFS} client cannot connect to, are connected directly.
+     */
+    public IpfsRpc createRpc(String multiaddr) throws IOException {
+        return createRpc(this, multiaddr);
+    }
+
+    /**
+     * Same as {@link #createRpc(String)}, for TCP nodes using passed in factory.
+     */
+    @SuppressWarnings("rawtypes")
+    public static IpfsRpc createRpc(IpfsFactory ipfsFactory, String multiaddr) throws IOException {
+        Optional<Path> socket = IpfsRpc.unixSocket(multiaddr);
+        if (socket.isEmpty()) {
+            return new IpfsRpc(ipfsFactory.create(multiaddr));
+        }
+        IpfsRpc rpc = new IpfsRpc(socket.orElseThrow());
+        Map id = rpc.json("id");
+        LoggerFactory.getLogger(IpfsFactoryImpl.class)
+                .debug("Connected to IPFS node ID={} at '{}'", id.get("ID"), multiaddr);
+        return rpc;
+    }
 }
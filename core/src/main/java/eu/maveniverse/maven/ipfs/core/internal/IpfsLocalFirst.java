@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs lookups against node offline first, to answer from local blocks without routing and bitswap, and online only
+ * when offline lookup misses (content is not local), or does not answer within hedge delay, when both run and the
+ * first answer wins. Counts local hits.
+ */
+public class IpfsLocalFirst {
+    private final Duration hedgeDelay;
+    private final Executor hedgeExecutor;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong hedged;
+
+    /**
+     * @param hedgeDelay how long offline lookup may take before online lookup is started in parallel.
+     */
+    public IpfsLocalFirst(Duration hedgeDelay) {
+        this.hedgeDelay = requireNonNull(hedgeDelay);
+        this.hedgeExecutor =
+                CompletableFuture.delayedExecutor(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS, Workers.EXECUTOR);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.hedged = new AtomicLong();
+    }
+
+    /**
+     * Looks up offline first.
+     *
+     * @param offline the offline lookup, returning empty if content is not local.
+     * @param online the online lookup.
+     * @param discard disposes result that lost the race, or that arrived after caller gave up (like stream to close).
+     */
+    public <T> T call(
+            IpfsConcurrencyLimiter.IOCallable<Optional<T>> offline,
+            IpfsConcurrencyLimiter.IOCallable<T> online,
+            Consumer<T> discard)
+            throws IOException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicBoolean onlineStarted = new AtomicBoolean(false);
+        CompletableFuture<Optional<T>> offlineLookup = supply(offline, Workers.EXECUTOR);
+        Runnable startOnline = () -> {
+            if (onlineStarted.compareAndSet(false, true)) {
+                supply(online, Workers.EXECUTOR).whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        // failure counts only when there is no local answer to wait for
+                        offlineLookup.whenComplete((local, offlineFailure) -> {
+                            if (offlineFailure != null || local.isEmpty()) {
+                                result.completeExceptionally(failure);
+                            }
+                        });
+                    } else if (!result.complete(value)) {
+                        discard.accept(value);
+                    }
+                });
+            }
+        };
+        offlineLookup.whenComplete((local, failure) -> {
+            if (failure == null && local.isPresent()) {
+                if (result.complete(local.orElseThrow())) {
+                    hits.incrementAndGet();
+                } else {
+                    discard.accept(local.orElseThrow());
+                }
+            } else {
+                misses.incrementAndGet();
+                startOnline.run();
+            }
+        });
+        CompletableFuture.runAsync(
+                () -> {
+                    if (!result.isDone() && !onlineStarted.get()) {
+                        hedged.incrementAndGet();
+                        startOnline.run();
+                    }
+                },
+                hedgeExecutor);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            // results arriving from now on are discarded; the one that made it just now is discarded here
+            if (!result.cancel(false) && !result.isCompletedExceptionally()) {
+                discard.accept(result.join());
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted lookup");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static <T> CompletableFuture<T> supply(IpfsConcurrencyLimiter.IOCallable<T> callable, Executor executor) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return callable.call();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
+    }
+
+    private static final class Workers {
+        private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ipfs-local-first-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The ratio of lookups answered from local blocks.
+     */
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "local hits %.1f%% (%d hits, %d misses, %d hedged after %s)",
+                hitRatio() * 100, hits.get(), misses.get(), hedged.get(), hedgeDelay);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Process wide cache of path lookups (stat results, including not found), keyed by root CID and path, that outlives
+ * sessions (like in Maven daemon). As CID identifies content, lookup result under given root never changes, and as
+ * it does not depend on node either, entries are shared by all nodes. The cache is bounded by estimated memory use,
+ * least recently used entries are evicted first.
+ */
+public final class IpfsLookupCache {
+    /**
+     * Default memory bound, in bytes.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxWeight;
+    private final LinkedHashMap<String, Lookup> entries;
+    private long weight;
+
+    public IpfsLookupCache(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static final class Lookup {
+        private final Optional<Map<String, Object>> stat;
+        private final long weight;
+
+        private Lookup(Optional<Map<String, Object>> stat, long weight) {
+            this.stat = stat;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Returns cached lookup of path under root: stat if found, empty if not found, or {@code null} if unknown.
+     */
+    public synchronized Optional<Map<String, Object>> get(String rootCid, String path) {
+        Lookup lookup = entries.get(key(rootCid, path));
+        return lookup != null ? lookup.stat : null;
+    }
+
+    /**
+     * Caches lookup of path under root: stat if found, empty if not found.
+     */
+    public synchronized void put(String rootCid, String path, Optional<Map<String, Object>> stat) {
+        String key = key(rootCid, path);
+        long entryWeight = ENTRY_OVERHEAD + 2L * key.length();
+        if (stat.isPresent()) {
+            for (Map.Entry<String, Object> e : stat.orElseThrow().entrySet()) {
+                entryWeight += ENTRY_OVERHEAD
+                        + 2L
+                                * (e.getKey().length()
+                                        + String.valueOf(e.getValue()).length());
+            }
+        }
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Lookup previous = entries.put(
+                key, new Lookup(stat.map(m -> Collections.unmodifiableMap(new LinkedHashMap<>(m))), entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+        Iterator<Lookup> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The estimated memory use, in bytes.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    private static String key(String rootCid, String path) {
+        return rootCid + "/" + path;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "entries=" + entries.size() + ", weight=" + weight + "/" + maxWeight;
+    }
+}
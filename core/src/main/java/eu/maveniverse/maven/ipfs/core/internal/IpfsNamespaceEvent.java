@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of namespace phase, like refresh, or phases of publish (merge, index, pin, publish, provide
+ * and replicate), that span many node calls.
+ */
+@Name("eu.maveniverse.maven.ipfs.NamespacePhase")
+@Label("IPFS Namespace Phase")
+@Category({"Maven", "IPFS"})
+@Description("Phase of IPFS namespace refresh or publish")
+final class IpfsNamespaceEvent extends Event {
+    @Label("Namespace")
+    String namespace;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Outcome")
+    @Description("One of ok or failure")
+    String outcome;
+
+    @Label("Error")
+    String error;
+
+    static IpfsNamespaceEvent start() {
+        IpfsNamespaceEvent event = new IpfsNamespaceEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends event and records it, if enabled.
+     *
+     * @param failure the failure of phase, or {@code null} if it succeeded.
+     */
+    void finish(String namespace, String phase, Throwable failure) {
+        end();
+        if (shouldCommit()) {
+            this.namespace = namespace;
+            this.phase = phase;
+            this.outcome = failure == null ? "ok" : "failure";
+            this.error = failure != null ? failure.getMessage() : null;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary index of namespace: sorted table of every path (relative to namespace root) with its CID, size,
+ * and SHA-1/SHA-256 checksums when known. Publisher places it at namespace root as {@link #FILE_NAME}, so consumers
+ * fetch one file per namespace root CID and answer lookups by binary search, without per path node calls.
+ * <p>
+ * Layout (integers are big endian, varints are unsigned LEB128):
+ * <pre>
+ * header:   "MIDX" version(1)
+ * entries:  varint shared, varint unshared, path suffix (UTF-8), flags(1), varint size,
+ *           varint CID length, CID (string form, ASCII), [SHA-1(20)], [SHA-256(32)]
+ * restarts: int offset * restart count
+ * footer:   int restart count, int entry count, int root entry count, "MIDX"
+ * </pre>
+ * Paths are prefix compressed against preceding entry, except every {@link #RESTART_INTERVAL}th one, that is
+ * complete and listed in restarts table, to binary search on. Flags: 1 directory, 2 has SHA-1, 4 has SHA-256.
+ */
+public final class IpfsNamespaceIndex {
+    /**
+     * The name of index file at namespace root.
+     */
+    public static final String FILE_NAME = ".ipfs-index";
+
+    static final int RESTART_INTERVAL = 16;
+
+    private static final byte[] MAGIC = "MIDX".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int FOOTER_SIZE = 3 * Integer.BYTES + MAGIC.length;
+    private static final int FLAG_DIRECTORY = 1;
+    private static final int FLAG_SHA1 = 2;
+    private static final int FLAG_SHA256 = 4;
+    private static final int MAX_CHECKSUM_FILE_SIZE = 256;
+
+    private static final Comparator<byte[]> ORDER = Arrays::compareUnsigned;
+
+    /**
+     * Index entry.
+     */
+    public static final class Entry {
+        private final String path;
+        private final String cid;
+        private final long size;
+        private final boolean directory;
+        private final byte[] sha1;
+        private final byte[] sha256;
+
+        public Entry(String path, String cid, long size, boolean directory, byte[] sha1, byte[] sha256) {
+            this.path = requireNonNull(path);
+            this.cid = requireNonNull(cid);
+            this.size = size;
+            this.directory = directory;
+            this.sha1 = checkLength(sha1, 20);
+            this.sha256 = checkLength(sha256, 32);
+        }
+
+        /**
+         * Path relative to namespace root.
+         */
+        public String path() {
+            return path;
+        }
+
+        public Cid cid() {
+            return Cid.decode(cid);
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public boolean directory() {
+            return directory;
+        }
+
+        /**
+         * SHA-1 of file content in hex, if known.
+         */
+        public Optional<String> sha1() {
+            return Optional.ofNullable(sha1).map(IpfsNamespaceIndex::hex);
+        }
+
+        /**
+         * SHA-256 of file content in hex, if known.
+         */
+        public Optional<String> sha256() {
+            return Optional.ofNullable(sha256).map(IpfsNamespaceIndex::hex);
+        }
+
+        /**
+         * Entry as stat map, like node responds with.
+         */
+        public Map<String, Object> stat() {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("Hash", cid);
+            stat.put("Size", size);
+            stat.put("Type", directory ? "directory" : "file");
+            sha1().ifPresent(s -> stat.put("Sha1", s));
+            sha256().ifPresent(s -> stat.put("Sha256", s));
+            return stat;
+        }
+
+        private static byte[] checkLength(byte[] checksum, int length) {
+            if (checksum != null && checksum.length != length) {
+                throw new IllegalArgumentException("Checksum must have " + length + " bytes");
+            }
+            return checksum;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int restartCount;
+    private final int entryCount;
+    private final int rootEntryCount;
+    private final int restartsOffset;
+
+    /**
+     * Opens index in given buffer, like a mapped index file.
+     */
+    public IpfsNamespaceIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        int limit = this.buffer.limit();
+        if (limit < HEADER_SIZE + FOOTER_SIZE
+                || !hasMagic(0)
+                || !hasMagic(limit - MAGIC.length)
+                || this.buffer.get(MAGIC.length) != VERSION) {
+            throw new IOException("Not a namespace index, or unsupported version");
+        }
+        this.restartCount = this.buffer.getInt(limit - FOOTER_SIZE);
+        this.entryCount = this.buffer.getInt(limit - FOOTER_SIZE + Integer.BYTES);
+        this.rootEntryCount = this.buffer.getInt(limit - FOOTER_SIZE + 2 * Integer.BYTES);
+        this.restartsOffset = limit - FOOTER_SIZE - restartCount * Integer.BYTES;
+        if (restartCount < 0 || restartsOffset < HEADER_SIZE) {
+            throw new IOException("Corrupt namespace index");
+        }
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * The count of entries directly in namespace root.
+     */
+    public int rootEntryCount() {
+        return rootEntryCount;
+    }
+
+    /**
+     * Looks up path.
+     */
+    public Optional<Entry> find(String path) {
+        byte[] key = path.getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = seek(key);
+        while (cursor.hasNext()) {
+            Entry entry = cursor.next();
+            int cmp = ORDER.compare(cursor.key, key);
+            if (cmp == 0) {
+                return Optional.of(entry);
+            }
+            if (cmp > 0) {
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Passes all entries below directory path to consumer, in order.
+     */
+    public void forEachUnder(String directory, Consumer<Entry> consumer) {
+        byte[] prefix = (directory + "/").getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = seek(prefix);
+        while (cursor.hasNext()) {
+            Entry entry = cursor.next();
+            int cmp = ORDER.compare(cursor.key, prefix);
+            if (cmp >= 0) {
+                if (!startsWith(cursor.key, prefix)) {
+                    break;
+                }
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns cursor positioned at the last restart point not greater than key.
+     */
+    private Cursor seek(byte[] key) {
+        int low = 0;
+        int high = restartCount - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Cursor probe = new Cursor(restart(mid));
+            probe.next();
+            if (ORDER.compare(probe.key, key) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return new Cursor(restartCount == 0 ? restartsOffset : restart(found));
+    }
+
+    private int restart(int index) {
+        return buffer.getInt(restartsOffset + index * Integer.BYTES);
+    }
+
+    private boolean hasMagic(int offset) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(offset + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Cursor implements Iterator<Entry> {
+        private final ByteBuffer in;
+        private byte[] key = new byte[0];
+
+        private Cursor(int offset) {
+            this.in = buffer.duplicate();
+            this.in.position(offset).limit(restartsOffset);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return in.hasRemaining();
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                int shared = Math.toIntExact(readVarint(in));
+                int unshared = Math.toIntExact(readVarint(in));
+                byte[] next = Arrays.copyOf(key, shared + unshared);
+                in.get(next, shared, unshared);
+                key = next;
+                int flags = in.get();
+                long size = readVarint(in);
+                byte[] cid = new byte[Math.toIntExact(readVarint(in))];
+                in.get(cid);
+                byte[] sha1 = (flags & FLAG_SHA1) != 0 ? new byte[20] : null;
+                if (sha1 != null) {
+                    in.get(sha1);
+                }
+                byte[] sha256 = (flags & FLAG_SHA256) != 0 ? new byte[32] : null;
+                if (sha256 != null) {
+                    in.get(sha256);
+                }
+                return new Entry(
+                        new String(key, StandardCharsets.UTF_8),
+                        new String(cid, StandardCharsets.US_ASCII),
+                        size,
+                        (flags & FLAG_DIRECTORY) != 0,
+                        sha1,
+                        sha256);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | ArithmeticException e) {
+                throw new IllegalStateException("Corrupt namespace index", e);
+            }
+        }
+    }
+
+    /**
+     * Writes index of given entries, in any order, to output.
+     */
+    public static void write(List<Entry> entries, OutputStream output) throws IOException {
+        List<byte[]> keys = new ArrayList<>(entries.size());
+        Map<byte[], Entry> byKey = new HashMap<>();
+        for (Entry entry : entries) {
+            byte[] key = entry.path().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            byKey.put(key, entry);
+        }
+        keys.sort(ORDER);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.write(MAGIC);
+        out.write(VERSION);
+        List<Integer> restarts = new ArrayList<>();
+        int rootEntries = 0;
+        byte[] previous = new byte[0];
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            if (i > 0 && ORDER.compare(previous, key) == 0) {
+                throw new IllegalArgumentException(
+                        "Duplicate path: " + byKey.get(key).path());
+            }
+            int shared = 0;
+            if (i % RESTART_INTERVAL == 0) {
+                restarts.add(out.size());
+            } else {
+                shared = Arrays.mismatch(previous, key);
+                shared = shared < 0 ? key.length : shared;
+            }
+            Entry entry = byKey.get(key);
+            if (entry.path().indexOf('/') < 0) {
+                rootEntries++;
+            }
+            writeVarint(out, shared);
+            writeVarint(out, key.length - shared);
+            out.write(key, shared, key.length - shared);
+            out.write((entry.directory ? FLAG_DIRECTORY : 0)
+                    | (entry.sha1 != null ? FLAG_SHA1 : 0)
+                    | (entry.sha256 != null ? FLAG_SHA256 : 0));
+            writeVarint(out, entry.size);
+            byte[] cid = entry.cid.getBytes(StandardCharsets.US_ASCII);
+            writeVarint(out, cid.length);
+            out.write(cid);
+            if (entry.sha1 != null) {
+                out.write(entry.sha1);
+            }
+            if (entry.sha256 != null) {
+                out.write(entry.sha256);
+            }
+            previous = key;
+        }
+        for (int restart : restarts) {
+            out.writeInt(restart);
+        }
+        out.writeInt(restarts.size());
+        out.writeInt(keys.size());
+        out.writeInt(rootEntries);
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Collects entries of tree with given root CID. Subtrees that are unchanged since previous index (same CID at same
+     * path) are copied from it, hence only changed directories are listed. Checksums of new files are taken from their
+     * {@code .sha1} and {@code .sha256} siblings, as deployed along with Maven artifacts.
+     *
+     * @param root the namespace root CID.
+     * @param previous the previous index, or {@code null}.
+     * @param list lists directory by CID.
+     * @param cat retrieves file content by CID.
+     */
+    public static List<Entry> collect(
+            Cid root,
+            IpfsNamespaceIndex previous,
+            IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list,
+            IOFunction<Cid, InputStream> cat)
+            throws IOException {
+        List<Entry> result = new ArrayList<>();
+        collect(root, "", previous, list, cat, result);
+        return result;
+    }
+
+    private static void collect(
+            Cid directory,
+            String path,
+            IpfsNamespaceIndex previous,
+            IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list,
+            IOFunction<Cid, InputStream> cat,
+            List<Entry> result)
+            throws IOException {
+        Map<String, IpfsNamespacePublisher.Entry> children = new LinkedHashMap<>();
+        try (Stream<IpfsNamespacePublisher.Entry> entries = list.apply(directory)) {
+            entries.forEach(e -> children.put(e.name(), e));
+        }
+        if (path.isEmpty()) {
+            children.remove(FILE_NAME);
+        }
+        for (IpfsNamespacePublisher.Entry child : children.values()) {
+            String childPath = path.isEmpty() ? child.name() : path + "/" + child.name();
+            String cid = child.hash().toString();
+            Optional<Entry> known = previous != null ? previous.find(childPath) : Optional.empty();
+            if (known.isPresent() && known.orElseThrow().cid.equals(cid)) {
+                result.add(known.orElseThrow());
+                if (!child.file()) {
+                    previous.forEachUnder(childPath, result::add);
+                }
+            } else if (child.file()) {
+                result.add(new Entry(
+                        childPath,
+                        cid,
+                        child.size(),
+                        false,
+                        checksum(children.get(child.name() + ".sha1"), 20, cat),
+                        checksum(children.get(child.name() + ".sha256"), 32, cat)));
+            } else {
+                result.add(new Entry(childPath, cid, 0, true, null, null));
+                collect(child.hash(), childPath, previous, list, cat, result);
+            }
+        }
+    }
+
+    /**
+     * Reads checksum file: hex checksum, optionally followed by whitespace and file name.
+     */
+    private static byte[] checksum(IpfsNamespacePublisher.Entry file, int length, IOFunction<Cid, InputStream> cat)
+            throws IOException {
+        if (file == null || !file.file() || file.size() > MAX_CHECKSUM_FILE_SIZE) {
+            return null;
+        }
+        String content;
+        try (InputStream in = cat.apply(file.hash())) {
+            content = new String(in.readNBytes(MAX_CHECKSUM_FILE_SIZE), StandardCharsets.US_ASCII).trim();
+        }
+        String hex = content.split("\\s+", 2)[0];
+        if (hex.length() != length * 2 || !hex.matches("[0-9a-fA-F]+")) {
+            return null;
+        }
+        byte[] checksum = new byte[length];
+        for (int i = 0; i < length; i++) {
+            checksum[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return checksum;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            if (shift > 56) {
+                throw new ArithmeticException("Varint too long");
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Three-way merge of namespace directory trees, used when namespace was published by someone else since it was
+ * refreshed: paths changed on one side only are taken from that side, directories changed on both sides are merged
+ * recursively, and {@code maven-metadata.xml} changed on both sides is merged (versions, plugins and snapshot versions
+ * united), with checksums recalculated. Other files changed on both sides are conflicts, resolved by keeping own.
+ */
+public class IpfsNamespaceMerger {
+    private static final String METADATA = "maven-metadata.xml";
+
+    private static final Map<String, String> CHECKSUMS =
+            Map.of(".md5", "MD5", ".sha1", "SHA-1", ".sha256", "SHA-256", ".sha512", "SHA-512");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IpfsRpc rpc;
+    private final List<String> addParams;
+    private final IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list;
+    private final IOFunction<Cid, InputStream> cat;
+
+    /**
+     * @param rpc the client used to build merged tree in node MFS.
+     * @param addParams the parameters of {@code add} that published content is added with (CID version, chunker...),
+     *                  so merged files have same DAG layout as deployed ones.
+     * @param list lists directory by CID.
+     * @param cat retrieves file content by CID.
+     */
+    public IpfsNamespaceMerger(
+            IpfsRpc rpc,
+            List<String> addParams,
+            IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list,
+            IOFunction<Cid, InputStream> cat) {
+        this.rpc = requireNonNull(rpc);
+        this.addParams = List.copyOf(addParams);
+        this.list = requireNonNull(list);
+        this.cat = requireNonNull(cat);
+    }
+
+    /**
+     * Returns CID of merged tree.
+     *
+     * @param base the common ancestor.
+     * @param ours the own tree, that wins conflicts.
+     * @param theirs the tree published by someone else.
+     */
+    public Cid merge(Cid base, Cid ours, Cid theirs) throws IOException {
+        if (ours.equals(theirs) || base.equals(theirs)) {
+            return ours;
+        }
+        if (base.equals(ours)) {
+            return theirs;
+        }
+        // directly at MFS root, so nothing is left behind once removed
+        String scratch = "/.ipfs-merge-" + UUID.randomUUID();
+        rpc.json("files/cp", "arg", "/ipfs/" + ours, "arg", scratch);
+        try {
+            mergeInto(scratch, base, ours, theirs);
+            return Cid.decode(
+                    String.valueOf(rpc.json("files/stat", "arg", scratch).get("Hash")));
+        } finally {
+            rpc.json("files/rm", "arg", scratch, "recursive", "true");
+        }
+    }
+
+    /**
+     * Merges directories into MFS path, that holds own directory.
+     */
+    void mergeInto(String path, Cid base, Cid ours, Cid theirs) throws IOException {
+        Map<String, IpfsNamespacePublisher.Entry> b = entries(base);
+        Map<String, IpfsNamespacePublisher.Entry> o = entries(ours);
+        Map<String, IpfsNamespacePublisher.Entry> t = entries(theirs);
+        Set<String> names = new TreeSet<>(o.keySet());
+        names.addAll(t.keySet());
+        names.addAll(b.keySet());
+        // names present in MFS directory, as it changes
+        Set<String> present = new HashSet<>(o.keySet());
+        boolean metadataConflict = false;
+        for (String name : names) {
+            IpfsNamespacePublisher.Entry eb = b.get(name);
+            IpfsNamespacePublisher.Entry eo = o.get(name);
+            IpfsNamespacePublisher.Entry et = t.get(name);
+            if (IpfsNamespaceIndex.FILE_NAME.equals(name)) {
+                continue; // recreated before publishing
+            }
+            String child = path + "/" + name;
+            if (same(eo, et) || same(et, eb)) {
+                continue; // same on both sides, or changed only by us
+            }
+            if (same(eo, eb) || eo == null) {
+                // changed only by them, or we removed what they changed
+                replace(child, eo, et);
+                if (et != null) {
+                    present.add(name);
+                } else {
+                    present.remove(name);
+                }
+            } else if (name.startsWith(METADATA)) {
+                metadataConflict = true;
+            } else if (et != null && !eo.file() && !et.file()) {
+                mergeInto(child, eb != null && !eb.file() ? eb.hash() : null, eo.hash(), et.hash());
+            } else {
+                logger.warn("Conflicting concurrent change of {}, keeping own", child);
+            }
+        }
+        if (metadataConflict) {
+            mergeMetadata(path, o, t, present);
+        }
+    }
+
+    /**
+     * Merges metadata changed on both sides, and replaces its checksums, while its other siblings (like signatures,
+     * that cannot be recreated) are dropped.
+     */
+    private void mergeMetadata(
+            String path,
+            Map<String, IpfsNamespacePublisher.Entry> o,
+            Map<String, IpfsNamespacePublisher.Entry> t,
+            Set<String> present)
+            throws IOException {
+        IpfsNamespacePublisher.Entry eo = o.get(METADATA);
+        IpfsNamespacePublisher.Entry et = t.get(METADATA);
+        if (eo == null || et == null) {
+            // only checksums or signatures differ, there is nothing to merge
+            logger.warn("Conflicting concurrent change of {}/{}, keeping own", path, METADATA);
+            return;
+        }
+        byte[] merged;
+        try (InputStream ours = cat.apply(eo.hash());
+                InputStream theirs = cat.apply(et.hash())) {
+            merged = mergeMetadata(ours.readAllBytes(), theirs.readAllBytes());
+        }
+        write(path + "/" + METADATA, present.contains(METADATA), merged);
+        Set<String> siblings = new TreeSet<>(o.keySet());
+        siblings.addAll(t.keySet());
+        for (String name : siblings) {
+            if (name.startsWith(METADATA + ".")) {
+                String algorithm = CHECKSUMS.get(name.substring(METADATA.length()));
+                if (algorithm != null) {
+                    write(
+                            path + "/" + name,
+                            present.contains(name),
+                            checksum(algorithm, merged).getBytes(StandardCharsets.US_ASCII));
+                } else if (present.contains(name)) {
+                    logger.warn("Dropping {}/{} of merged metadata", path, name);
+                    rpc.json("files/rm", "arg", path + "/" + name, "force", "true");
+                }
+            }
+        }
+    }
+
+    private void replace(String path, IpfsNamespacePublisher.Entry current, IpfsNamespacePublisher.Entry replacement)
+            throws IOException {
+        if (current != null) {
+            rpc.json("files/rm", "arg", path, "recursive", "true");
+        }
+        if (replacement != null) {
+            rpc.json("files/cp", "arg", "/ipfs/" + replacement.hash(), "arg", path);
+        }
+    }
+
+    /**
+     * Adds content like published content is added, and places it at MFS path, replacing existing file, if any.
+     */
+    private void write(String path, boolean exists, byte[] content) throws IOException {
+        List<String> params = new ArrayList<>(addParams);
+        params.addAll(List.of("pin", "false"));
+        Object hash;
+        try (IpfsRpc.Upload upload = rpc.upload("add", params.toArray(new String[0]))) {
+            upload.write(content);
+            hash = upload.finish().get("Hash");
+        }
+        if (exists) {
+            rpc.json("files/rm", "arg", path, "force", "true");
+        }
+        rpc.json("files/cp", "arg", "/ipfs/" + hash, "arg", path);
+    }
+
+    private Map<String, IpfsNamespacePublisher.Entry> entries(Cid directory) throws IOException {
+        if (directory == null) {
+            return Map.of();
+        }
+        try (Stream<IpfsNamespacePublisher.Entry> entries = list.apply(directory)) {
+            return entries.collect(Collectors.toMap(
+                    IpfsNamespacePublisher.Entry::name, Function.identity(), (a, b) -> a, HashMap::new));
+        }
+    }
+
+    private static boolean same(IpfsNamespacePublisher.Entry a, IpfsNamespacePublisher.Entry b) {
+        return a == null ? b == null : b != null && a.hash().equals(b.hash());
+    }
+
+    private static String checksum(String algorithm, byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance(algorithm).digest(content)) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Merges two versions of repository metadata: the one updated last is kept (for {@code latest}, {@code release}
+     * and {@code snapshot}), completed with versions, plugins and snapshot versions found only in the other one.
+     */
+    static byte[] mergeMetadata(byte[] ours, byte[] theirs) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document o = factory.newDocumentBuilder().parse(new ByteArrayInputStream(ours));
+            Document t = factory.newDocumentBuilder().parse(new ByteArrayInputStream(theirs));
+            Document newer = text(t, "lastUpdated").compareTo(text(o, "lastUpdated")) > 0 ? t : o;
+            Document older = newer == t ? o : t;
+            unite(newer, older, "versions", "version", e -> e.getTextContent().trim());
+            unite(newer, older, "plugins", "plugin", e -> text(e, "prefix"));
+            unite(
+                    newer,
+                    older,
+                    "snapshotVersions",
+                    "snapshotVersion",
+                    e -> text(e, "classifier") + ":" + text(e, "extension"));
+
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(newer), new StreamResult(out));
+            return out.toByteArray();
+        } catch (ParserConfigurationException | SAXException | TransformerException e) {
+            throw new IOException("Could not merge " + METADATA, e);
+        }
+    }
+
+    /**
+     * Adds to the list in newer document the items of older document missing from it, by key.
+     */
+    private static void unite(Document newer, Document older, String list, String item, Function<Element, String> key) {
+        NodeList olderLists = older.getElementsByTagName(list);
+        if (olderLists.getLength() == 0) {
+            return;
+        }
+        NodeList newerLists = newer.getElementsByTagName(list);
+        Element target;
+        if (newerLists.getLength() > 0) {
+            target = (Element) newerLists.item(0);
+        } else {
+            Node parent = newer.importNode(olderLists.item(0).getParentNode(), false);
+            Element container =
+                    (Element) newer.getElementsByTagName(parent.getNodeName()).item(0);
+            if (container == null) {
+                container = newer.getDocumentElement();
+            }
+            target = newer.createElement(list);
+            container.appendChild(target);
+        }
+        Set<String> present = new LinkedHashSet<>();
+        NodeList existing = target.getElementsByTagName(item);
+        for (int i = 0; i < existing.getLength(); i++) {
+            present.add(key.apply((Element) existing.item(i)));
+        }
+        NodeList items = ((Element) olderLists.item(0)).getElementsByTagName(item);
+        for (int i = 0; i < items.getLength(); i++) {
+            Element element = (Element) items.item(i);
+            if (present.add(key.apply(element))) {
+                target.appendChild(newer.importNode(element, true));
+            }
+        }
+    }
+
+    private static String text(Node node, String tag) {
+        NodeList nodes = node instanceof Document
+                ? ((Document) node).getElementsByTagName(tag)
+                : ((Element) node).getElementsByTagName(tag);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent().trim() : "";
+    }
+}
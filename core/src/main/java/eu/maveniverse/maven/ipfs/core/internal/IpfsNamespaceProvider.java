@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Announces to routing only the blocks that a new namespace root has and the previous one has not, instead of waiting
+ * for node reprovider to announce (all) blocks. Trees are compared by path: entries with unchanged CID are skipped as
+ * whole, changed directories are compared further, and changed files contribute all their blocks.
+ */
+public class IpfsNamespaceProvider {
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list;
+    private final IOFunction<Cid, ? extends Collection<Cid>> refs;
+    private final IOFunction<Cid, ?> provide;
+    private final Executor executor;
+
+    /**
+     * @param list lists directory by CID.
+     * @param refs recursively lists refs of file CID.
+     * @param provide announces single block.
+     * @param executor runs comparing and announcements; its size bounds parallel announcements, so it is meant to be
+     *     shared by providers of all namespaces.
+     */
+    public IpfsNamespaceProvider(
+            IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list,
+            IOFunction<Cid, ? extends Collection<Cid>> refs,
+            IOFunction<Cid, ?> provide,
+            Executor executor) {
+        this.list = requireNonNull(list);
+        this.refs = requireNonNull(refs);
+        this.provide = requireNonNull(provide);
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * Returns blocks of current root missing from previous root, the root first. Directories sharded into HAMT are
+     * represented only by their root block.
+     *
+     * @param previous the previous root, or {@code null}, when all blocks are new.
+     * @param current the current root.
+     */
+    public Set<Cid> newBlocks(Cid previous, Cid current) throws IOException {
+        Set<Cid> blocks = new LinkedHashSet<>();
+        if (!current.equals(previous)) {
+            diff(previous, current, blocks);
+        }
+        return blocks;
+    }
+
+    private void diff(Cid previous, Cid current, Set<Cid> blocks) throws IOException {
+        blocks.add(current);
+        Map<String, IpfsNamespacePublisher.Entry> before = entries(previous);
+        for (IpfsNamespacePublisher.Entry entry : entries(current).values()) {
+            IpfsNamespacePublisher.Entry old = before.get(entry.name());
+            if (old != null && old.hash().equals(entry.hash())) {
+                continue;
+            }
+            if (entry.file()) {
+                blocks.add(entry.hash());
+                blocks.addAll(refs.apply(entry.hash()));
+            } else {
+                diff(old != null && !old.file() ? old.hash() : null, entry.hash(), blocks);
+            }
+        }
+    }
+
+    private Map<String, IpfsNamespacePublisher.Entry> entries(Cid directory) throws IOException {
+        Map<String, IpfsNamespacePublisher.Entry> entries = new LinkedHashMap<>();
+        if (directory != null) {
+            try (Stream<IpfsNamespacePublisher.Entry> stream = list.apply(directory)) {
+                stream.forEach(e -> entries.put(e.name(), e));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Announces blocks of current root missing from previous root, in parallel, blocking until done. Failed
+     * announcements are logged and counted, they are left to reprovider. Returns the count of announced blocks.
+     *
+     * @param previous the previous root, or {@code null}, when all blocks are new.
+     * @param current the current root.
+     */
+    public int provideNew(Cid previous, Cid current) throws IOException {
+        try {
+            return provideNewAsync(previous, current).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted providing " + current);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not provide " + current, e.getCause());
+        }
+    }
+
+    /**
+     * Same as {@link #provideNew(Cid, Cid)}, but comparing and announcing run on executor, without a thread waiting
+     * for them. Future fails only if trees could not be compared.
+     */
+    public CompletableFuture<Integer> provideNewAsync(Cid previous, Cid current) {
+        long started = System.nanoTime();
+        return CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return newBlocks(previous, current);
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        },
+                        executor)
+                .thenCompose(blocks -> provideAll(blocks, current, started));
+    }
+
+    private CompletableFuture<Integer> provideAll(Set<Cid> blocks, Cid current, long started) {
+        logger.info("Providing {} new blocks of {}", blocks.size(), current);
+        AtomicInteger provided = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong progressed = new AtomicLong(started);
+        long interval = TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_SECONDS);
+        CompletableFuture<?>[] announced = blocks.stream()
+                .map(block -> CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                provide.apply(block);
+                                provided.incrementAndGet();
+                            } catch (IOException e) {
+                                failed.incrementAndGet();
+                                logger.debug("Could not provide {}: {}", block, e.getMessage());
+                            }
+                            long last = progressed.get();
+                            long now = System.nanoTime();
+                            if (now - last >= interval && progressed.compareAndSet(last, now)) {
+                                logger.info(
+                                        "Provided {}/{} blocks of {} ({} failed)",
+                                        provided.get(),
+                                        blocks.size(),
+                                        current,
+                                        failed.get());
+                            }
+                        },
+                        executor))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(announced).thenApply(v -> {
+            logger.info(
+                    "Provided {}/{} new blocks of {} in {} ms ({} failed, left to reprovider)",
+                    provided.get(),
+                    blocks.size(),
+                    current,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    failed.get());
+            return provided.get();
+        });
+    }
+}
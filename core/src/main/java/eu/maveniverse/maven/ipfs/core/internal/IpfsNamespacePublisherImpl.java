@@ -9,22 +9,56 @@ package eu.maveniverse.maven.ipfs.core.internal;
 
 import static java.util.Objects.requireNonNull;
 
+import eu.maveniverse.maven.ipfs.core.IpfsContentUnavailableException;
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
-import io.ipfs.api.AddArgs;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsConcurrencyLimiter.Endpoint;
 import io.ipfs.api.IPFS;
-import io.ipfs.api.KeyInfo;
-import io.ipfs.api.MerkleNode;
-import io.ipfs.api.NamedStreamable;
+import io.ipfs.api.JSONParser;
 import io.ipfs.cid.Cid;
 import io.ipfs.multihash.Multihash;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
@@ -33,21 +67,55 @@ import org.slf4j.LoggerFactory;
 @Singleton
 @Named
 public class IpfsNamespacePublisherImpl implements IpfsNamespacePublisher {
+    /**
+     * The count of parallel routing announcements of new blocks, of all namespaces.
+     */
+    private static final int PROVIDE_THREADS = 16;
+
+    /**
+     * The deadline of single routing announcement, that otherwise may block for as long as node lookup takes.
+     */
+    private static final Duration PROVIDE_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * How many IPNS records resolve before publishing collects: the latest record is wanted, not agreement of many.
+     */
+    private static final int RESOLVE_RECORD_COUNT = 4;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final IPFS ipfs;
+    private final IpfsConcurrencyLimiter limiter;
+    private final IpfsRpc rpc;
     private final String nsRoot;
     private final String root;
+    private final String indexPrefix;
     private final String namespace;
     private final String namespaceKey;
     private final boolean namespaceKeyCreate;
     private final boolean publishNamespace;
+    private final IpfsNamespacePublisherOptions options;
+    private final AtomicReference<Boolean> filestoreEnabled;
+    private final IpfsNegativeCache negativeCache;
+    private final AtomicReference<Optional<String>> rootCid;
+    private final AtomicReference<Cid> baseCid;
+    private final AtomicReference<Optional<IpfsNamespaceIndex>> index;
+    private final IpfsDirectoryBundles bundles;
+    private final IpfsCarSnapshot snapshot;
+    private final IpfsPinningService pinningService;
+    private final IpfsLocalFirst localFirst;
+    private final IpfsLookupCache lookupCache;
+    private final IpfsNamespaceSubscription subscription;
+    private final Consumer<Cid> namespaceListener;
+    private final ReadWriteLock rootLock;
+    private final Set<String> accessed;
     private final AtomicBoolean pendingContent;
     private final AtomicBoolean closed;
+    private final AtomicReference<CompletableFuture<Void>> providing;
     private final Runnable onClose;
 
     public IpfsNamespacePublisherImpl(
             IPFS ipfs,
+            IpfsConcurrencyLimiter limiter,
             String namespace,
             String filesPrefix,
             String namespacePrefix,
@@ -55,9 +123,48 @@ public class IpfsNamespacePublisherImpl implements IpfsNamespacePublisher {
             boolean namespaceKeyCreate,
             boolean refreshNamespace,
             boolean publishNamespace,
+            IpfsNamespacePublisherOptions options,
             Runnable onClose)
             throws IOException {
-        this.ipfs = requireNonNull(ipfs);
+        this(
+                new IpfsRpc(requireNonNull(ipfs)),
+                limiter,
+                namespace,
+                filesPrefix,
+                namespacePrefix,
+                namespaceKey,
+                namespaceKeyCreate,
+                refreshNamespace,
+                publishNamespace,
+                options,
+                null,
+                null,
+                onClose);
+    }
+
+    /**
+     * @param rpc the node client; all node calls go through it, so node API may listen on Unix domain socket too.
+     *     Publisher calls through own abortable client of it, see {@link #abort()}.
+     * @param lookupCache the process wide lookup cache, or {@code null}.
+     * @param subscription the subscription to namespace IPNS record updates, or {@code null}.
+     */
+    public IpfsNamespacePublisherImpl(
+            IpfsRpc rpc,
+            IpfsConcurrencyLimiter limiter,
+            String namespace,
+            String filesPrefix,
+            String namespacePrefix,
+            String namespaceKey,
+            boolean namespaceKeyCreate,
+            boolean refreshNamespace,
+            boolean publishNamespace,
+            IpfsNamespacePublisherOptions options,
+            IpfsLookupCache lookupCache,
+            IpfsNamespaceSubscription subscription,
+            Runnable onClose)
+            throws IOException {
+        this.limiter = requireNonNull(limiter);
+        this.rpc = requireNonNull(rpc).abortable();
         this.nsRoot = URI.create("ipfs:///")
                 .resolve(requireNonNull(filesPrefix) + "/")
                 .resolve(requireNonNull(namespace))
@@ -71,16 +178,59 @@ public class IpfsNamespacePublisherImpl implements IpfsNamespacePublisher {
                         .resolve(requireNonNull(namespacePrefix))
                         .normalize()
                         .getPath();
+        this.indexPrefix = root.equals(nsRoot) ? "" : root.substring(nsRoot.length() + 1) + "/";
         this.namespace = requireNonNull(namespace);
         this.namespaceKey = requireNonNull(namespaceKey);
         this.namespaceKeyCreate = namespaceKeyCreate;
         this.publishNamespace = publishNamespace;
+        this.options = requireNonNull(options);
+        this.filestoreEnabled = new AtomicReference<>();
+        this.negativeCache = new IpfsNegativeCache(
+                options.negativeCacheTtl(), options.negativeCacheDirectory().orElse(null));
+        this.rootCid = new AtomicReference<>();
+        this.baseCid = new AtomicReference<>();
+        this.index = new AtomicReference<>();
+        this.bundles = options.bundleMaxSize() > 0
+                ? new IpfsDirectoryBundles(
+                        options.bundleMaxSize(),
+                        dir -> doStatAbs(root + "/" + dir),
+                        cid -> retrieve(cid, "get", "arg", "/ipfs/" + cid, "archive", "true"))
+                : null;
+        this.snapshot =
+                options.carSnapshot().map(f -> new IpfsCarSnapshot(this.rpc, f)).orElse(null);
+        this.pinningService = options.pinningService()
+                .map(e ->
+                        new IpfsPinningService(e, options.pinningServiceToken().orElse(null)))
+                .orElse(null);
+        this.localFirst = options.localFirst() ? new IpfsLocalFirst(options.localFirstHedge()) : null;
+        this.accessed = ConcurrentHashMap.newKeySet();
+        this.lookupCache = lookupCache;
+        this.subscription = subscription;
+        this.namespaceListener = this::namespaceUpdated;
+        this.rootLock = new ReentrantReadWriteLock();
         this.pendingContent = new AtomicBoolean(false);
         this.closed = new AtomicBoolean(false);
+        this.providing = new AtomicReference<>();
         this.onClose = onClose;
 
+        if (snapshot != null) {
+            try {
+                limiter.call(Endpoint.OTHER, () -> {
+                    snapshot.restore();
+                    return null;
+                });
+            } catch (IOException e) {
+                logger.warn("Could not restore CAR snapshot of namespace {}: {}", namespace, e.getMessage());
+            }
+        }
         if (refreshNamespace) {
-            refreshNamespace();
+            phase("refresh", () -> {
+                refreshNamespace();
+                return null;
+            });
+            if (subscription != null) {
+                subscription.addListener(namespaceListener);
+            }
         }
     }
 
@@ -93,110 +243,829 @@ public class IpfsNamespacePublisherImpl implements IpfsNamespacePublisher {
     public Optional<Stat> stat(String relPath) throws IOException {
         checkClosed();
         requireNonNull(relPath);
-        return doStatAbs(root + "/" + relPath);
+        Optional<String> rootCid = rootCid();
+        if (rootCid.isPresent() && negativeCache.isMissing(rootCid.orElseThrow(), relPath)) {
+            return Optional.empty();
+        }
+        if (options.namespaceIndex() && !relPath.isEmpty() && !pendingContent.get()) {
+            Optional<IpfsNamespaceIndex> namespaceIndex = index();
+            if (namespaceIndex.isPresent()) {
+                return namespaceIndex.orElseThrow().find(indexPrefix + relPath).map(e -> {
+                    Map<String, Object> stat = e.stat();
+                    return () -> stat;
+                });
+            }
+        }
+        boolean shared = sharedLookup(rootCid, relPath);
+        if (shared) {
+            Optional<Map<String, Object>> cached = lookupCache.get(rootCid.orElseThrow(), relPath);
+            if (cached != null) {
+                return cached.map(s -> () -> s);
+            }
+        }
+        Optional<Stat> stat;
+        rootLock.readLock().lock();
+        try {
+            if (localFirst != null && rootCid.isPresent() && !pendingContent.get()) {
+                String cidPath = "/ipfs/" + rootCid.orElseThrow() + (relPath.isEmpty() ? "" : "/" + relPath);
+                stat = localFirst.call(() -> doStatOffline(cidPath), () -> doStatAbs(root + "/" + relPath), s -> {});
+            } else {
+                stat = doStatAbs(root + "/" + relPath);
+            }
+        } finally {
+            rootLock.readLock().unlock();
+        }
+        if (stat.isEmpty() && rootCid.isPresent()) {
+            negativeCache.missing(rootCid.orElseThrow(), relPath);
+        }
+        if (shared) {
+            lookupCache.put(rootCid.orElseThrow(), relPath, stat.map(Stat::stat));
+        }
+        return stat;
+    }
+
+    /**
+     * Whether lookup may use process wide cache: not while this publisher has unflushed writes, that must not leak to
+     * other sessions, and not for volatile paths, for same reason as in negative cache.
+     */
+    private boolean sharedLookup(Optional<String> rootCid, String relPath) {
+        return lookupCache != null
+                && rootCid.isPresent()
+                && !pendingContent.get()
+                && !IpfsNegativeCache.isVolatile(relPath);
+    }
+
+    /**
+     * The CID of root, that keys not found paths. It is looked up once, and again only after this publisher changed
+     * root, hence changes made by others are not noticed (except for volatile paths, that expire).
+     */
+    private Optional<String> rootCid() throws IOException {
+        Optional<String> result = rootCid.get();
+        if (result == null) {
+            result = doStatAbs(root).map(s -> String.valueOf(s.stat().get("Hash")));
+            rootCid.compareAndSet(null, result);
+        }
+        return result;
+    }
+
+    /**
+     * The index found at namespace root, loaded once, and again only after namespace was updated. Index is used only
+     * if it matches namespace root, it is ignored if namespace was changed without updating index.
+     */
+    private Optional<IpfsNamespaceIndex> index() throws IOException {
+        Optional<IpfsNamespaceIndex> result = index.get();
+        if (result == null) {
+            rootLock.readLock().lock();
+            try {
+                result = loadIndex();
+            } finally {
+                rootLock.readLock().unlock();
+            }
+            index.compareAndSet(null, result);
+        }
+        return result;
+    }
+
+    private Optional<IpfsNamespaceIndex> loadIndex() throws IOException {
+        Optional<Stat> nsRootStat = doStatAbs(nsRoot);
+        if (nsRootStat.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Entry> children = new HashMap<>();
+        try (Stream<Entry> entries = list(nsRootStat.orElseThrow().hash(), false)) {
+            entries.forEach(e -> children.put(e.name(), e));
+        }
+        Entry file = children.remove(IpfsNamespaceIndex.FILE_NAME);
+        if (file == null) {
+            return Optional.empty();
+        }
+        IpfsNamespaceIndex result;
+        try {
+            result = mapIndex(file.hash());
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            logger.warn("Could not load index of IPNS {}: {}", namespace, e.getMessage());
+            return Optional.empty();
+        }
+        // any change below root changes CID of some root entry
+        boolean current = result.rootEntryCount() == children.size()
+                && children.values().stream().allMatch(c -> result.find(c.name())
+                        .map(e -> e.cid().equals(c.hash()))
+                        .orElse(false));
+        if (!current) {
+            logger.debug("Index of IPNS {} is out of date, not used", namespace);
+            return Optional.empty();
+        }
+        logger.debug("Using index of IPNS {} with {} paths", namespace, result.size());
+        return Optional.of(result);
+    }
+
+    /**
+     * Fetches index file and maps it to memory. The temporary file is deleted right away, mapping stays valid.
+     */
+    private IpfsNamespaceIndex mapIndex(Cid cid) throws IOException {
+        Path file = Files.createTempFile("ipfs-index-", ".tmp");
+        try {
+            try (InputStream content = retrieve(cid, "cat", "arg", "/ipfs/" + cid)) {
+                Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new IpfsNamespaceIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // mapped file may not be deleted on some platforms
+                file.toFile().deleteOnExit();
+            }
+        }
     }
 
     @Override
     public Optional<InputStream> get(Multihash multihash) throws IOException {
         checkClosed();
         requireNonNull(multihash);
+        if (localFirst != null) {
+            return localFirst.call(
+                    () -> getOffline(multihash), () -> getOnline(multihash), c -> c.ifPresent(this::closeQuietly));
+        }
+        return getOnline(multihash);
+    }
+
+    private Optional<InputStream> getOnline(Multihash multihash) throws IOException {
         try {
-            return Optional.of(ipfs.catStream(multihash));
-        } catch (RuntimeException e) {
-            // TODO: what happens here if non-existent CID?
-            Throwable cause = e.getCause();
-            if (cause instanceof IOException && e.getMessage().contains("\"Message\":\"file does not exist\"")) {
+            return Optional.of(retrieve(multihash, "cat", "arg", String.valueOf(multihash)));
+        } catch (IpfsRpc.IpfsRpcException e) {
+            if (isNotFound(e)) {
                 return Optional.empty();
             }
             throw e;
         }
     }
 
+    /**
+     * Streams content from local blocks, with single call. Offline {@code cat} fails on first missing block, that may
+     * be well into content already passed to caller, so then content continues online from there. Offline calls do not
+     * touch the network, hence bypass the limiter.
+     */
+    private Optional<Optional<InputStream>> getOffline(Multihash multihash) {
+        try {
+            InputStream content = rpc.stream(
+                    options.firstByteTimeout(),
+                    options.stallTimeout(),
+                    "cat",
+                    "arg",
+                    String.valueOf(multihash),
+                    "offline",
+                    "true");
+            return Optional.of(Optional.of(new OnlineResumingInputStream(multihash, content)));
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Content streamed from local blocks, that continues online from current position, if offline stream fails.
+     */
+    private final class OnlineResumingInputStream extends InputStream {
+        private final Multihash multihash;
+        private InputStream content;
+        private boolean online;
+        private long position;
+
+        private OnlineResumingInputStream(Multihash multihash, InputStream content) {
+            this.multihash = multihash;
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n;
+            do {
+                n = read(b, 0, 1);
+            } while (n == 0);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                try {
+                    int n = content.read(b, off, len);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                } catch (IOException e) {
+                    if (online || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    logger.debug(
+                            "Content {} not local after {} bytes, continuing online: {}",
+                            multihash,
+                            position,
+                            e.getMessage());
+                    online = true;
+                    closeQuietly(content);
+                    content = retrieve(
+                            multihash, "cat", "arg", String.valueOf(multihash), "offset", String.valueOf(position));
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            content.close();
+        }
+    }
+
+    private void closeQuietly(InputStream content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            logger.debug("Could not close discarded content stream: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean warm(String relPath) throws IOException {
+        checkClosed();
+        Optional<Stat> stat = stat(requireNonNull(relPath));
+        if (stat.isEmpty() || !stat.orElseThrow().file()) {
+            return false;
+        }
+        // node has to fetch every block to list the refs
+        Cid cid = stat.orElseThrow().hash();
+        try (InputStream refs = retrieve(cid, "refs", "arg", "/ipfs/" + cid, "recursive", "true", "unique", "true")) {
+            refs.transferTo(OutputStream.nullOutputStream());
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Path> getBundled(String relPath) throws IOException {
+        checkClosed();
+        requireNonNull(relPath);
+        return bundles != null ? bundles.get(relPath) : Optional.empty();
+    }
+
+    @Override
+    public boolean fetchesBundle(String relPath) {
+        return bundles != null && bundles.fetches(requireNonNull(relPath));
+    }
+
+    @Override
+    public void recordAccess(String relPath) {
+        if (snapshot != null) {
+            accessed.add(requireNonNull(relPath));
+        }
+    }
+
+    /**
+     * Saves blocks of accessed files, and of directories leading to them, so path lookups are served locally too.
+     * Directories sharded into HAMT are represented only by their root block.
+     */
+    private void saveSnapshot() throws IOException {
+        Optional<Stat> nsRootStat = doStatAbs(nsRoot);
+        if (nsRootStat.isEmpty()) {
+            return;
+        }
+        Set<Cid> blocks = new LinkedHashSet<>();
+        blocks.add(nsRootStat.orElseThrow().hash());
+        Set<String> directories = new HashSet<>();
+        for (String relPath : accessed) {
+            String absPath = root + "/" + relPath;
+            for (int slash = absPath.indexOf('/', nsRoot.length() + 1);
+                    slash > 0;
+                    slash = absPath.indexOf('/', slash + 1)) {
+                String directory = absPath.substring(0, slash);
+                if (directories.add(directory)) {
+                    doStatAbs(directory).ifPresent(s -> blocks.add(s.hash()));
+                }
+            }
+            Optional<Stat> stat = doStatAbs(absPath);
+            if (stat.isPresent()) {
+                Cid cid = stat.orElseThrow().hash();
+                blocks.add(cid);
+                blocks.addAll(refs(cid));
+            }
+        }
+        limiter.call(Endpoint.OTHER, () -> {
+            snapshot.save(nsRootStat.orElseThrow().hash(), blocks);
+            return null;
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<Cid> refs(Cid cid) throws IOException {
+        List<Cid> refs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                retrieve(cid, "refs", "arg", "/ipfs/" + cid, "recursive", "true", "unique", "true"),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    Map ref = (Map) JSONParser.parse(line);
+                    Object err = ref.get("Err");
+                    if (err != null && !String.valueOf(err).isEmpty()) {
+                        throw new IpfsRpc.IpfsRpcException("refs", String.valueOf(err));
+                    }
+                    refs.add(Cid.decode(String.valueOf(ref.get("Ref"))));
+                }
+            }
+        }
+        return refs;
+    }
+
+    private static boolean isNotFound(IpfsRpc.IpfsRpcException e) {
+        return e.nodeMessage().contains("file does not exist");
+    }
+
+    /**
+     * Invokes content retrieving command, that response body is content (or archive) of given CID.
+     */
+    private InputStream retrieve(Multihash multihash, String command, String... params) throws IOException {
+        IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.CAT);
+        try {
+            // node looks for CID not available from any peer indefinitely: deadlines bound it
+            InputStream content = rpc.stream(options.firstByteTimeout(), options.stallTimeout(), command, params);
+            permit.sample(true);
+            return limiter.releaseOnClose(permit, new StallTranslatingInputStream(multihash, content));
+        } catch (IpfsRpc.IpfsRpcException e) {
+            permit.sample(isNotFound(e));
+            permit.release();
+            throw e;
+        } catch (SocketTimeoutException e) {
+            permit.sample(false);
+            permit.release();
+            throw new IpfsContentUnavailableException(
+                    "Content " + multihash + " not available: " + e.getMessage(),
+                    IpfsContentUnavailableException.Reason.FIRST_BYTE_TIMEOUT,
+                    e);
+        } catch (IOException | RuntimeException e) {
+            permit.sample(false);
+            permit.release();
+            throw e;
+        }
+    }
+
+    private static final class StallTranslatingInputStream extends FilterInputStream {
+        private final Multihash multihash;
+
+        private StallTranslatingInputStream(Multihash multihash, InputStream in) {
+            super(in);
+            this.multihash = multihash;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (SocketTimeoutException e) {
+                throw stalled(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (SocketTimeoutException e) {
+                throw stalled(e);
+            }
+        }
+
+        private IOException stalled(SocketTimeoutException e) {
+            return new IpfsContentUnavailableException(
+                    "Content " + multihash + " transfer stalled: " + e.getMessage(),
+                    IpfsContentUnavailableException.Reason.STALLED,
+                    e);
+        }
+    }
+
     @Override
-    public void put(String relPath, InputStream inputStream) throws IOException {
+    public Upload put(String relPath) throws IOException {
         checkClosed();
         requireNonNull(relPath);
-        requireNonNull(inputStream);
-        List<MerkleNode> mnl = ipfs.add(
-                new NamedStreamable.InputStreamWrapper(inputStream),
-                AddArgs.Builder.newInstance()
-                        .setCidVersion(1)
-                        .setRawLeaves()
-                        .setPin()
-                        .build());
-        String path = root + "/" + relPath;
-        ipfs.files.rm(path, true, true);
-        ipfs.files.cp("/ipfs/" + mnl.get(0).hash, path, true);
-        pendingContent.set(true);
+        return upload(root + "/" + relPath, null);
+    }
+
+    @Override
+    public Upload put(String relPath, Path file) throws IOException {
+        checkClosed();
+        requireNonNull(relPath);
+        requireNonNull(file);
+        return upload(root + "/" + relPath, options.nocopy() && filestoreEnabled() ? file : null);
+    }
+
+    private Upload upload(String path, Path nocopyFile) throws IOException {
+        IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.ADD);
+        IpfsRpc.Upload upload = startAdd(permit, nocopyFile);
+        AtomicBoolean done = new AtomicBoolean(false);
+        return new Upload() {
+            @Override
+            public OutputStream outputStream() {
+                return upload;
+            }
+
+            @Override
+            public void abort() {
+                if (done.compareAndSet(false, true)) {
+                    upload.abort();
+                    permit.release();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (done.compareAndSet(false, true)) {
+                    String hash;
+                    try {
+                        hash = finishAdd(permit, upload);
+                    } catch (IpfsRpc.IpfsRpcException e) {
+                        if (nocopyFile == null) {
+                            throw e;
+                        }
+                        // like file outside of filestore root: fall back to copy
+                        logger.warn("Could not add {} by reference, adding copy: {}", nocopyFile, e.nodeMessage());
+                        hash = addCopy(nocopyFile);
+                    }
+                    place(hash, path);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void link(String relPath, Cid cid) throws IOException {
+        checkClosed();
+        requireNonNull(relPath);
+        place(cid.toString(), relPath.isEmpty() ? root : root + "/" + relPath);
+    }
+
+    /**
+     * Places content at MFS path, replacing existing content.
+     */
+    private void place(String cid, String path) throws IOException {
+        rootLock.readLock().lock();
+        try {
+            // most puts are of new paths: spare the rm roundtrip (and directory rewrite) unless needed
+            if (!limiter.call(Endpoint.OTHER, () -> copyIfAbsent(cid, path))) {
+                limiter.call(
+                        Endpoint.OTHER, () -> rpc.json("files/rm", "arg", path, "recursive", "true", "flush", "false"));
+                limiter.call(Endpoint.OTHER, () -> copyIfAbsent(cid, path));
+            }
+            rootCid.set(null);
+            if (bundles != null) {
+                bundles.invalidate(path.length() > root.length() ? path.substring(root.length() + 1) : "");
+            }
+            pendingContent.set(true);
+        } finally {
+            rootLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies content to MFS path, unless path already exists. MFS is not flushed, as flushing rewrites all the
+     * directories up to MFS root, that with huge directories dominates the cost of write; the namespace is flushed
+     * once, on close.
+     */
+    private boolean copyIfAbsent(String cid, String path) throws IOException {
+        try {
+            rpc.json("files/cp", "arg", "/ipfs/" + cid, "arg", path, "parents", "true", "flush", "false");
+            return true;
+        } catch (IpfsRpc.IpfsRpcException e) {
+            if (e.nodeMessage().contains("already has entry")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The parameters of {@code add} that determine DAG layout of published content.
+     */
+    private List<String> addParams() {
+        List<String> params = new ArrayList<>(List.of("cid-version", "1", "raw-leaves", "true"));
+        options.chunker().ifPresent(c -> params.addAll(List.of("chunker", c)));
+        return params;
+    }
+
+    private IpfsRpc.Upload startAdd(IpfsConcurrencyLimiter.Permit permit, Path nocopyFile) throws IOException {
+        List<String> params = addParams();
+        params.addAll(List.of("pin", "true"));
+        try {
+            if (nocopyFile != null) {
+                params.addAll(List.of("nocopy", "true"));
+                return rpc.uploadFile("add", nocopyFile, params.toArray(new String[0]));
+            } else {
+                return rpc.upload("add", params.toArray(new String[0]));
+            }
+        } catch (IOException | RuntimeException e) {
+            permit.sample(false);
+            permit.release();
+            throw e;
+        }
+    }
+
+    private String finishAdd(IpfsConcurrencyLimiter.Permit permit, IpfsRpc.Upload upload) throws IOException {
+        // measure node side latency only, not the time caller spent writing content
+        permit.mark();
+        try {
+            Object hash = upload.finish().get("Hash");
+            if (hash == null) {
+                throw new IOException("IPFS node did not return hash of added content");
+            }
+            permit.sample(true);
+            return hash.toString();
+        } catch (IOException | RuntimeException e) {
+            permit.sample(false);
+            throw e;
+        } finally {
+            permit.release();
+        }
+    }
+
+    private String addCopy(Path file) throws IOException {
+        IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.ADD);
+        IpfsRpc.Upload upload = startAdd(permit, null);
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            inputStream.transferTo(upload);
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            permit.release();
+            throw e;
+        }
+        return finishAdd(permit, upload);
+    }
+
+    /**
+     * Filestore is an experimental feature of node, that has to be explicitly enabled.
+     */
+    private boolean filestoreEnabled() {
+        Boolean enabled = filestoreEnabled.get();
+        if (enabled == null) {
+            try {
+                enabled = Boolean.parseBoolean(String.valueOf(
+                        limiter.call(Endpoint.OTHER, () -> rpc.json("config", "arg", "Experimental.FilestoreEnabled"))
+                                .get("Value")));
+            } catch (IOException e) {
+                enabled = false;
+            }
+            if (!enabled) {
+                logger.info("IPFS node has filestore disabled; content of {} will be added by copy", namespace);
+            }
+            filestoreEnabled.set(enabled);
+        }
+        return enabled;
+    }
+
+    @Override
+    public Optional<Stream<Entry>> list(String relPath) throws IOException {
+        checkClosed();
+        requireNonNull(relPath);
+        Optional<Stat> stat = doStatAbs(root + "/" + relPath);
+        if (stat.isEmpty() || stat.orElseThrow().file()) {
+            return Optional.empty();
+        }
+        return Optional.of(list(stat.orElseThrow().hash(), true));
+    }
+
+    /**
+     * Lists directory by CID, using {@code ls} in streaming mode: node emits entries while it walks the directory
+     * (shards of HAMT sharded directory included), and they are parsed one by one. To tell type and size of entries,
+     * node has to fetch the root block of every one of them; if not resolved, entries carry only valid name and CID.
+     */
+    private Stream<Entry> list(Cid cid, boolean resolve) throws IOException {
+        IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.STAT);
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    resolve
+                            ? rpc.stream("ls", "arg", "/ipfs/" + cid, "stream", "true")
+                            : rpc.stream(
+                                    "ls",
+                                    "arg",
+                                    "/ipfs/" + cid,
+                                    "stream",
+                                    "true",
+                                    "resolve-type",
+                                    "false",
+                                    "size",
+                                    "false"),
+                    StandardCharsets.UTF_8));
+            permit.sample(true);
+        } catch (IOException | RuntimeException e) {
+            permit.sample(false);
+            permit.release();
+            throw e;
+        }
+        return reader.lines()
+                .filter(line -> !line.isBlank())
+                .flatMap(IpfsNamespacePublisherImpl::entries)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        permit.release();
+                    }
+                });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Stream<Entry> entries(String line) {
+        Map object = (Map) JSONParser.parse(line);
+        if (object.containsKey("Message") && "error".equals(object.get("Type"))) {
+            throw new UncheckedIOException(new IpfsRpc.IpfsRpcException("ls", String.valueOf(object.get("Message"))));
+        }
+        Stream.Builder<Entry> entries = Stream.builder();
+        for (Object o : (List) object.getOrDefault("Objects", List.of())) {
+            for (Object l : (List) ((Map) o).getOrDefault("Links", List.of())) {
+                Map link = (Map) l;
+                String name = String.valueOf(link.get("Name"));
+                Cid hash = Cid.decode(String.valueOf(link.get("Hash")));
+                long size = link.get("Size") instanceof Number ? ((Number) link.get("Size")).longValue() : 0L;
+                // unixfs type: 1 is directory, 5 is HAMT shard; everything else is file-like
+                int type = link.get("Type") instanceof Number ? ((Number) link.get("Type")).intValue() : 2;
+                boolean file = type != 1 && type != 5;
+                entries.add(new Entry() {
+                    @Override
+                    public String name() {
+                        return name;
+                    }
+
+                    @Override
+                    public Cid hash() {
+                        return hash;
+                    }
+
+                    @Override
+                    public long size() {
+                        return size;
+                    }
+
+                    @Override
+                    public boolean file() {
+                        return file;
+                    }
+                });
+            }
+        }
+        return entries.build();
     }
 
     @Override
     public void close() throws IOException {
         if (closed.compareAndSet(false, true)) {
+            if (subscription != null) {
+                subscription.removeListener(namespaceListener);
+            }
+            try {
+                negativeCache.save();
+            } catch (IOException e) {
+                logger.warn("Could not persist not found paths of namespace {}: {}", namespace, e.getMessage());
+            }
+            if (snapshot != null && !accessed.isEmpty()) {
+                try {
+                    saveSnapshot();
+                } catch (IOException e) {
+                    logger.warn("Could not save CAR snapshot of namespace {}: {}", namespace, e.getMessage());
+                }
+            }
+            if (bundles != null) {
+                bundles.close();
+            }
+            if (pendingContent.get()) {
+                phase("flush", () -> limiter.call(Endpoint.OTHER, () -> rpc.json("files/flush", "arg", nsRoot)));
+            }
             if (publishNamespace && pendingContent.get()) {
                 publishNamespace();
             }
+            if (localFirst != null) {
+                logger.info("IPFS namespace {} {}", namespace, localFirst);
+            }
+            logger.debug("IPFS namespace {} closed; node concurrency {}", namespace, limiter);
             if (onClose != null) {
                 onClose.run();
             }
         }
     }
 
+    /**
+     * Aborts publisher, typically still closing after deadline: node calls in flight are cancelled and further calls
+     * fail, so namespace is not published later than caller gave up on it.
+     */
+    void abort() {
+        rpc.abort();
+    }
+
     private void checkClosed() {
         if (closed.get()) {
             throw new IllegalStateException("Already closed");
         }
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
     private Optional<Stat> doStatAbs(String absPath) throws IOException {
+        return limiter.call(Endpoint.STAT, () -> {
+            try {
+                Map<String, Object> stat = rpc.json(options.statTimeout(), "files/stat", "arg", absPath);
+                return Optional.of(() -> stat);
+            } catch (IpfsRpc.IpfsRpcException e) {
+                if (e.nodeMessage().contains("file does not exist")) {
+                    return Optional.empty();
+                }
+                if (e.nodeMessage().contains("context deadline exceeded")) {
+                    throw statTimeout(absPath, e);
+                }
+                throw e;
+            } catch (SocketTimeoutException e) {
+                throw statTimeout(absPath, e);
+            }
+        });
+    }
+
+    /**
+     * Stats CID path with node offline: path that does not exist in local blocks does not exist at all, any other
+     * failure (like block not found locally) is a miss, left to online lookup.
+     */
+    private Optional<Optional<Stat>> doStatOffline(String cidPath) {
         try {
-            Map stat = ipfs.files.stat(absPath);
-            return Optional.of(() -> stat);
-        } catch (RuntimeException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof IOException && e.getMessage().contains("\"Message\":\"file does not exist\"")) {
-                return Optional.empty();
+            Map<String, Object> stat = rpc.json(options.statTimeout(), "files/stat", "arg", cidPath, "offline", "true");
+            return Optional.of(Optional.of(() -> stat));
+        } catch (IpfsRpc.IpfsRpcException e) {
+            if (e.nodeMessage().contains("file does not exist")) {
+                return Optional.of(Optional.empty());
             }
-            throw e;
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
         }
     }
 
+    private IpfsContentUnavailableException statTimeout(String absPath, IOException cause) {
+        return new IpfsContentUnavailableException(
+                "Stat of " + absPath + " did not complete within " + options.statTimeout(),
+                IpfsContentUnavailableException.Reason.STAT_TIMEOUT,
+                cause);
+    }
+
     private Optional<Cid> resolveName(String name) throws IOException {
         try {
-            String path = ipfs.name.resolve(name);
+            String path = String.valueOf(limiter.call(Endpoint.OTHER, () -> rpc.json("name/resolve", "arg", name))
+                    .get("Path"));
             if (path.startsWith("/ipfs/")) {
                 path = path.substring(6);
             }
             return Optional.of(Cid.decode(path));
-        } catch (RuntimeException e) {
+        } catch (IpfsRpc.IpfsRpcException | RuntimeException e) {
             // swallow; will return empty at end
         }
         return Optional.empty();
     }
 
-    private Optional<KeyInfo> getOrCreateKey() throws IOException {
-        Optional<KeyInfo> keyInfoOptional = ipfs.key.list().stream()
-                .filter(k -> Objects.equals(namespaceKey, k.name))
+    /**
+     * Returns the name of namespace key, if node has it (or it was allowed to create it).
+     */
+    @SuppressWarnings("rawtypes")
+    private Optional<String> getOrCreateKey() throws IOException {
+        Object keys = limiter.call(Endpoint.OTHER, () -> rpc.json("key/list")).get("Keys");
+        Optional<String> keyName = (keys instanceof List ? ((List<?>) keys).stream() : Stream.empty())
+                .filter(k -> k instanceof Map && Objects.equals(namespaceKey, ((Map) k).get("Name")))
+                .map(k -> namespaceKey)
                 .findAny();
-        if (namespaceKeyCreate && keyInfoOptional.isEmpty()) {
+        if (namespaceKeyCreate && keyName.isEmpty()) {
             logger.info("Creating key for namespace '{}' with name '{}'", namespace, namespaceKey);
-            keyInfoOptional = Optional.of(ipfs.key.gen(namespaceKey, Optional.empty(), Optional.empty()));
+            limiter.call(Endpoint.OTHER, () -> rpc.json("key/gen", "arg", namespaceKey));
+            keyName = Optional.of(namespaceKey);
         }
-        return keyInfoOptional;
+        return keyName;
     }
 
     private void refreshNamespace() throws IOException {
         logger.info("Refreshing IPNS {} at {}...", namespace, nsRoot);
-        Optional<Cid> res = resolveName(namespace);
+        // subscription keeps resolved CID current: no need to resolve again
+        Optional<Cid> res = subscription != null && subscription.latest().isPresent()
+                ? subscription.latest()
+                : resolveName(namespace);
         if (res.isPresent()) {
             Cid namespaceCid = res.orElseThrow();
             try {
-                ipfs.files.rm(nsRoot, true, true);
-                ipfs.files.cp("/ipfs/" + namespaceCid, nsRoot, true);
-                ipfs.pin.add(namespaceCid);
-                ipfs.pin.verify(false, false);
+                replaceNamespaceRoot(namespaceCid);
+                if (options.warmPin()) {
+                    warmPin(namespaceCid);
+                } else {
+                    pin(namespaceCid);
+                }
+                limiter.call(Endpoint.OTHER, () -> rpc.json("pin/verify", "verbose", "false", "quiet", "false"));
+                baseCid.set(namespaceCid);
                 logger.info("Refreshed IPNS {} at {} to {}...", namespace, nsRoot, namespaceCid);
+            } catch (InterruptedIOException e) {
+                throw e;
             } catch (Exception e) {
                 // not yet published?; ignore
                 logger.info("Could not refresh IPNS {}: {}", namespaceCid, e.getMessage());
@@ -206,20 +1075,398 @@ public class IpfsNamespacePublisherImpl implements IpfsNamespacePublisher {
         }
     }
 
+    /**
+     * Runs phase spanning many node calls, recording it as Flight Recorder event.
+     */
+    private <T> T phase(String phase, IpfsConcurrencyLimiter.IOCallable<T> callable) throws IOException {
+        IpfsNamespaceEvent event = IpfsNamespaceEvent.start();
+        try {
+            T result = callable.call();
+            event.finish(namespace, phase, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(namespace, phase, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces MFS namespace root with given CID.
+     */
+    private void replaceNamespaceRoot(Cid cid) throws IOException {
+        limiter.call(Endpoint.OTHER, () -> rpc.json("files/rm", "arg", nsRoot, "recursive", "true", "force", "true"));
+        limiter.call(
+                Endpoint.OTHER, () -> rpc.json("files/cp", "arg", "/ipfs/" + cid, "arg", nsRoot, "parents", "true"));
+    }
+
+    /**
+     * Pins CID recursively. Progress is requested, so node keeps sending while it fetches blocks of huge trees, and
+     * the read timeout applies to each block, not the whole pin.
+     */
+    private Map<String, Object> pin(Cid cid) throws IOException {
+        return limiter.call(Endpoint.OTHER, () -> rpc.json("pin/add", "arg", "/ipfs/" + cid, "progress", "true"));
+    }
+
+    /**
+     * Swaps namespace content to announced CID, unless this publisher has pending writes of its own: those are
+     * published on close.
+     */
+    private void namespaceUpdated(Cid cid) {
+        rootLock.writeLock().lock();
+        try {
+            if (closed.get() || pendingContent.get()) {
+                logger.debug("IPNS {} changed to {}, not updated due to pending writes", namespace, cid);
+                return;
+            }
+            replaceNamespaceRoot(cid);
+            rootCid.set(null);
+            baseCid.set(cid);
+            index.set(null);
+            if (bundles != null) {
+                bundles.invalidate("");
+            }
+            logger.info("Updated IPNS {} at {} to {}", namespace, nsRoot, cid);
+        } catch (IOException e) {
+            logger.warn("Could not update IPNS {} to {}: {}", namespace, cid, e.getMessage());
+        } finally {
+            rootLock.writeLock().unlock();
+        }
+    }
+
+    private void warmPin(Cid cid) throws IOException {
+        new IpfsNamespaceWarmer(
+                        c -> list(c, true),
+                        c -> retrieve(c, "refs", "arg", "/ipfs/" + c, "recursive", "true", "unique", "true"),
+                        this::pin,
+                        options.warmPinThreads(),
+                        options.warmPinStateDirectory()
+                                .map(d -> d.resolve(namespace))
+                                .orElse(null))
+                .warmPin(cid);
+    }
+
     @SuppressWarnings("rawtypes")
     private void publishNamespace() throws IOException {
         logger.info("Publishing IPNS {} at {}...", namespace, nsRoot);
         Optional<Stat> stat = doStatAbs(nsRoot);
         if (stat.isPresent()) {
-            Cid cid = stat.orElseThrow().hash();
-            Optional<KeyInfo> keyInfo = getOrCreateKey();
-            if (keyInfo.isPresent()) {
-                ipfs.pin.add(cid);
-                Map publish = ipfs.name.publish(cid, Optional.of(keyInfo.orElseThrow().name));
+            Optional<String> keyName = getOrCreateKey();
+            if (keyName.isPresent()) {
+                Cid previous = baseCid.get() == null && options.provideNew()
+                        ? resolveName(namespace).orElse(null)
+                        : baseCid.get();
+                Cid merged =
+                        phase("merge", () -> mergeConcurrent(stat.orElseThrow().hash()));
+                Cid cid = options.namespaceIndex() ? phase("index", () -> writeIndex(merged)) : merged;
+                phase("pin", () -> pin(cid));
+                Map publish = phase(
+                        "publish",
+                        () -> limiter.call(
+                                Endpoint.OTHER,
+                                () -> rpc.json("name/publish", "arg", "/ipfs/" + cid, "key", keyName.orElseThrow())));
+                baseCid.set(cid);
                 logger.info("Published IPNS {} (pointing to {})", publish.get("Name"), publish.get("Value"));
+                if (options.provideNew()) {
+                    provideInBackground(previous, cid);
+                }
+                if (pinningService != null) {
+                    phase("replicate", () -> {
+                        replicate(cid);
+                        return null;
+                    });
+                }
             } else {
                 logger.info("Not published: key '{}' not available nor allowed to create it", namespaceKey);
             }
         }
     }
+
+    /**
+     * Merges changes published by someone else since namespace was refreshed into own tree, instead of overwriting
+     * them, and returns the CID to publish. Without known base (namespace not refreshed) own tree is returned as is.
+     */
+    private Cid mergeConcurrent(Cid ours) throws IOException {
+        Cid base = baseCid.get();
+        if (base == null) {
+            return ours;
+        }
+        Optional<Cid> current = resolveNameNoCache(namespace);
+        if (current.isEmpty()
+                || current.orElseThrow().equals(base)
+                || current.orElseThrow().equals(ours)) {
+            return ours;
+        }
+        Cid theirs = current.orElseThrow();
+        logger.info("IPNS {} changed to {} since refreshed to {}, merging...", namespace, theirs, base);
+        Cid merged = new IpfsNamespaceMerger(
+                        rpc, addParams(), c -> list(c, true), c -> retrieve(c, "cat", "arg", "/ipfs/" + c))
+                .merge(base, ours, theirs);
+        replaceNamespaceRoot(merged);
+        logger.info("Merged IPNS {} changes into {}", namespace, merged);
+        return merged;
+    }
+
+    /**
+     * Resolves name bypassing node cache, as merge needs the latest published record. Routing lookup ends well before
+     * call deadline, and after few records. If the latest record cannot be told, publishing fails, as it would
+     * overwrite whatever was published since refresh, unless {@link IpfsNamespacePublisherOptions#overwriteUnresolved()}
+     * allows it, when empty is returned.
+     */
+    private Optional<Cid> resolveNameNoCache(String name) throws IOException {
+        Duration timeout = options.statTimeout();
+        String reason;
+        try {
+            String path = String.valueOf(limiter.call(
+                            Endpoint.OTHER,
+                            () -> rpc.json(
+                                    timeout,
+                                    "name/resolve",
+                                    "arg",
+                                    name,
+                                    "nocache",
+                                    "true",
+                                    "dht-timeout",
+                                    timeout.multipliedBy(2).dividedBy(3).toMillis() + "ms",
+                                    "dht-record-count",
+                                    String.valueOf(RESOLVE_RECORD_COUNT)))
+                    .get("Path"));
+            return Optional.of(Cid.decode(path.startsWith("/ipfs/") ? path.substring(6) : path));
+        } catch (IpfsRpc.IpfsRpcException e) {
+            reason = e.nodeMessage();
+        } catch (SocketTimeoutException e) {
+            reason = "timed out after " + timeout.toMillis() + "ms";
+        } catch (RuntimeException e) {
+            reason = "unexpected record: " + e.getMessage();
+        }
+        if (!options.overwriteUnresolved()) {
+            throw new IOException("Could not resolve IPNS " + name
+                    + " to merge changes published since refresh, not publishing to not overwrite them: " + reason);
+        }
+        logger.warn(
+                "Could not resolve IPNS {} before publishing, changes published since refresh are overwritten: {}",
+                name,
+                reason);
+        return Optional.empty();
+    }
+
+    /**
+     * Places index of tree at namespace root, and returns the CID of resulting tree. The index present in tree (if
+     * any) is reused for unchanged subtrees. Failure to index does not prevent publishing.
+     */
+    private Cid writeIndex(Cid tree) throws IOException {
+        IOFunction<Cid, InputStream> cat = c -> retrieve(c, "cat", "arg", "/ipfs/" + c);
+        Path file = Files.createTempFile("ipfs-index-", ".tmp");
+        try {
+            IpfsNamespaceIndex previous = null;
+            try {
+                Optional<Stat> previousStat = doStatAbs(nsRoot + "/" + IpfsNamespaceIndex.FILE_NAME);
+                if (previousStat.isPresent()) {
+                    previous = mapIndex(previousStat.orElseThrow().hash());
+                }
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                logger.debug("Previous index of IPNS {} not usable: {}", namespace, e.getMessage());
+            }
+            List<IpfsNamespaceIndex.Entry> entries =
+                    IpfsNamespaceIndex.collect(tree, previous, c -> list(c, true), cat);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                IpfsNamespaceIndex.write(entries, out);
+            }
+            limiter.call(Endpoint.OTHER, () -> {
+                try (IpfsRpc.Upload upload = rpc.upload(
+                        "files/write",
+                        "arg",
+                        nsRoot + "/" + IpfsNamespaceIndex.FILE_NAME,
+                        "create",
+                        "true",
+                        "truncate",
+                        "true",
+                        "raw-leaves",
+                        "true")) {
+                    Files.copy(file, upload);
+                }
+                return null;
+            });
+            Cid result = doStatAbs(nsRoot).orElseThrow().hash();
+            logger.info("Indexed {} paths of IPNS {}", entries.size(), namespace);
+            return result;
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            logger.warn("Could not index IPNS {}: {}", namespace, e.getMessage());
+            return tree;
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Announces new blocks in background, as announcing may take longer than closing is allowed to, while failure to
+     * announce does not fail publishing (blocks are left to reprovider). See {@link #awaitProvided(Duration)}.
+     */
+    private void provideInBackground(Cid previous, Cid cid) {
+        IpfsNamespaceEvent event = IpfsNamespaceEvent.start();
+        providing.set(provideNew(previous, cid).handle((provided, e) -> {
+            Throwable failure = e instanceof CompletionException ? e.getCause() : e;
+            event.finish(namespace, "provide", failure);
+            if (failure != null) {
+                logger.warn("Could not provide new blocks of IPNS {}: {}", namespace, failure.getMessage());
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * How long closing waits for announcing of new blocks, see {@link IpfsNamespacePublisherOptions#provideWait()}.
+     */
+    Duration provideWait() {
+        return options.provideWait();
+    }
+
+    /**
+     * Waits for announcing of new blocks started by publishing to end, and returns whether it ended. Returns
+     * {@code true} at once if nothing is being announced.
+     */
+    boolean awaitProvided(Duration timeout) throws InterruptedException {
+        CompletableFuture<Void> provided = providing.get();
+        if (provided == null) {
+            return true;
+        }
+        try {
+            provided.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Announces blocks of published root that previous root (the refreshed one, or the one found published) did not
+     * have, so consumers find them without waiting for reprovider. Without previous root, all blocks are new.
+     */
+    private CompletableFuture<Integer> provideNew(Cid previous, Cid cid) {
+        return new IpfsNamespaceProvider(
+                        c -> list(c, true),
+                        this::refs,
+                        c -> limiter.call(
+                                Endpoint.OTHER,
+                                () -> rpc.json(
+                                        PROVIDE_TIMEOUT, "routing/provide", "arg", c.toString(), "recursive", "false")),
+                        Providers.EXECUTOR)
+                .provideNewAsync(previous, cid);
+    }
+
+    /**
+     * Runs announcements of all namespaces, so their count is bounded per process, not per publish.
+     */
+    private static final class Providers {
+        private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+                PROVIDE_THREADS, PROVIDE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "ipfs-provide-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        static {
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * Requests pin of published root from pinning service, so content does not live on this node only. Pin status is
+     * polled in background and reported, unless configured to wait for it, when not pinned root fails publish.
+     */
+    private void replicate(Cid cid) throws IOException {
+        boolean wait = !options.pinningServiceWait().isZero();
+        long size = doStatAbs("/ipfs/" + cid).map(Stat::cumulativeSize).orElse(0L);
+        long started = System.nanoTime();
+        IpfsPinningService.Status submitted;
+        try {
+            submitted = pinningService.add(cid, namespace, origins());
+        } catch (IOException e) {
+            if (wait) {
+                throw e;
+            }
+            logger.warn("Could not replicate IPNS {} to {}: {}", namespace, pinningService, e.getMessage());
+            return;
+        }
+        logger.info("Replicating IPNS {} root {} to {} ({})", namespace, cid, pinningService, submitted);
+        for (String delegate : submitted.delegates()) {
+            try {
+                limiter.call(Endpoint.OTHER, () -> rpc.json(options.statTimeout(), "swarm/connect", "arg", delegate));
+            } catch (IOException e) {
+                logger.debug("Could not connect pinning service delegate {}: {}", delegate, e.getMessage());
+            }
+        }
+        CompletableFuture<IpfsPinningService.Status> polling = pinningService.await(submitted);
+        CompletableFuture<IpfsPinningService.Status> done = polling.whenComplete((status, failure) -> {
+            if (polling.isCancelled()) {
+                return; // publish gave up waiting, and reported it
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (failure != null) {
+                logger.warn("Replication of IPNS {} root {} failed: {}", namespace, cid, failure.getMessage());
+            } else if (status.pinned()) {
+                logger.info(
+                        "Replicated IPNS {} root {} ({} bytes) in {} ms ({} MiB/s)",
+                        namespace,
+                        cid,
+                        size,
+                        millis,
+                        String.format("%.2f", size / 1024.0 / 1024.0 / Math.max(millis, 1) * 1000));
+            } else {
+                logger.warn("Replication of IPNS {} root {} failed: {}", namespace, cid, status);
+            }
+        });
+        if (wait) {
+            IpfsPinningService.Status status;
+            try {
+                status = done.get(options.pinningServiceWait().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                polling.cancel(false);
+                throw new IOException("IPNS " + namespace + " root " + cid + " not pinned by " + pinningService
+                        + " within " + options.pinningServiceWait());
+            } catch (ExecutionException e) {
+                throw new IOException(
+                        "IPNS " + namespace + " root " + cid + " not pinned by " + pinningService, e.getCause());
+            } catch (InterruptedException e) {
+                polling.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for replication of " + cid);
+            }
+            if (!status.pinned()) {
+                throw new IOException(
+                        "IPNS " + namespace + " root " + cid + " not pinned by " + pinningService + ": " + status);
+            }
+        }
+    }
+
+    /**
+     * The addresses of this node, that pinning service may fetch content from directly.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> origins() {
+        try {
+            Object addresses =
+                    limiter.call(Endpoint.OTHER, () -> rpc.json("id")).get("Addresses");
+            if (addresses instanceof List) {
+                return ((List<Object>) addresses)
+                        .stream()
+                                .map(String::valueOf)
+                                .filter(a -> !a.startsWith("/ip4/127.") && !a.startsWith("/ip6/::1/"))
+                                .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            logger.debug("Could not get node addresses: {}", e.getMessage());
+        }
+        return List.of();
+    }
 }
@@ -11,26 +11,73 @@ import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.ipfs.core.IpfsFactory;
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherRegistry;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.eclipse.aether.RepositorySystemSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Singleton
 @Named
 public class IpfsNamespacePublisherRegistryImpl implements IpfsNamespacePublisherRegistry {
+    /**
+     * The maximum count of publishers closed concurrently.
+     */
+    private static final int MAX_CONCURRENT_CLOSE = 4;
+
+    /**
+     * The deadline of closing all publishers.
+     */
+    private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(10);
+
+    /**
+     * How long publishers closing after deadline are waited for to stop, once aborted.
+     */
+    private static final Duration ABORT_TIMEOUT = Duration.ofMinutes(1);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final IpfsFactory ipfsFactory;
 
+    /**
+     * Clients, by multiaddr. Being singleton, registry keeps them (and the lookup cache) for process lifetime, so
+     * long-lived processes (like Maven daemon) do not start cold on every session.
+     */
+    private final ConcurrentMap<String, IpfsRpc> clients;
+
+    private final IpfsLookupCache lookupCache;
+
+    /**
+     * Subscriptions to namespace IPNS records, by multiaddr and namespace.
+     */
+    private final ConcurrentMap<String, IpfsNamespaceSubscription> subscriptions;
+
     @Inject
     public IpfsNamespacePublisherRegistryImpl(IpfsFactory ipfsFactory) {
         this.ipfsFactory = requireNonNull(ipfsFactory);
+        this.clients = new ConcurrentHashMap<>();
+        this.lookupCache = new IpfsLookupCache(IpfsLookupCache.DEFAULT_MAX_WEIGHT);
+        this.subscriptions = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -43,14 +90,23 @@ public class IpfsNamespacePublisherRegistryImpl implements IpfsNamespacePublishe
             String namespaceKey,
             boolean namespaceKeyCreate,
             boolean refreshNamespace,
-            boolean publishNamespace)
+            boolean publishNamespace,
+            IpfsNamespacePublisherOptions options)
             throws IOException {
+        SessionGate gate = sessionGate(session);
+        gate.lock.readLock().lock();
         try {
+            if (gate.closed) {
+                throw new IOException("Session is closed, namespace " + namespace + " not acquired");
+            }
             ConcurrentMap<String, IpfsNamespacePublisher> sessionPublishers = sessionPublishers(session);
             return sessionPublishers.computeIfAbsent(namespace, k -> {
                 try {
+                    IpfsRpc rpc = client(multiaddr);
+                    connectPeers(session, multiaddr, rpc, options);
                     return new IpfsNamespacePublisherImpl(
-                            ipfsFactory.create(multiaddr),
+                            rpc,
+                            sessionLimiters(session).computeIfAbsent(multiaddr, m -> new IpfsConcurrencyLimiter()),
                             namespace,
                             filesPrefix,
                             namespacePrefix,
@@ -58,6 +114,9 @@ public class IpfsNamespacePublisherRegistryImpl implements IpfsNamespacePublishe
                             namespaceKeyCreate,
                             refreshNamespace,
                             publishNamespace,
+                            options,
+                            lookupCache,
+                            options.ipnsPubsub() ? subscription(multiaddr, rpc, namespace) : null,
                             () -> {
                                 sessionPublishers.remove(namespace);
                             });
@@ -67,21 +126,93 @@ public class IpfsNamespacePublisherRegistryImpl implements IpfsNamespacePublishe
             });
         } catch (UncheckedIOException e) {
             throw e.getCause();
+        } finally {
+            gate.lock.readLock().unlock();
         }
     }
 
+    /**
+     * Publishers are closed (and namespaces published) concurrently, as publishing IPNS record may take long, but
+     * bounded, as they all may use same node. Publishers not closed by deadline are aborted, and waited for to stop,
+     * as interrupt alone does not stop blocking node calls. Acquisitions in flight (like of background prefetch) are
+     * waited for, and later ones are rejected, so no publisher of session is left unclosed.
+     */
     @Override
     public void closeAll(RepositorySystemSession session) throws IOException {
+        SessionGate gate = sessionGate(session);
+        gate.lock.writeLock().lock();
+        try {
+            gate.closed = true;
+        } finally {
+            gate.lock.writeLock().unlock();
+        }
         ArrayList<IOException> ioExceptions = new ArrayList<>();
         // we close all; but the map will be modified by onClose callback, so copy first
-        for (IpfsNamespacePublisher publisher :
-                List.copyOf(sessionPublishers(session).values())) {
+        List<IpfsNamespacePublisher> publishers =
+                List.copyOf(sessionPublishers(session).values());
+        if (publishers.isEmpty()) {
+            return;
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(publishers.size(), MAX_CONCURRENT_CLOSE), r -> {
+                    Thread thread = new Thread(r, "ipfs-close-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        List<String> timedOut = new ArrayList<>();
+        try {
+            List<Future<?>> closing = new ArrayList<>();
+            for (IpfsNamespacePublisher publisher : publishers) {
+                closing.add(executor.submit(() -> {
+                    publisher.close();
+                    return null;
+                }));
+            }
+            long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+            for (int i = 0; i < publishers.size(); i++) {
+                String namespace = publishers.get(i).namespace();
+                try {
+                    closing.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    ioExceptions.add(
+                            e.getCause() instanceof IOException
+                                    ? (IOException) e.getCause()
+                                    : new IOException("Closing namespace " + namespace + " failed", e.getCause()));
+                } catch (TimeoutException e) {
+                    abort(publishers.get(i));
+                    closing.get(i).cancel(true);
+                    timedOut.add(namespace);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    publishers.forEach(this::abort);
+                    closing.forEach(f -> f.cancel(true));
+                    ioExceptions.add(new InterruptedIOException("Interrupted while closing namespaces"));
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!timedOut.isEmpty()) {
+            boolean stopped = false;
             try {
-                publisher.close();
-            } catch (IOException e) {
-                ioExceptions.add(e);
+                stopped = executor.awaitTermination(ABORT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (String namespace : timedOut) {
+                ioExceptions.add(new IOException("Closing namespace " + namespace + " timed out after "
+                        + CLOSE_TIMEOUT.toSeconds() + " seconds"
+                        + (stopped
+                                ? " and was aborted; namespace may not be published"
+                                : " and could not be aborted; namespace may still be published")));
             }
         }
+        if (!Thread.currentThread().isInterrupted()) {
+            awaitProvided(publishers);
+        }
+        logger.debug("IPFS lookup cache: {}", lookupCache);
         if (!ioExceptions.isEmpty()) {
             IOException ex = new IOException("One or more publishing failed");
             ioExceptions.forEach(ex::addSuppressed);
@@ -89,9 +220,135 @@ public class IpfsNamespacePublisherRegistryImpl implements IpfsNamespacePublishe
         }
     }
 
+    /**
+     * Waits for announcing of new blocks of publishers, each at most as long as its options allow (waits overlap, as
+     * all are counted from now), aborting those not done by then.
+     */
+    private void awaitProvided(List<IpfsNamespacePublisher> publishers) {
+        long started = System.nanoTime();
+        for (IpfsNamespacePublisher publisher : publishers) {
+            if (publisher instanceof IpfsNamespacePublisherImpl) {
+                IpfsNamespacePublisherImpl impl = (IpfsNamespacePublisherImpl) publisher;
+                Duration wait = impl.provideWait();
+                try {
+                    if (!impl.awaitProvided(
+                            Duration.ofNanos(Math.max(0, started + wait.toNanos() - System.nanoTime())))) {
+                        logger.info(
+                                "Providing new blocks of IPFS namespace {} not done in {} ms, rest left to reprovider",
+                                publisher.namespace(),
+                                wait.toMillis());
+                        abort(publisher);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    publishers.forEach(this::abort);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void abort(IpfsNamespacePublisher publisher) {
+        if (publisher instanceof IpfsNamespacePublisherImpl) {
+            ((IpfsNamespacePublisherImpl) publisher).abort();
+        }
+    }
+
+    /**
+     * Returns started subscription to namespace, shared by sessions, or {@code null} if it could not be started (it
+     * is attempted again in next session).
+     */
+    private IpfsNamespaceSubscription subscription(String multiaddr, IpfsRpc rpc, String namespace) {
+        String key = multiaddr + " " + namespace;
+        IpfsNamespaceSubscription subscription = subscriptions.get(key);
+        if (subscription == null) {
+            IpfsNamespaceSubscription created = new IpfsNamespaceSubscription(rpc, namespace);
+            try {
+                created.start();
+            } catch (IOException e) {
+                logger.warn("Could not subscribe to IPNS {} on {}: {}", namespace, multiaddr, e.getMessage());
+                created.close();
+                return null;
+            }
+            subscription = subscriptions.putIfAbsent(key, created);
+            if (subscription == null) {
+                subscription = created;
+            } else {
+                created.close();
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Returns client of node at multiaddr, see {@link IpfsFactoryImpl#createRpc(IpfsFactory, String)}.
+     */
+    private IpfsRpc client(String multiaddr) throws IOException {
+        IpfsRpc rpc = clients.get(multiaddr);
+        if (rpc == null) {
+            rpc = IpfsFactoryImpl.createRpc(ipfsFactory, multiaddr);
+            IpfsRpc existing = clients.putIfAbsent(multiaddr, rpc);
+            if (existing != null) {
+                rpc = existing;
+            }
+        }
+        return rpc;
+    }
+
+    /**
+     * Makes node connect to known provider peers, once per session and node. Peers are added to node peering set as
+     * well, so node keeps the connections (and reconnects) for its lifetime. Failures are not fatal, as content may be
+     * still found via DHT.
+     */
+    private void connectPeers(
+            RepositorySystemSession session, String multiaddr, IpfsRpc rpc, IpfsNamespacePublisherOptions options) {
+        if (options.peers().isEmpty()) {
+            return;
+        }
+        for (String peer : options.peers()) {
+            if (sessionPeers(session).add(multiaddr + " " + peer)) {
+                try {
+                    rpc.json(options.statTimeout(), "swarm/peering/add", "arg", peer);
+                    rpc.json(options.statTimeout(), "swarm/connect", "arg", peer);
+                    logger.debug("Node {} connected to peer {}", multiaddr, peer);
+                } catch (IOException e) {
+                    logger.warn("Node {} could not connect to peer {}: {}", multiaddr, peer, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> sessionPeers(RepositorySystemSession session) {
+        return (Set<String>)
+                session.getData().computeIfAbsent(getClass().getName() + ".peers", ConcurrentHashMap::newKeySet);
+    }
+
+    /**
+     * Limiters are shared by all publishers using same node (multiaddr).
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<String, IpfsConcurrencyLimiter> sessionLimiters(RepositorySystemSession session) {
+        return (ConcurrentMap<String, IpfsConcurrencyLimiter>)
+                session.getData().computeIfAbsent(IpfsConcurrencyLimiter.class.getName(), ConcurrentHashMap::new);
+    }
+
     @SuppressWarnings("unchecked")
     private ConcurrentMap<String, IpfsNamespacePublisher> sessionPublishers(RepositorySystemSession session) {
         return (ConcurrentMap<String, IpfsNamespacePublisher>) session.getData()
                 .computeIfAbsent(IpfsNamespacePublisherRegistry.class.getName(), ConcurrentHashMap::new);
     }
+
+    private SessionGate sessionGate(RepositorySystemSession session) {
+        return (SessionGate) session.getData().computeIfAbsent(SessionGate.class.getName(), SessionGate::new);
+    }
+
+    /**
+     * Orders acquisitions and closing of session: acquisitions hold read lock, closing takes write lock to mark session
+     * closed.
+     */
+    private static final class SessionGate {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private boolean closed;
+    }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import io.ipfs.cid.Cid;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Subscription to IPNS over PubSub topic of namespace, that keeps the namespace CID current: once resolved, it is
+ * resolved again only when a new record is announced. Messages are used only as signal: the CID is always resolved by
+ * node (that validates records), as anyone can send messages to the topic. Needs node with PubSub enabled, and
+ * publisher node with IPNS over PubSub enabled.
+ */
+public class IpfsNamespaceSubscription implements Closeable {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final String BASE36 = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final String BASE58 = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IpfsRpc rpc;
+    private final String namespace;
+    private final AtomicReference<Optional<Cid>> latest;
+    private final List<Consumer<Cid>> listeners;
+    private final AtomicReference<InputStream> messages;
+    private volatile boolean closed;
+    private Thread thread;
+
+    public IpfsNamespaceSubscription(IpfsRpc rpc, String namespace) {
+        this.rpc = requireNonNull(rpc);
+        this.namespace = requireNonNull(namespace);
+        this.latest = new AtomicReference<>(Optional.empty());
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.messages = new AtomicReference<>();
+    }
+
+    /**
+     * Resolves namespace and subscribes to its topic, listening in background.
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        String topic = topic(ipnsName());
+        resolve();
+        thread = new Thread(() -> listen(topic), "ipfs-pubsub-" + namespace);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The namespace CID, as of last announced record, if resolvable.
+     */
+    public Optional<Cid> latest() {
+        return latest.get();
+    }
+
+    /**
+     * Adds listener notified (on subscription thread) with new CID, when namespace changes.
+     */
+    public void addListener(Consumer<Cid> listener) {
+        listeners.add(requireNonNull(listener));
+    }
+
+    public void removeListener(Consumer<Cid> listener) {
+        listeners.remove(listener);
+    }
+
+    private void listen(String topic) {
+        String encodedTopic =
+                "u" + Base64.getUrlEncoder().withoutPadding().encodeToString(topic.getBytes(StandardCharsets.UTF_8));
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (!closed) {
+            try (BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(subscribe(encodedTopic), StandardCharsets.UTF_8))) {
+                backoff = MIN_BACKOFF_MILLIS;
+                // a record may have been missed while not subscribed
+                resolve();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        resolve();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    logger.debug("IPNS subscription of {} failed, retrying: {}", namespace, e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private InputStream subscribe(String encodedTopic) throws IOException {
+        InputStream stream = rpc.stream(CONNECT_TIMEOUT, Duration.ZERO, "pubsub/sub", "arg", encodedTopic);
+        messages.set(stream);
+        if (closed) {
+            stream.close();
+        }
+        return stream;
+    }
+
+    private void resolve() throws IOException {
+        Object path = rpc.json(CONNECT_TIMEOUT, "name/resolve", "arg", namespace, "nocache", "true")
+                .get("Path");
+        Optional<Cid> resolved = Optional.empty();
+        if (path != null && String.valueOf(path).startsWith("/ipfs/")) {
+            resolved = Optional.of(Cid.decode(String.valueOf(path).substring(6)));
+        }
+        Optional<Cid> previous = latest.getAndSet(resolved);
+        if (resolved.isPresent() && !Objects.equals(previous, resolved)) {
+            logger.debug("IPNS {} changed to {}", namespace, resolved.orElseThrow());
+            if (previous.isPresent()) {
+                for (Consumer<Cid> listener : listeners) {
+                    listener.accept(resolved.orElseThrow());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns IPNS name (key) of namespace, that may be DNSLink domain.
+     */
+    private String ipnsName() throws IOException {
+        Object path = rpc.json(CONNECT_TIMEOUT, "resolve", "arg", "/ipns/" + namespace, "recursive", "false")
+                .get("Path");
+        if (path != null && String.valueOf(path).startsWith("/ipns/")) {
+            return String.valueOf(path).substring(6);
+        }
+        return namespace;
+    }
+
+    /**
+     * Returns IPNS over PubSub topic of given IPNS name: {@code /record/} followed by unpadded base64url encoded
+     * routing key, that is {@code /ipns/} followed by binary peer ID.
+     */
+    static String topic(String ipnsName) throws IOException {
+        byte[] peerId;
+        if (ipnsName.startsWith("k")) {
+            // CIDv1 in base36: version, libp2p-key codec, then the multihash, that is the peer ID
+            byte[] cid = decode(ipnsName.substring(1), BASE36);
+            if (cid.length < 3 || cid[0] != 0x01 || cid[1] != 0x72) {
+                throw new IOException("Not an IPNS name: " + ipnsName);
+            }
+            peerId = Arrays.copyOfRange(cid, 2, cid.length);
+        } else if (ipnsName.startsWith("Qm") || ipnsName.startsWith("12D3Koo")) {
+            peerId = decode(ipnsName, BASE58);
+        } else {
+            throw new IOException("Unsupported IPNS name: " + ipnsName);
+        }
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        key.writeBytes("/ipns/".getBytes(StandardCharsets.UTF_8));
+        key.writeBytes(peerId);
+        return "/record/" + Base64.getUrlEncoder().withoutPadding().encodeToString(key.toByteArray());
+    }
+
+    /**
+     * Decodes big number encoding (like base36 and base58), where leading zero digits stand for zero bytes.
+     */
+    private static byte[] decode(String encoded, String alphabet) throws IOException {
+        BigInteger value = BigInteger.ZERO;
+        BigInteger base = BigInteger.valueOf(alphabet.length());
+        int zeros = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            int digit = alphabet.indexOf(encoded.charAt(i));
+            if (digit < 0) {
+                throw new IOException("Invalid character in " + encoded);
+            }
+            if (digit == 0 && value.signum() == 0) {
+                zeros++;
+            }
+            value = value.multiply(base).add(BigInteger.valueOf(digit));
+        }
+        byte[] bytes = value.signum() == 0 ? new byte[0] : value.toByteArray();
+        // drop sign byte
+        int offset = bytes.length > 0 && bytes[0] == 0 ? 1 : 0;
+        byte[] result = new byte[zeros + bytes.length - offset];
+        System.arraycopy(bytes, offset, result, zeros, bytes.length - offset);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        InputStream stream = messages.get();
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        synchronized (this) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches all blocks of a namespace DAG into node blockstore with parallel workers, and pins it. Directories are
+ * listed, and every file is fetched by its own worker. Completed directories are recorded (by CID) into state file,
+ * hence an interrupted warm-up resumes where it left off; as CIDs are immutable, recorded directories remain valid
+ * for any root sharing them.
+ */
+public class IpfsNamespaceWarmer {
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list;
+    private final IOFunction<Cid, InputStream> refs;
+    private final IOFunction<Cid, ?> pin;
+    private final int threads;
+    private final Path stateFile;
+
+    /**
+     * @param list lists directory by CID.
+     * @param refs recursively lists refs of CID, that makes node fetch all blocks of it.
+     * @param pin recursively pins CID.
+     * @param threads the count of parallel workers.
+     * @param stateFile the file recording completed directories, or {@code null}.
+     */
+    public IpfsNamespaceWarmer(
+            IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list,
+            IOFunction<Cid, InputStream> refs,
+            IOFunction<Cid, ?> pin,
+            int threads,
+            Path stateFile) {
+        this.list = requireNonNull(list);
+        this.refs = requireNonNull(refs);
+        this.pin = requireNonNull(pin);
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Warms up and pins given root directory, blocking until done. Interrupting the calling thread stops workers.
+     */
+    public void warmPin(Cid root) throws IOException {
+        Set<String> completed = loadState();
+        if (!completed.contains(root.toString())) {
+            new Run(completed).run(root);
+        }
+        pin.apply(root);
+        logger.info("Pinned {}", root);
+    }
+
+    private Set<String> loadState() throws IOException {
+        Set<String> completed = new HashSet<>();
+        if (stateFile != null && Files.isRegularFile(stateFile)) {
+            for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completed.add(line.trim());
+                }
+            }
+        }
+        return completed;
+    }
+
+    private final class Run {
+        private final Set<String> completed;
+        private final ExecutorService executor;
+        private final CountDownLatch finished;
+        private final AtomicReference<Throwable> failure;
+        private final AtomicLong files;
+        private final AtomicLong bytes;
+        private final AtomicLong directories;
+        private final AtomicLong skipped;
+        private BufferedWriter state;
+
+        private Run(Set<String> completed) {
+            this.completed = completed;
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "ipfs-warm-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.finished = new CountDownLatch(1);
+            this.failure = new AtomicReference<>();
+            this.files = new AtomicLong();
+            this.bytes = new AtomicLong();
+            this.directories = new AtomicLong();
+            this.skipped = new AtomicLong();
+        }
+
+        private void run(Cid root) throws IOException {
+            if (stateFile != null) {
+                Files.createDirectories(stateFile.toAbsolutePath().getParent());
+                state = Files.newBufferedWriter(
+                        stateFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            long started = System.nanoTime();
+            logger.info("Warming up {} with {} workers{}", root, threads, completed.isEmpty() ? "" : " (resuming)");
+            try {
+                submit(() -> list(new Dir(root, null)));
+                while (!finished.await(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                    progress(root, started);
+                }
+                Throwable t = failure.get();
+                if (t != null) {
+                    throw t instanceof IOException ? (IOException) t : new IOException("Warm-up failed", t);
+                }
+                progress(root, started);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Warm-up of " + root + " interrupted; it will resume from here");
+            } finally {
+                executor.shutdownNow();
+                if (state != null) {
+                    state.close();
+                }
+            }
+        }
+
+        private void progress(Cid root, long started) {
+            double seconds = Math.max(1, System.nanoTime() - started) / 1_000_000_000.0;
+            logger.info(
+                    "Warming up {}: {} files ({} MB) in {} directories done, {} directories skipped; {} MB/s",
+                    root,
+                    files.get(),
+                    bytes.get() / 1024 / 1024,
+                    directories.get(),
+                    skipped.get(),
+                    String.format("%.2f", bytes.get() / 1024.0 / 1024.0 / seconds));
+        }
+
+        private void submit(IpfsConcurrencyLimiter.IOCallable<?> task) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.call();
+                    } catch (Throwable t) {
+                        if (failure.compareAndSet(null, t)) {
+                            finished.countDown();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // stopping
+            }
+        }
+
+        private Void list(Dir dir) throws IOException {
+            try (Stream<IpfsNamespacePublisher.Entry> entries = list.apply(dir.cid)) {
+                entries.forEach(entry -> {
+                    if (completed.contains(entry.hash().toString())) {
+                        skipped.incrementAndGet();
+                    } else if (entry.file()) {
+                        dir.pending.incrementAndGet();
+                        submit(() -> file(dir, entry));
+                    } else {
+                        dir.pending.incrementAndGet();
+                        submit(() -> list(new Dir(entry.hash(), dir)));
+                    }
+                });
+            }
+            dir.done();
+            return null;
+        }
+
+        private Void file(Dir dir, IpfsNamespacePublisher.Entry entry) throws IOException {
+            try (InputStream in = refs.apply(entry.hash())) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            files.incrementAndGet();
+            bytes.addAndGet(entry.size());
+            dir.done();
+            return null;
+        }
+
+        private synchronized void record(Cid cid) throws IOException {
+            if (state != null) {
+                state.write(cid.toString());
+                state.newLine();
+                state.flush();
+            }
+        }
+
+        /**
+         * Directory being warmed up: it is complete once it is listed and all its entries are complete.
+         */
+        private final class Dir {
+            private final Cid cid;
+            private final Dir parent;
+            private final AtomicInteger pending;
+
+            private Dir(Cid cid, Dir parent) {
+                this.cid = cid;
+                this.parent = parent;
+                this.pending = new AtomicInteger(1);
+            }
+
+            private void done() throws IOException {
+                if (pending.decrementAndGet() == 0) {
+                    directories.incrementAndGet();
+                    record(cid);
+                    if (parent != null) {
+                        parent.done();
+                    } else {
+                        finished.countDown();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache of not found lookups, keyed by root CID and path. As CID identifies content, a path missing under given root
+ * stays missing for the whole lifetime of that root, hence these entries never expire, and may be persisted (one file
+ * per root CID). Volatile paths (metadata and snapshots) expire after given TTL though, as the root itself may be
+ * replaced by another publisher, and those are paths that are expected to appear.
+ * <p>
+ * Every publish replaces the root, so files of old roots are of no use: file of a root is touched whenever it is
+ * loaded or appended to, and files not touched within {@link #RETENTION} are deleted when cache is created.
+ */
+public class IpfsNegativeCache {
+    private static final long FOREVER = Long.MAX_VALUE;
+
+    /**
+     * How long is file of a root kept since it was last used.
+     */
+    static final Duration RETENTION = Duration.ofDays(30);
+
+    private final long volatileTtlNanos;
+    private final Path directory;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, Root> roots;
+
+    /**
+     * @param volatileTtl the TTL of volatile path entries, if zero, those are not cached at all.
+     * @param directory the directory to persist entries to, or {@code null}.
+     */
+    public IpfsNegativeCache(Duration volatileTtl, Path directory) {
+        this(volatileTtl, directory, System::nanoTime);
+    }
+
+    IpfsNegativeCache(Duration volatileTtl, Path directory, LongSupplier nanoTime) {
+        this.volatileTtlNanos = volatileTtl.toNanos();
+        this.directory = directory;
+        this.nanoTime = requireNonNull(nanoTime);
+        this.roots = new ConcurrentHashMap<>();
+        if (directory != null) {
+            prune();
+        }
+    }
+
+    /**
+     * Returns {@code true} if path was recorded as missing under given root (and entry did not expire).
+     */
+    public boolean isMissing(String rootCid, String path) {
+        Root root = root(rootCid);
+        Long expiry = root.expiries.get(path);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry != FOREVER && nanoTime.getAsLong() - expiry > 0) {
+            root.expiries.remove(path, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records path as missing under given root.
+     */
+    public void missing(String rootCid, String path) {
+        Root root = root(rootCid);
+        if (isVolatile(path)) {
+            if (volatileTtlNanos > 0) {
+                root.expiries.put(path, nanoTime.getAsLong() + volatileTtlNanos);
+            }
+        } else if (root.expiries.put(path, FOREVER) == null && directory != null) {
+            root.unsaved.add(path);
+        }
+    }
+
+    /**
+     * Appends the not yet persisted entries to files of their roots, if persistence is enabled.
+     */
+    public void save() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        for (Root root : roots.values()) {
+            List<String> lines = new ArrayList<>();
+            for (String path : root.unsaved) {
+                if (root.unsaved.remove(path)) {
+                    lines.add(path);
+                }
+            }
+            if (!lines.isEmpty()) {
+                Files.createDirectories(directory);
+                Files.write(
+                        directory.resolve(root.cid),
+                        lines,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    /**
+     * Metadata and snapshot paths are the ones that appear under a namespace that is being published to.
+     */
+    static boolean isVolatile(String path) {
+        return path.contains("maven-metadata") || path.contains("-SNAPSHOT");
+    }
+
+    /**
+     * Deletes files of roots not used within retention. Best effort, as is loading them.
+     */
+    private void prune() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - RETENTION.toMillis();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    if (Files.isRegularFile(file)
+                            && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    // best effort: file is pruned next time
+                }
+            });
+        } catch (IOException e) {
+            // best effort: files are pruned next time
+        }
+    }
+
+    private Root root(String rootCid) {
+        return roots.computeIfAbsent(requireNonNull(rootCid), this::load);
+    }
+
+    private Root load(String rootCid) {
+        Root root = new Root(rootCid);
+        if (directory != null) {
+            Path file = directory.resolve(rootCid);
+            if (Files.isRegularFile(file)) {
+                try {
+                    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                        if (!line.isBlank()) {
+                            root.expiries.put(line, FOREVER);
+                        }
+                    }
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException e) {
+                    // best effort: entries are just looked up again
+                }
+            }
+        }
+        return root;
+    }
+
+    private static final class Root {
+        private final String cid;
+        private final ConcurrentMap<String, Long> expiries;
+        private final Set<String> unsaved;
+
+        private Root(String cid) {
+            this.cid = cid;
+            this.expiries = new ConcurrentHashMap<>();
+            this.unsaved = ConcurrentHashMap.newKeySet();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import io.ipfs.api.JSONParser;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal client of <a href="https://ipfs.github.io/pinning-services-api-spec/">IPFS Pinning Service API</a>: pins are
+ * requested, and their status polled with exponential backoff until pinned or failed.
+ */
+public class IpfsPinningService {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * How long status is polled at most, reporting replication that is not waited for.
+     */
+    private static final Duration MAX_POLLING = Duration.ofHours(1);
+
+    /**
+     * Pin status, as reported by service.
+     */
+    public static final class Status {
+        private final String requestId;
+        private final String status;
+        private final List<String> delegates;
+
+        private Status(String requestId, String status, List<String> delegates) {
+            this.requestId = requestId;
+            this.status = status;
+            this.delegates = delegates;
+        }
+
+        public String requestId() {
+            return requestId;
+        }
+
+        /**
+         * One of {@code queued}, {@code pinning}, {@code pinned} or {@code failed}.
+         */
+        public String status() {
+            return status;
+        }
+
+        /**
+         * Multiaddresses of service nodes, that node should connect to, to provide content to them.
+         */
+        public List<String> delegates() {
+            return delegates;
+        }
+
+        public boolean pinned() {
+            return "pinned".equals(status);
+        }
+
+        public boolean done() {
+            return pinned() || "failed".equals(status);
+        }
+
+        @Override
+        public String toString() {
+            return requestId + ": " + status;
+        }
+    }
+
+    private final String endpoint;
+    private final String token;
+    private final Duration minBackoff;
+
+    /**
+     * @param endpoint the service API endpoint, like {@code https://api.pinata.cloud/psa}.
+     * @param token the access token, or {@code null}.
+     */
+    public IpfsPinningService(String endpoint, String token) {
+        this(endpoint, token, Duration.ofSeconds(1));
+    }
+
+    IpfsPinningService(String endpoint, String token, Duration minBackoff) {
+        this.endpoint =
+                requireNonNull(endpoint).endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.token = token;
+        this.minBackoff = requireNonNull(minBackoff);
+    }
+
+    /**
+     * Requests pin of CID.
+     *
+     * @param cid the CID to pin.
+     * @param name the pin name.
+     * @param origins the multiaddresses of nodes providing the content, may be empty.
+     */
+    public Status add(Cid cid, String name, List<String> origins) throws IOException {
+        String body = "{\"cid\":" + quote(cid.toString()) + ",\"name\":" + quote(name) + ",\"origins\":["
+                + origins.stream().map(IpfsPinningService::quote).collect(Collectors.joining(",")) + "]}";
+        return status(request("POST", "/pins", body));
+    }
+
+    /**
+     * Gets the current status of pin request.
+     */
+    public Status status(String requestId) throws IOException {
+        return status(request("GET", "/pins/" + URLEncoder.encode(requestId, StandardCharsets.UTF_8), null));
+    }
+
+    /**
+     * Polls status of pin request until it is done, backing off exponentially. Returned future completes with last
+     * status, or exceptionally if status could not be got.
+     */
+    public CompletableFuture<Status> await(Status submitted) {
+        CompletableFuture<Status> result = new CompletableFuture<>();
+        if (submitted.done()) {
+            result.complete(submitted);
+        } else {
+            poll(submitted.requestId(), result, minBackoff, System.nanoTime() + MAX_POLLING.toNanos());
+        }
+        return result;
+    }
+
+    private void poll(String requestId, CompletableFuture<Status> result, Duration backoff, long deadline) {
+        Poller.EXECUTOR.schedule(
+                () -> {
+                    if (result.isDone()) {
+                        return; // cancelled
+                    }
+                    try {
+                        Status status = status(requestId);
+                        if (status.done()) {
+                            result.complete(status);
+                        } else if (System.nanoTime() - deadline > 0) {
+                            result.completeExceptionally(
+                                    new IOException("Pin " + status + " not done within " + MAX_POLLING));
+                        } else {
+                            Duration next = backoff.multipliedBy(2);
+                            poll(requestId, result, next.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : next, deadline);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                },
+                backoff.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Poller {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ipfs-pinning-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Status status(Map<String, Object> json) throws IOException {
+        Object requestId = json.get("requestid");
+        Object status = json.get("status");
+        if (requestId == null || status == null) {
+            throw new IOException("Pinning service responded with invalid pin status: " + json);
+        }
+        Object delegates = json.get("delegates");
+        return new Status(
+                String.valueOf(requestId),
+                String.valueOf(status),
+                delegates instanceof List
+                        ? ((List<Object>) delegates)
+                                .stream().map(String::valueOf).collect(Collectors.toList())
+                        : List.of());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Map<String, Object> request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", "application/json");
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int code = connection.getResponseCode();
+        InputStream stream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        String response = "";
+        if (stream != null) {
+            try (stream) {
+                response = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        Object parsed;
+        try {
+            parsed = JSONParser.parse(response);
+        } catch (RuntimeException e) {
+            parsed = null;
+        }
+        if (code >= 400) {
+            String message = "HTTP " + code;
+            if (parsed instanceof Map && ((Map) parsed).get("error") instanceof Map) {
+                Map error = (Map) ((Map) parsed).get("error");
+                message +=
+                        " " + error.get("reason") + (error.get("details") != null ? ": " + error.get("details") : "");
+            }
+            throw new IOException("Pinning service failed " + method + " " + path + ": " + message);
+        }
+        if (!(parsed instanceof Map)) {
+            throw new IOException("Pinning service responded with invalid JSON to " + method + " " + path);
+        }
+        return (Map<String, Object>) parsed;
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "pinning service " + endpoint;
+    }
+}
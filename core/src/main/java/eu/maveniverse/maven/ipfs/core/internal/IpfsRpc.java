@@ -0,0 +1,584 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import io.ipfs.api.IPFS;
+import io.ipfs.api.JSONParser;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Minimal client for IPFS node RPC API, covering the calls that {@link IPFS} client does not offer in needed form,
+ * like streaming uploads, and nodes that {@link IPFS} client cannot connect to, like those with API on Unix domain
+ * socket.
+ */
+public class IpfsRpc {
+    /**
+     * Size of chunks request bodies are streamed in; memory use of upload does not depend on content size.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * Extra time client waits over node side deadline, to receive the node error instead of timing out itself.
+     */
+    private static final int DEADLINE_GRACE_MILLIS = 5_000;
+
+    private static final String UNIX_PREFIX = "/unix";
+
+    /**
+     * Response header of streaming commands that know content length, like {@code cat}. Node reports failure while
+     * streaming in a trailer, that is not readable here, so response ending short of this length is the only sign.
+     */
+    private static final String LENGTH_HEADER = "X-Content-Length";
+
+    private final String baseUrl;
+    /**
+     * Kept alive connections to Unix domain socket, or {@code null}, if node API is not on one.
+     */
+    private final IpfsUnixSocketConnection.Pool sockets;
+
+    /**
+     * Connections of calls in flight, if client is abortable, see {@link #abortable()}.
+     */
+    private final Set<HttpURLConnection> inFlight;
+
+    private final AtomicBoolean aborted;
+
+    public IpfsRpc(IPFS ipfs) {
+        this(requireNonNull(ipfs).protocol + "://" + ipfs.host + ":" + ipfs.port + "/api/v0/");
+    }
+
+    /**
+     * Client of node with API listening on Unix domain socket (see {@link #unixSocket(String)}), that spares loopback
+     * TCP overhead of chatty calls, like stat. Needs Java 16 or newer.
+     *
+     * @param socket the socket path.
+     */
+    public IpfsRpc(Path socket) throws IOException {
+        if (!IpfsUnixSocketConnection.supported()) {
+            throw new IOException("Node API on Unix domain socket " + socket + " needs Java 16 or newer");
+        }
+        this.baseUrl = "http://localhost/api/v0/";
+        this.sockets = new IpfsUnixSocketConnection.Pool(socket);
+        this.inFlight = null;
+        this.aborted = new AtomicBoolean(false);
+    }
+
+    IpfsRpc(String baseUrl) {
+        this.baseUrl = requireNonNull(baseUrl);
+        this.sockets = null;
+        this.inFlight = null;
+        this.aborted = new AtomicBoolean(false);
+    }
+
+    private IpfsRpc(String baseUrl, IpfsUnixSocketConnection.Pool sockets) {
+        this.baseUrl = baseUrl;
+        this.sockets = sockets;
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.aborted = new AtomicBoolean(false);
+    }
+
+    /**
+     * Returns client of same node, that can be aborted on its own, see {@link #abort()}.
+     */
+    public IpfsRpc abortable() {
+        return new IpfsRpc(baseUrl, sockets);
+    }
+
+    /**
+     * Aborts this client: calls in flight are cancelled by dropping their connections (so node cancels the commands),
+     * and further calls fail with {@link InterruptedIOException}. Node may still complete a command that it received
+     * in whole already.
+     *
+     * @throws IllegalStateException if client is not abortable.
+     */
+    public void abort() {
+        if (inFlight == null) {
+            throw new IllegalStateException("Client is not abortable");
+        }
+        aborted.set(true);
+        for (HttpURLConnection connection : List.copyOf(inFlight)) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Returns the socket path of Unix domain socket multiaddress, like {@code /unix/run/ipfs/api.sock}, or empty, if
+     * multiaddress is not one.
+     */
+    public static Optional<Path> unixSocket(String multiaddr) {
+        if (multiaddr.startsWith(UNIX_PREFIX + "/") && multiaddr.length() > UNIX_PREFIX.length() + 1) {
+            return Optional.of(Paths.get(multiaddr.substring(UNIX_PREFIX.length())));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Content upload in progress, see {@link #upload(String, String...)}.
+     */
+    public abstract static class Upload extends FilterOutputStream {
+        private Upload(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        /**
+         * Finishes the upload and returns the last JSON object node responded with.
+         */
+        public abstract Map<String, Object> finish() throws IOException;
+
+        /**
+         * Aborts the upload, dropping connection.
+         */
+        public abstract void abort();
+    }
+
+    /**
+     * Starts a multipart upload of one file for given command (like {@code add}). Bytes written are sent to node in
+     * chunks of {@link #CHUNK_SIZE} bytes.
+     *
+     * @param command the RPC command.
+     * @param params the command parameters as key-value pairs.
+     */
+    public Upload upload(String command, String... params) throws IOException {
+        return upload(command, "", null, params);
+    }
+
+    /**
+     * Starts a multipart upload of given local file for given command (like {@code add}), passing its absolute path
+     * to node, as needed by filestore. The file content still has to be written to returned upload.
+     *
+     * @param command the RPC command.
+     * @param file the local file being uploaded.
+     * @param params the command parameters as key-value pairs.
+     */
+    public Upload uploadFile(String command, Path file, String... params) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        return upload(
+                command,
+                URLEncoder.encode(String.valueOf(absolute.getFileName()), StandardCharsets.UTF_8),
+                absolute.toString(),
+                params);
+    }
+
+    private Upload upload(String command, String fileName, String absPath, String... params) throws IOException {
+        // event spans the whole upload, from start to finish
+        IpfsRpcEvent event = IpfsRpcEvent.start();
+        String boundary = UUID.randomUUID().toString();
+        HttpURLConnection connection;
+        try {
+            connection = open(command, params);
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            throw e;
+        }
+        OutputStream body;
+        try {
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            body = connection.getOutputStream();
+            body.write(("--" + boundary + "\r\n"
+                            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                            + (absPath != null ? "Abspath: " + absPath + "\r\n" : "")
+                            + "Content-Type: application/octet-stream\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            completed(connection);
+            throw e;
+        }
+        return new Upload(body) {
+            private boolean done;
+
+            @Override
+            public Map<String, Object> finish() throws IOException {
+                if (done) {
+                    throw new IllegalStateException("Upload already finished");
+                }
+                done = true;
+                try {
+                    out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+                    out.close();
+                    Map<String, Object> result = lastJsonObject(command, connection);
+                    event.finish(command, params, null);
+                    return result;
+                } catch (IOException | RuntimeException e) {
+                    event.finish(command, params, e);
+                    throw e;
+                } finally {
+                    completed(connection);
+                }
+            }
+
+            @Override
+            public void abort() {
+                if (!done) {
+                    event.finish(command, params, "aborted", null);
+                }
+                done = true;
+                connection.disconnect();
+                completed(connection);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!done) {
+                    finish();
+                }
+            }
+        };
+    }
+
+    /**
+     * Invokes command and returns the last JSON object node responded with (streaming commands respond with
+     * sequence of objects).
+     *
+     * @param command the RPC command.
+     * @param params the command parameters as key-value pairs.
+     */
+    public Map<String, Object> json(String command, String... params) throws IOException {
+        IpfsRpcEvent event = IpfsRpcEvent.start();
+        HttpURLConnection connection = null;
+        try {
+            connection = open(command, params);
+            Map<String, Object> result = lastJsonObject(command, connection);
+            event.finish(command, params, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            throw e;
+        } finally {
+            completed(connection);
+        }
+    }
+
+    /**
+     * Invokes command like {@link #json(String, String...)} does, but bounded by deadline. The deadline is passed to
+     * node (the {@code timeout} parameter) so node cancels the command, while client gives up if node does not
+     * respond at all shortly after deadline, throwing {@link SocketTimeoutException}.
+     *
+     * @param timeout the deadline of command.
+     * @param command the RPC command.
+     * @param params the command parameters as key-value pairs.
+     */
+    public Map<String, Object> json(Duration timeout, String command, String... params) throws IOException {
+        IpfsRpcEvent event = IpfsRpcEvent.start();
+        String[] timeoutParams = Arrays.copyOf(params, params.length + 2);
+        timeoutParams[params.length] = "timeout";
+        timeoutParams[params.length + 1] = timeout.toMillis() + "ms";
+        HttpURLConnection connection = null;
+        try {
+            connection = open(command, timeoutParams);
+            connection.setReadTimeout(Math.toIntExact(timeout.toMillis() + DEADLINE_GRACE_MILLIS));
+            Map<String, Object> result = lastJsonObject(command, connection);
+            event.finish(command, params, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            throw e;
+        } finally {
+            completed(connection);
+        }
+    }
+
+    /**
+     * Invokes command and returns the response body as stream, that caller must close.
+     *
+     * @param command the RPC command.
+     * @param params the command parameters as key-value pairs.
+     */
+    public InputStream stream(String command, String... params) throws IOException {
+        IpfsRpcEvent event = IpfsRpcEvent.start();
+        HttpURLConnection connection = null;
+        try {
+            connection = open(command, params);
+            checkResponse(command, connection);
+            InputStream result = tracked(connection, lengthChecked(command, connection, connection.getInputStream()));
+            event.finish(command, params, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            completed(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Invokes command and returns the response body as stream, that caller must close, with client side deadlines
+     * suited for content retrieval: response has to start within first byte timeout, and no read may block for longer
+     * than stall timeout (waiting for response included). In both cases request is cancelled (connection is dropped,
+     * and node cancels the command) and {@link SocketTimeoutException} is thrown.
+     *
+     * @param firstByteTimeout the deadline for response to start.
+     * @param stallTimeout the longest tolerated blocking read, zero means unbounded (like for subscriptions).
+     * @param command the RPC command.
+     * @param params the command parameters as key-value pairs.
+     */
+    public InputStream stream(Duration firstByteTimeout, Duration stallTimeout, String command, String... params)
+            throws IOException {
+        IpfsRpcEvent event = IpfsRpcEvent.start();
+        HttpURLConnection connection = null;
+        try {
+            connection = open(command, params);
+            InputStream result = tracked(connection, stream(firstByteTimeout, stallTimeout, command, connection));
+            event.finish(command, params, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(command, params, e);
+            completed(connection);
+            throw e;
+        }
+    }
+
+    private InputStream stream(
+            Duration firstByteTimeout, Duration stallTimeout, String command, HttpURLConnection connection)
+            throws IOException {
+        connection.setReadTimeout(Math.toIntExact(stallTimeout.toMillis()));
+        // read timeout cannot be changed once connected, while disconnect is effective only until response starts
+        AtomicBoolean expired = new AtomicBoolean(false);
+        ScheduledFuture<?> watchdog = Watchdog.EXECUTOR.schedule(
+                () -> {
+                    expired.set(true);
+                    connection.disconnect();
+                },
+                firstByteTimeout.toMillis(),
+                TimeUnit.MILLISECONDS);
+        try {
+            checkResponse(command, connection);
+            return lengthChecked(command, connection, connection.getInputStream());
+        } catch (IOException e) {
+            if (expired.get() || e instanceof SocketTimeoutException) {
+                connection.disconnect();
+                SocketTimeoutException timeout = new SocketTimeoutException(
+                        command + ": no response within " + (expired.get() ? firstByteTimeout : stallTimeout));
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    private static final class Watchdog {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ipfs-rpc-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private HttpURLConnection open(String command, String... params) throws IOException {
+        if (params.length % 2 != 0) {
+            throw new IllegalArgumentException("Parameters must be key-value pairs");
+        }
+        StringBuilder url = new StringBuilder(baseUrl).append(requireNonNull(command));
+        for (int i = 0; i < params.length; i += 2) {
+            url.append(i == 0 ? '?' : '&')
+                    .append(URLEncoder.encode(params[i], StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+        HttpURLConnection connection = sockets != null
+                ? new IpfsUnixSocketConnection(new URL(url.toString()), sockets)
+                : (HttpURLConnection) new URL(url.toString()).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (inFlight != null) {
+            inFlight.add(connection);
+            // checked after adding, so abort either sees the connection, or the call sees abort
+            if (aborted.get()) {
+                completed(connection);
+                throw new InterruptedIOException(command + ": client aborted");
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Returns response body that fails if it ends short of announced length, see {@link #LENGTH_HEADER}.
+     */
+    private static InputStream lengthChecked(String command, HttpURLConnection connection, InputStream body) {
+        String header = connection.getHeaderField(LENGTH_HEADER);
+        if (header == null) {
+            return body;
+        }
+        long length;
+        try {
+            length = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return body;
+        }
+        return new FilterInputStream(body) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b < 0) {
+                    checkEnd();
+                } else {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    checkEnd();
+                } else {
+                    remaining -= n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                remaining -= skipped;
+                return skipped;
+            }
+
+            private void checkEnd() throws IOException {
+                if (remaining > 0) {
+                    throw new IOException(command + ": response ended " + remaining + " bytes short");
+                }
+            }
+        };
+    }
+
+    private void completed(HttpURLConnection connection) {
+        if (inFlight != null && connection != null) {
+            inFlight.remove(connection);
+        }
+    }
+
+    /**
+     * Returns response body that ends tracking of call in flight once closed.
+     */
+    private InputStream tracked(HttpURLConnection connection, InputStream body) {
+        if (inFlight == null) {
+            return body;
+        }
+        return new FilterInputStream(body) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    completed(connection);
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lastJsonObject(String command, HttpURLConnection connection) throws IOException {
+        checkResponse(command, connection);
+        Map<String, Object> last = Map.of();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    Object parsed = JSONParser.parse(line);
+                    if (parsed instanceof Map) {
+                        last = (Map<String, Object>) parsed;
+                        if (last.containsKey("Message") && "error".equals(last.get("Type"))) {
+                            throw new IpfsRpcException(command, String.valueOf(last.get("Message")));
+                        }
+                    }
+                }
+            }
+        }
+        String streamError = connection.getHeaderField("X-Stream-Error");
+        if (streamError != null && !streamError.isBlank()) {
+            throw new IpfsRpcException(command, streamError);
+        }
+        return last;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void checkResponse(String command, HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code >= 400) {
+            String message = "HTTP " + code;
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                try (errorStream) {
+                    String body = new String(errorStream.readAllBytes(), StandardCharsets.UTF_8);
+                    try {
+                        Object parsed = JSONParser.parse(body);
+                        message = parsed instanceof Map ? String.valueOf(((Map) parsed).get("Message")) : body;
+                    } catch (RuntimeException e) {
+                        message = body;
+                    }
+                }
+            }
+            throw new IpfsRpcException(command, message);
+        }
+    }
+
+    /**
+     * Error reported by IPFS node.
+     */
+    public static class IpfsRpcException extends IOException {
+        private final String nodeMessage;
+
+        public IpfsRpcException(String command, String nodeMessage) {
+            super("IPFS node failed " + command + ": " + nodeMessage);
+            this.nodeMessage = nodeMessage;
+        }
+
+        /**
+         * The error message as reported by node.
+         */
+        public String nodeMessage() {
+            return nodeMessage;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import java.net.SocketTimeoutException;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of node RPC call. Duration of calls returning stream covers time to response only, not the
+ * reading of it. Fields are set only if event is recorded, so disabled event costs next to nothing.
+ */
+@Name("eu.maveniverse.maven.ipfs.Rpc")
+@Label("IPFS RPC")
+@Category({"Maven", "IPFS"})
+@Description("Call of IPFS node RPC API")
+@StackTrace(false)
+final class IpfsRpcEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Argument")
+    @Description("The first argument of command, like path or CID")
+    String argument;
+
+    @Label("Outcome")
+    @Description("One of ok, node error, timeout, aborted or failure")
+    String outcome;
+
+    @Label("Error")
+    String error;
+
+    static IpfsRpcEvent start() {
+        IpfsRpcEvent event = new IpfsRpcEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends event and records it, if enabled.
+     *
+     * @param failure the failure of call, or {@code null} if it succeeded.
+     */
+    void finish(String command, String[] params, Throwable failure) {
+        finish(command, params, outcome(failure), failure != null ? failure.getMessage() : null);
+    }
+
+    void finish(String command, String[] params, String outcome, String error) {
+        end();
+        if (shouldCommit()) {
+            this.command = command;
+            this.argument = argument(params);
+            this.outcome = outcome;
+            this.error = error;
+            commit();
+        }
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "ok";
+        }
+        if (failure instanceof IpfsRpc.IpfsRpcException) {
+            return "node error";
+        }
+        if (failure instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        return "failure";
+    }
+
+    private static String argument(String[] params) {
+        for (int i = 0; i + 1 < params.length; i += 2) {
+            if ("arg".equals(params[i])) {
+                return params[i + 1];
+            }
+        }
+        return null;
+    }
+}
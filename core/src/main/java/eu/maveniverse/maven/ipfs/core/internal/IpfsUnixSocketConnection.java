@@ -0,0 +1,644 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP connection to node RPC API listening on Unix domain socket, that JDK {@link HttpURLConnection} does not offer.
+ * It covers what {@link IpfsRpc} uses: HTTP/1.1 request, chunked request body, response body of known length, chunked
+ * (trailers, like {@code X-Stream-Error}, are exposed as headers once body is read) or delimited by close, and read
+ * timeout. Like JDK does with HTTP, socket channel is kept alive once response is read in whole, and is reused by
+ * later connection of same {@link Pool}. Unix domain socket channels exist since Java 16, they are looked up
+ * reflectively, as this module targets Java 11.
+ */
+final class IpfsUnixSocketConnection extends HttpURLConnection {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Pool pool;
+    private final Map<String, String> headers;
+    private final AtomicBoolean done;
+    private volatile Channel pooled;
+    private boolean reused;
+    private boolean keepAlive;
+    private SocketChannel channel;
+    private Selector selector;
+    private SelectionKey key;
+    private Map<String, List<String>> requestProperties;
+    private ChunkedOutputStream requestBody;
+    private boolean requestSent;
+    private ChannelInputStream input;
+    private InputStream responseBody;
+
+    IpfsUnixSocketConnection(URL url, Pool pool) {
+        super(url);
+        this.pool = requireNonNull(pool);
+        this.headers = new HashMap<>();
+        this.done = new AtomicBoolean(false);
+    }
+
+    /**
+     * Whether running JVM supports Unix domain socket channels.
+     */
+    static boolean supported() {
+        return UnixSockets.OPEN != null;
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (connected) {
+            return;
+        }
+        if (!supported()) {
+            throw new IOException("Unix domain sockets need Java 16 or newer");
+        }
+        requestProperties = getRequestProperties();
+        // request body cannot be sent again, if reused channel turns out to be closed by node meanwhile
+        use(doOutput ? null : pool.idle());
+        connected = true;
+    }
+
+    private void use(Channel idle) throws IOException {
+        reused = idle != null;
+        pooled = reused ? idle : Channel.open(pool.socket);
+        channel = pooled.channel;
+        selector = pooled.selector;
+        key = pooled.key;
+        input = new ChannelInputStream();
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (!doOutput) {
+            throw new ProtocolException("Output not enabled, see setDoOutput()");
+        }
+        if (requestBody == null) {
+            if (requestSent) {
+                throw new ProtocolException("Cannot write output after reading input");
+            }
+            connect();
+            sendHead(true);
+            requestBody = new ChunkedOutputStream(chunkLength > 0 ? chunkLength : BUFFER_SIZE);
+        }
+        return requestBody;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        int code = getResponseCode();
+        if (code >= 400) {
+            String message = "Server returned HTTP response code: " + code + " for URL: " + url;
+            throw code == 404 || code == 410 ? new FileNotFoundException(message) : new IOException(message);
+        }
+        return responseBody;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return responseCode >= 400 ? responseBody : null;
+    }
+
+    @Override
+    public synchronized int getResponseCode() throws IOException {
+        if (responseBody == null) {
+            connect();
+            if (requestBody != null) {
+                requestBody.close();
+                readHead();
+            } else {
+                try {
+                    if (!requestSent) {
+                        sendHead(false);
+                    }
+                    readHead();
+                } catch (IOException e) {
+                    if (!reused || input.received || done.get() || e instanceof SocketTimeoutException) {
+                        throw e;
+                    }
+                    // node closed idle channel before it got the request
+                    pooled.close();
+                    use(null);
+                    if (done.get()) {
+                        pooled.close();
+                        throw e;
+                    }
+                    sendHead(false);
+                    readHead();
+                }
+            }
+        }
+        return responseCode;
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        synchronized (headers) {
+            return name == null ? null : headers.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        close();
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+    private void close() {
+        Channel current = pooled;
+        if (current != null && done.compareAndSet(false, true)) {
+            current.close();
+        }
+    }
+
+    /**
+     * Hands channel over to pool once response is read in whole, if channel can carry next request.
+     */
+    private void responseRead() {
+        String connection = getHeaderField("Connection");
+        boolean reusable = keepAlive
+                && (requestBody == null || requestBody.closed)
+                && !input.buffer.hasRemaining()
+                && (connection == null || !connection.equalsIgnoreCase("close"));
+        if (!reusable) {
+            close();
+        } else if (done.compareAndSet(false, true)) {
+            pool.release(pooled);
+        }
+    }
+
+    private void sendHead(boolean body) throws IOException {
+        StringBuilder head = new StringBuilder()
+                .append(method)
+                .append(' ')
+                .append(url.getFile().isEmpty() ? "/" : url.getFile())
+                .append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n")
+                .append(body ? "Transfer-Encoding: chunked\r\n" : "Content-Length: 0\r\n");
+        requestProperties.forEach((name, values) -> {
+            if (name != null) {
+                values.forEach(
+                        value -> head.append(name).append(": ").append(value).append("\r\n"));
+            }
+        });
+        head.append("\r\n");
+        write(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        requestSent = true;
+    }
+
+    private void readHead() throws IOException {
+        String statusLine;
+        do {
+            statusLine = input.readLine();
+            String[] status = statusLine.split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+                throw new ProtocolException("Invalid HTTP status line: " + statusLine);
+            }
+            try {
+                responseCode = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid HTTP status line: " + statusLine);
+            }
+            responseMessage = status.length > 2 ? status[2] : "";
+            keepAlive = status[0].equals("HTTP/1.1");
+            readFields();
+        } while (responseCode >= 100 && responseCode < 200);
+        String transferEncoding = getHeaderField("Transfer-Encoding");
+        String contentLength = getHeaderField("Content-Length");
+        if (transferEncoding != null
+                && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            responseBody = new ChunkedInputStream();
+        } else if (contentLength != null) {
+            responseBody = new FixedLengthInputStream(Long.parseLong(contentLength.trim()));
+        } else {
+            responseBody = input;
+        }
+    }
+
+    /**
+     * Reads header (or trailer) fields, up to empty line.
+     */
+    private void readFields() throws IOException {
+        String line;
+        while (!(line = input.readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                synchronized (headers) {
+                    headers.put(
+                            line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            line.substring(colon + 1).trim());
+                }
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                await(SelectionKey.OP_WRITE, 0);
+            }
+        }
+    }
+
+    /**
+     * Waits until channel is ready for operation, throwing {@link SocketTimeoutException} after timeout, if positive.
+     */
+    private void await(int operation, int timeoutMillis) throws IOException {
+        try {
+            key.interestOps(operation);
+            int ready = selector.select(timeoutMillis);
+            selector.selectedKeys().clear();
+            if (!channel.isOpen()) {
+                throw new SocketException("Socket closed");
+            }
+            if (ready == 0 && timeoutMillis > 0) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        } catch (ClosedSelectorException | CancelledKeyException e) {
+            throw new SocketException("Socket closed");
+        }
+    }
+
+    private final class ChunkedOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+        private volatile boolean closed;
+
+        private ChunkedOutputStream(int chunkSize) {
+            this.buffer = ByteBuffer.allocate(chunkSize);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (len > 0) {
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                IpfsUnixSocketConnection.this.write(ByteBuffer.wrap(
+                        (Integer.toHexString(buffer.remaining()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+                IpfsUnixSocketConnection.this.write(buffer);
+                IpfsUnixSocketConnection.this.write(ByteBuffer.wrap(new byte[] {'\r', '\n'}));
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                flush();
+                closed = true;
+                IpfsUnixSocketConnection.this.write(ByteBuffer.wrap("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+            }
+        }
+    }
+
+    /**
+     * Buffered input of channel, honoring read timeout; closing it closes the connection.
+     */
+    private final class ChannelInputStream extends InputStream {
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private boolean received;
+
+        private boolean fill() throws IOException {
+            buffer.compact();
+            try {
+                int n;
+                while ((n = channel.read(buffer)) == 0) {
+                    await(SelectionKey.OP_READ, getReadTimeout());
+                }
+                received |= n > 0;
+                return n > 0;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = read()) != '\n') {
+                if (b == -1) {
+                    throw new EOFException("Connection closed by node");
+                }
+                line.write(b);
+            }
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public void close() {
+            IpfsUnixSocketConnection.this.close();
+        }
+    }
+
+    private final class FixedLengthInputStream extends InputStream {
+        private long remaining;
+
+        private FixedLengthInputStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                responseRead();
+                return -1;
+            }
+            int n = input.read(b, off, (int) Math.min(len, remaining));
+            if (n == -1) {
+                throw new EOFException("Connection closed by node before end of body");
+            }
+            remaining -= n;
+            if (remaining == 0) {
+                responseRead();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (remaining == 0) {
+                responseRead();
+            } else {
+                input.close();
+            }
+        }
+    }
+
+    private final class ChunkedInputStream extends InputStream {
+        private long remaining;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (remaining == 0) {
+                String size = input.readLine();
+                int extension = size.indexOf(';');
+                try {
+                    remaining = Long.parseLong((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new ProtocolException("Invalid chunk size: " + size);
+                }
+                if (remaining == 0) {
+                    readFields(); // trailers
+                    eof = true;
+                    responseRead();
+                    return -1;
+                }
+            }
+            int n = input.read(b, off, (int) Math.min(len, remaining));
+            if (n == -1) {
+                throw new EOFException("Connection closed by node before end of body");
+            }
+            remaining -= n;
+            if (remaining == 0 && !input.readLine().isEmpty()) {
+                throw new ProtocolException("Chunk not terminated by CRLF");
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (!eof) {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Idle channels to node socket, kept for reuse by later connections.
+     */
+    static final class Pool {
+        private static final int MAX_IDLE = 8;
+
+        private final Path socket;
+        private final Deque<Channel> idle;
+
+        Pool(Path socket) {
+            this.socket = requireNonNull(socket);
+            this.idle = new ArrayDeque<>();
+        }
+
+        /**
+         * Returns idle channel that is still open, or {@code null}.
+         */
+        private Channel idle() {
+            while (true) {
+                Channel channel;
+                synchronized (idle) {
+                    channel = idle.pollFirst();
+                }
+                if (channel == null || channel.open()) {
+                    return channel;
+                }
+                channel.close();
+            }
+        }
+
+        private void release(Channel channel) {
+            synchronized (idle) {
+                if (idle.size() < MAX_IDLE) {
+                    idle.addFirst(channel);
+                    return;
+                }
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Non-blocking socket channel with its selector, that waits for it.
+     */
+    private static final class Channel {
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final SelectionKey key;
+
+        private Channel(SocketChannel channel, Selector selector, SelectionKey key) {
+            this.channel = channel;
+            this.selector = selector;
+            this.key = key;
+        }
+
+        private static Channel open(Path socket) throws IOException {
+            SocketChannel channel = UnixSockets.open(socket);
+            Selector selector = null;
+            try {
+                channel.configureBlocking(false);
+                selector = Selector.open();
+                return new Channel(channel, selector, channel.register(selector, 0));
+            } catch (IOException e) {
+                new Channel(channel, selector, null).close();
+                throw e;
+            }
+        }
+
+        /**
+         * Whether idle channel is still open: node may close it any time, and it must not have sent anything.
+         */
+        private boolean open() {
+            try {
+                return channel.isOpen() && channel.read(ByteBuffer.allocate(1)) == 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            try {
+                if (selector != null) {
+                    // wakes up blocked read, that then finds selector closed
+                    selector.close();
+                }
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static final class UnixSockets {
+        private static final ProtocolFamily UNIX;
+        private static final Method OPEN;
+        private static final Method ADDRESS;
+
+        static {
+            ProtocolFamily unix = null;
+            Method open = null;
+            Method address = null;
+            try {
+                unix = StandardProtocolFamily.valueOf("UNIX");
+                open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+                address = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                open = null; // before Java 16
+            }
+            UNIX = unix;
+            OPEN = open;
+            ADDRESS = address;
+        }
+
+        private static SocketChannel open(Path socket) throws IOException {
+            SocketChannel channel;
+            SocketAddress address;
+            try {
+                channel = (SocketChannel) OPEN.invoke(null, UNIX);
+                address = (SocketAddress) ADDRESS.invoke(null, socket);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            }
+            try {
+                channel.connect(address);
+                return channel;
+            } catch (IOException e) {
+                channel.close();
+                throw new IOException("Could not connect to " + socket + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
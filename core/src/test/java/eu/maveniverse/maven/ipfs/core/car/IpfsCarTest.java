@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.car;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.ipfs.cid.Cid;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class IpfsCarTest {
+    private static final Cid CID = Cid.decode("bafybeigdyrzt5sfp7udm7hu76uh7y26nf3efuylqabf3oclgtqy55fbzdi");
+
+    @Test
+    void varint() throws IOException {
+        assertArrayEquals(new byte[] {0x01}, varint(1));
+        assertArrayEquals(new byte[] {0x7f}, varint(127));
+        assertArrayEquals(new byte[] {(byte) 0x80, 0x01}, varint(128));
+        assertArrayEquals(new byte[] {(byte) 0xac, 0x02}, varint(300));
+    }
+
+    @Test
+    void header() throws IOException {
+        byte[] cid = CID.toBytes();
+        byte[] header = IpfsCar.header(cid);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(new byte[] {(byte) 0xa2, 0x65});
+        expected.write("roots".getBytes(StandardCharsets.US_ASCII));
+        expected.write(new byte[] {(byte) 0x81, (byte) 0xd8, 0x2a});
+        if (cid.length + 1 < 24) {
+            expected.write(0x40 + cid.length + 1);
+        } else {
+            expected.write(new byte[] {0x58, (byte) (cid.length + 1)});
+        }
+        expected.write(0x00);
+        expected.write(cid);
+        expected.write(0x67);
+        expected.write("version".getBytes(StandardCharsets.US_ASCII));
+        expected.write(0x01);
+
+        byte[] prefix = varint(expected.size());
+        assertArrayEquals(prefix, Arrays.copyOf(header, prefix.length));
+        assertArrayEquals(expected.toByteArray(), Arrays.copyOfRange(header, prefix.length, header.length));
+    }
+
+    @Test
+    void block() throws IOException {
+        byte[] cid = CID.toBytes();
+        byte[] data = new byte[200];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IpfsCar.writeBlock(out, cid, data);
+
+        byte[] section = out.toByteArray();
+        byte[] prefix = varint(cid.length + data.length);
+        assertEquals(prefix.length + cid.length + data.length, section.length);
+        assertArrayEquals(prefix, Arrays.copyOf(section, prefix.length));
+        assertArrayEquals(cid, Arrays.copyOfRange(section, prefix.length, prefix.length + cid.length));
+    }
+
+    private static byte[] varint(long value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IpfsCar.writeVarint(out, value);
+        return out.toByteArray();
+    }
+}
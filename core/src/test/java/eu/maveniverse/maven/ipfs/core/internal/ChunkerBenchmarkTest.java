@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import io.ipfs.api.IPFS;
+import io.ipfs.api.JSONParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Measures block deduplication between consecutive versions of real artifacts, and add throughput, per chunker. Run
+ * it with comma separated list of artifact files, in version order, like
+ * {@code -Dipfs.benchmark.artifacts=app-1.0.jar,app-1.1.jar,app-1.2.jar}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "ipfs.benchmark.artifacts", matches = ".+")
+class ChunkerBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkerBenchmarkTest.class);
+
+    public static final DockerImageName IPFS_KUBO_IMAGE = DockerImageName.parse("ipfs/kubo:release");
+
+    public static GenericContainer<?> kubo = new GenericContainer<>(IPFS_KUBO_IMAGE).withExposedPorts(5001);
+    public static int kuboPort;
+
+    @BeforeAll
+    static void startContainer() {
+        kubo.start();
+        kuboPort = kubo.getMappedPort(5001);
+    }
+
+    @AfterAll
+    static void stopContainer() {
+        kubo.stop();
+    }
+
+    @Test
+    void dedupAndThroughput() throws IOException {
+        List<Path> artifacts = Arrays.stream(
+                        System.getProperty("ipfs.benchmark.artifacts").split(","))
+                .map(String::trim)
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
+        IpfsRpc rpc = new IpfsRpc(ipfs);
+
+        for (String chunker : List.of("size-262144", "rabin", "buzhash")) {
+            Map<String, Long> previous = null;
+            long totalBytes = 0;
+            long totalNanos = 0;
+            for (Path artifact : artifacts) {
+                long started = System.nanoTime();
+                String cid;
+                try (IpfsRpc.Upload upload = rpc.upload(
+                        "add", "cid-version", "1", "raw-leaves", "true", "pin", "false", "chunker", chunker)) {
+                    Files.copy(artifact, upload);
+                    cid = String.valueOf(upload.finish().get("Hash"));
+                }
+                totalNanos += System.nanoTime() - started;
+                totalBytes += Files.size(artifact);
+
+                Map<String, Long> blocks = blocks(rpc, cid);
+                if (previous != null) {
+                    long size =
+                            blocks.values().stream().mapToLong(Long::longValue).sum();
+                    Map<String, Long> prev = previous;
+                    long shared = blocks.entrySet().stream()
+                            .filter(e -> prev.containsKey(e.getKey()))
+                            .mapToLong(Map.Entry::getValue)
+                            .sum();
+                    LOGGER.info(
+                            "{}: {} shares {}% of {} bytes in {} blocks with previous version",
+                            chunker, artifact.getFileName(), size == 0 ? 0 : shared * 100 / size, size, blocks.size());
+                }
+                previous = blocks;
+            }
+            LOGGER.info(
+                    "{}: added {} bytes at {} MB/s",
+                    chunker,
+                    totalBytes,
+                    String.format("%.2f", totalBytes / 1024.0 / 1024.0 / (totalNanos / 1_000_000_000.0)));
+        }
+    }
+
+    /**
+     * Returns all blocks of the DAG with their sizes.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Map<String, Long> blocks(IpfsRpc rpc, String cid) throws IOException {
+        Map<String, Long> result = new HashMap<>();
+        result.put(cid, blockSize(rpc, cid));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                rpc.stream("refs", "arg", cid, "recursive", "true", "unique", "true"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    String ref = String.valueOf(((Map) JSONParser.parse(line)).get("Ref"));
+                    result.put(ref, blockSize(rpc, ref));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long blockSize(IpfsRpc rpc, String cid) throws IOException {
+        return Long.parseLong(String.valueOf(rpc.json("block/stat", "arg", cid).get("Size")));
+    }
+}
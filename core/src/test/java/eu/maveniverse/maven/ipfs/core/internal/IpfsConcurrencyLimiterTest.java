@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.internal.IpfsConcurrencyLimiter.Endpoint;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class IpfsConcurrencyLimiterTest {
+    @Test
+    void errorsDecreaseLimit() {
+        IpfsConcurrencyLimiter limiter = new IpfsConcurrencyLimiter();
+        int initial = limiter.limit(Endpoint.STAT);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(
+                    IOException.class,
+                    () -> limiter.call(Endpoint.STAT, () -> {
+                        throw new IOException("boom");
+                    }));
+        }
+        assertTrue(limiter.limit(Endpoint.STAT) < initial, limiter.toString());
+        // other classes are unaffected
+        assertEquals(new IpfsConcurrencyLimiter().limit(Endpoint.CAT), limiter.limit(Endpoint.CAT));
+    }
+
+    @Test
+    void limitNeverDropsBelowOne() throws IOException {
+        IpfsConcurrencyLimiter limiter = new IpfsConcurrencyLimiter();
+        for (int i = 0; i < 1000; i++) {
+            IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.ADD);
+            permit.sample(false);
+            permit.release();
+        }
+        assertEquals(1, limiter.limit(Endpoint.ADD));
+    }
+
+    @Test
+    void successUnderLoadIncreasesLimit() throws IOException {
+        IpfsConcurrencyLimiter limiter = new IpfsConcurrencyLimiter();
+        int initial = limiter.limit(Endpoint.ADD);
+        for (int round = 0; round < 50; round++) {
+            List<IpfsConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.limit(Endpoint.ADD); i++) {
+                permits.add(limiter.acquire(Endpoint.ADD));
+            }
+            permits.forEach(p -> p.sample(true));
+            permits.forEach(IpfsConcurrencyLimiter.Permit::release);
+        }
+        assertTrue(limiter.limit(Endpoint.ADD) > initial, limiter.toString());
+    }
+
+    @Test
+    void blocksWhenLimitReached() throws Exception {
+        IpfsConcurrencyLimiter limiter = new IpfsConcurrencyLimiter();
+        List<IpfsConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < limiter.limit(Endpoint.ADD); i++) {
+            permits.add(limiter.acquire(Endpoint.ADD));
+        }
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire(Endpoint.ADD).release();
+                acquired.countDown();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        permits.get(0).release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    @Test
+    void streamReleasesPermitOnClose() throws IOException {
+        IpfsConcurrencyLimiter limiter = new IpfsConcurrencyLimiter();
+        AtomicBoolean released = new AtomicBoolean(false);
+        IpfsConcurrencyLimiter.Permit permit = limiter.acquire(Endpoint.CAT);
+        IpfsConcurrencyLimiter.Permit tracking = new IpfsConcurrencyLimiter.Permit() {
+            @Override
+            public void mark() {
+                permit.mark();
+            }
+
+            @Override
+            public void sample(boolean success) {
+                permit.sample(success);
+            }
+
+            @Override
+            public void release() {
+                released.set(true);
+                permit.release();
+            }
+        };
+        try (InputStream in = limiter.releaseOnClose(tracking, new ByteArrayInputStream(new byte[] {1, 2, 3}))) {
+            assertEquals(1, in.read());
+        }
+        assertTrue(released.get());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IpfsDirectoryBundlesTest {
+    private static final String DIR_CID = "bafybeigdyrzt5sfp7udm7hu76uh7y26nf3efuylqabf3oclgtqy55fbzdi";
+
+    @Test
+    void unpack(@TempDir Path target) throws IOException {
+        String longName = "root/" + "x".repeat(120) + ".jar";
+        byte[] tar = tar(Map.of("root/a-1.0.pom", "pom", "root/a-1.0.jar", "jar content", longName, "long"));
+        IpfsDirectoryBundles.unpack(new ByteArrayInputStream(tar), target);
+
+        assertEquals("pom", Files.readString(target.resolve("a-1.0.pom")));
+        assertEquals("jar content", Files.readString(target.resolve("a-1.0.jar")));
+        assertEquals("long", Files.readString(target.resolve("x".repeat(120) + ".jar")));
+    }
+
+    @Test
+    void unpackRejectsTraversal(@TempDir Path target) throws IOException {
+        byte[] tar = tar(Map.of("root/../../evil", "evil"));
+        assertThrows(IOException.class, () -> IpfsDirectoryBundles.unpack(new ByteArrayInputStream(tar), target));
+    }
+
+    @Test
+    void siblingsServedLocally() throws IOException {
+        AtomicInteger stats = new AtomicInteger();
+        AtomicInteger archives = new AtomicInteger();
+        byte[] tar = tar(Map.of("root/a-1.0.pom", "pom", "root/a-1.0.jar", "jar"));
+        try (IpfsDirectoryBundles bundles = new IpfsDirectoryBundles(
+                1024,
+                dir -> {
+                    stats.incrementAndGet();
+                    return Optional.of(dirStat(100));
+                },
+                cid -> {
+                    archives.incrementAndGet();
+                    return new ByteArrayInputStream(tar);
+                })) {
+            assertTrue(bundles.fetches("g/a/1.0/a-1.0.pom"));
+            Path pom = bundles.get("g/a/1.0/a-1.0.pom").orElseThrow();
+            assertEquals("pom", Files.readString(pom));
+            assertFalse(bundles.fetches("g/a/1.0/a-1.0.jar"));
+            assertEquals(
+                    "jar", Files.readString(bundles.get("g/a/1.0/a-1.0.jar").orElseThrow()));
+            assertFalse(bundles.get("g/a/1.0/a-1.0.jar.asc").isPresent());
+            assertEquals(1, archives.get());
+
+            // directory is looked up again, but same CID is already unpacked
+            bundles.invalidate("g/a/1.0/a-1.0.jar.asc");
+            assertTrue(bundles.get("g/a/1.0/a-1.0.jar").isPresent());
+            assertEquals(2, stats.get());
+            assertEquals(1, archives.get());
+
+            bundles.close();
+            assertFalse(Files.exists(pom));
+        }
+    }
+
+    @Test
+    void tooBigNotBundled() throws IOException {
+        AtomicInteger stats = new AtomicInteger();
+        try (IpfsDirectoryBundles bundles = new IpfsDirectoryBundles(
+                1024,
+                dir -> {
+                    stats.incrementAndGet();
+                    return Optional.of(dirStat(2048));
+                },
+                cid -> {
+                    throw new AssertionError("must not fetch");
+                })) {
+            assertFalse(bundles.get("g/a/1.0/a-1.0.pom").isPresent());
+            assertFalse(bundles.get("g/a/1.0/a-1.0.jar").isPresent());
+            assertEquals(1, stats.get());
+        }
+    }
+
+    private static IpfsNamespacePublisher.Stat dirStat(long cumulativeSize) {
+        Map<String, Object> stat =
+                Map.of("Hash", DIR_CID, "Type", "directory", "CumulativeSize", cumulativeSize, "Size", 0);
+        return () -> stat;
+    }
+
+    /**
+     * Writes minimal tar, using GNU long name entry for names over 100 bytes.
+     */
+    private static byte[] tar(Map<String, String> files) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            byte[] name = file.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 100) {
+                entry(out, "././@LongLink", 'L', name);
+            }
+            entry(out, file.getKey(), '0', file.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(new byte[1024]);
+        return out.toByteArray();
+    }
+
+    private static void entry(ByteArrayOutputStream out, String name, char type, byte[] data) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(100, nameBytes.length));
+        byte[] size = String.format("%011o", data.length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        out.write(header);
+        out.write(data);
+        out.write(new byte[(512 - data.length % 512) % 512]);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class IpfsLocalFirstTest {
+    @Test
+    void localHit() throws IOException {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofSeconds(10));
+        AtomicBoolean online = new AtomicBoolean();
+
+        String result = localFirst.call(
+                () -> Optional.of("local"),
+                () -> {
+                    online.set(true);
+                    return "online";
+                },
+                s -> {});
+
+        assertEquals("local", result);
+        assertFalse(online.get());
+        assertEquals(1.0, localFirst.hitRatio());
+    }
+
+    @Test
+    void missGoesOnline() throws IOException {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofSeconds(10));
+
+        assertEquals("online", localFirst.call(Optional::empty, () -> "online", s -> {}));
+        assertEquals(
+                "online",
+                localFirst.call(
+                        () -> {
+                            throw new IOException("block not found locally");
+                        },
+                        () -> "online",
+                        s -> {}));
+        assertEquals(0.0, localFirst.hitRatio());
+    }
+
+    @Test
+    void hedgedOnlineWinsAndLocalIsDiscarded() throws Exception {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofMillis(10));
+        CountDownLatch onlineDone = new CountDownLatch(1);
+        CountDownLatch discarded = new CountDownLatch(1);
+        List<String> discards = new CopyOnWriteArrayList<>();
+
+        String result = localFirst.call(
+                () -> {
+                    // slow local answer arrives after online one
+                    await(onlineDone);
+                    return Optional.of("local");
+                },
+                () -> "online",
+                s -> {
+                    discards.add(s);
+                    discarded.countDown();
+                });
+        onlineDone.countDown();
+
+        assertEquals("online", result);
+        assertTrue(discarded.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("local"), discards);
+        assertTrue(localFirst.toString().contains("1 hedged"), localFirst.toString());
+    }
+
+    @Test
+    void onlineFailureWaitsForLocal() throws Exception {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofMillis(10));
+        CountDownLatch onlineFailed = new CountDownLatch(1);
+
+        String result = localFirst.call(
+                () -> {
+                    await(onlineFailed);
+                    return Optional.of("local");
+                },
+                () -> {
+                    onlineFailed.countDown();
+                    throw new IOException("routing failed");
+                },
+                s -> {});
+
+        assertEquals("local", result);
+    }
+
+    @Test
+    void lateResultDiscardedOnceCallerGivesUp() throws Exception {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofSeconds(10));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch discarded = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread caller = new Thread(() -> {
+            try {
+                localFirst.call(
+                        () -> {
+                            started.countDown();
+                            await(release);
+                            return Optional.of("local");
+                        },
+                        () -> "online",
+                        s -> discarded.countDown());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        caller.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join();
+        release.countDown();
+
+        assertInstanceOf(InterruptedIOException.class, failure.get());
+        assertTrue(discarded.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void bothFail() {
+        IpfsLocalFirst localFirst = new IpfsLocalFirst(Duration.ofSeconds(10));
+
+        IOException e = assertThrows(
+                IOException.class,
+                () -> localFirst.call(
+                        Optional::empty,
+                        () -> {
+                            throw new IOException("routing failed");
+                        },
+                        s -> {}));
+        assertEquals("routing failed", e.getMessage());
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class IpfsLookupCacheTest {
+    private static final Map<String, Object> STAT = Map.of("Hash", "bafkreihdwdcefgh4dqk", "Type", "file", "Size", 0);
+
+    @Test
+    void foundAndMissing() {
+        IpfsLookupCache cache = new IpfsLookupCache(IpfsLookupCache.DEFAULT_MAX_WEIGHT);
+        assertNull(cache.get("root1", "g/a/1.0/a-1.0.jar"));
+        cache.put("root1", "g/a/1.0/a-1.0.jar", Optional.of(STAT));
+        cache.put("root1", "g/a/1.0/a-1.0.jar.asc", Optional.empty());
+
+        assertEquals(Optional.of(STAT), cache.get("root1", "g/a/1.0/a-1.0.jar"));
+        assertEquals(Optional.empty(), cache.get("root1", "g/a/1.0/a-1.0.jar.asc"));
+        // other root is other content
+        assertNull(cache.get("root2", "g/a/1.0/a-1.0.jar"));
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() {
+        IpfsLookupCache cache = new IpfsLookupCache(2_000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("root", "path" + i, Optional.of(STAT));
+            // keep first entry in use
+            assertEquals(Optional.of(STAT), cache.get("root", "path0"));
+        }
+        assertTrue(cache.weight() <= 2_000);
+        assertEquals(Optional.of(STAT), cache.get("root", "path0"));
+        assertEquals(Optional.of(STAT), cache.get("root", "path99"));
+        assertNull(cache.get("root", "path1"));
+    }
+
+    @Test
+    void replacedEntryWeighedOnce() {
+        IpfsLookupCache cache = new IpfsLookupCache(IpfsLookupCache.DEFAULT_MAX_WEIGHT);
+        cache.put("root", "path", Optional.of(STAT));
+        long weight = cache.weight();
+        cache.put("root", "path", Optional.of(STAT));
+        assertEquals(weight, cache.weight());
+    }
+}
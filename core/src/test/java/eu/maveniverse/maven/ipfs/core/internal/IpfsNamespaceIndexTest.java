@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class IpfsNamespaceIndexTest {
+    private static final String SHA1 = "2aae6c35c94fcfb415dbe95f408b9ce91ee846ed";
+
+    @Test
+    void findAcrossRestarts() throws IOException {
+        List<IpfsNamespaceIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(indexed("org/example/a/" + i + "/a-" + i + ".jar", "cid" + i, i));
+        }
+        entries.add(new IpfsNamespaceIndex.Entry("org", "cidOrg", 0, true, null, null));
+        IpfsNamespaceIndex index = roundTrip(entries);
+
+        assertEquals(101, index.size());
+        assertEquals(1, index.rootEntryCount());
+        for (int i = 0; i < 100; i++) {
+            IpfsNamespaceIndex.Entry entry =
+                    index.find("org/example/a/" + i + "/a-" + i + ".jar").orElseThrow();
+            assertEquals("cid" + i, entry.cid().toString());
+            assertEquals(i, entry.size());
+            assertFalse(entry.directory());
+        }
+        assertTrue(index.find("org").orElseThrow().directory());
+        assertFalse(index.find("org/example/a/100/a-100.jar").isPresent());
+        assertFalse(index.find("").isPresent());
+        assertFalse(index.find("zzz").isPresent());
+    }
+
+    @Test
+    void checksums() throws IOException {
+        byte[] sha1 = new byte[20];
+        sha1[19] = (byte) 0xff;
+        IpfsNamespaceIndex index =
+                roundTrip(List.of(new IpfsNamespaceIndex.Entry("a.jar", "cid", 3, false, sha1, null)));
+
+        IpfsNamespaceIndex.Entry entry = index.find("a.jar").orElseThrow();
+        assertEquals(Optional.of("00000000000000000000000000000000000000ff"), entry.sha1());
+        assertEquals(Optional.empty(), entry.sha256());
+        assertEquals("00000000000000000000000000000000000000ff", entry.stat().get("Sha1"));
+        assertEquals("file", entry.stat().get("Type"));
+    }
+
+    @Test
+    void forEachUnder() throws IOException {
+        IpfsNamespaceIndex index = roundTrip(List.of(
+                indexed("a/b", "1", 1), indexed("a/c/d", "2", 1), indexed("a-b", "3", 1), indexed("ab", "4", 1)));
+
+        List<String> under = new ArrayList<>();
+        index.forEachUnder("a", e -> under.add(e.path()));
+
+        assertEquals(List.of("a/b", "a/c/d"), under);
+    }
+
+    @Test
+    void notAnIndex() {
+        assertThrows(
+                IOException.class,
+                () -> new IpfsNamespaceIndex(ByteBuffer.wrap("not an index at all".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void collectReusesUnchangedSubtrees() throws IOException {
+        Map<String, List<IpfsNamespacePublisher.Entry>> dirs = new HashMap<>();
+        Map<String, String> files = new HashMap<>();
+        dirs.put("root1", List.of(dir("g", "g1"), file(IpfsNamespaceIndex.FILE_NAME, "idx", 10)));
+        dirs.put("g1", List.of(dir("a", "a1"), dir("b", "b1")));
+        dirs.put("a1", List.of(file("a.jar", "aJar", 5), file("a.jar.sha1", "aSha1", 40)));
+        dirs.put("b1", List.of(file("b.jar", "bJar", 6)));
+        files.put("aSha1", SHA1 + "  a.jar");
+        List<String> listed = new ArrayList<>();
+        IOFunction<Cid, Stream<IpfsNamespacePublisher.Entry>> list = c -> {
+            listed.add(c.toString());
+            return dirs.get(c.toString()).stream();
+        };
+        IOFunction<Cid, InputStream> cat =
+                c -> new ByteArrayInputStream(files.get(c.toString()).getBytes(StandardCharsets.US_ASCII));
+
+        IpfsNamespaceIndex first = roundTrip(IpfsNamespaceIndex.collect(Cid.decode("root1"), null, list, cat));
+        assertEquals(List.of("g", "g/a", "g/a/a.jar", "g/a/a.jar.sha1", "g/b", "g/b/b.jar"), paths(first));
+        assertEquals(Optional.of(SHA1), first.find("g/a/a.jar").orElseThrow().sha1());
+        assertEquals(1, first.rootEntryCount());
+
+        // b changed only
+        dirs.put("root2", List.of(dir("g", "g2")));
+        dirs.put("g2", List.of(dir("a", "a1"), dir("b", "b2")));
+        dirs.put("b2", List.of(file("b.jar", "bJar2", 7)));
+        listed.clear();
+        IpfsNamespaceIndex second = roundTrip(IpfsNamespaceIndex.collect(Cid.decode("root2"), first, list, cat));
+
+        assertEquals(List.of("root2", "g2", "b2"), listed);
+        assertEquals(paths(first), paths(second));
+        assertEquals(Optional.of(SHA1), second.find("g/a/a.jar").orElseThrow().sha1());
+        assertEquals("bJar2", second.find("g/b/b.jar").orElseThrow().cid().toString());
+    }
+
+    private static List<String> paths(IpfsNamespaceIndex index) {
+        List<String> paths = new ArrayList<>();
+        index.forEachUnder("g", e -> paths.add(e.path()));
+        paths.add(0, "g");
+        return paths.stream().filter(p -> index.find(p).isPresent()).collect(Collectors.toList());
+    }
+
+    private static IpfsNamespaceIndex roundTrip(List<IpfsNamespaceIndex.Entry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IpfsNamespaceIndex.write(entries, out);
+        return new IpfsNamespaceIndex(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static IpfsNamespaceIndex.Entry indexed(String path, String cid, long size) {
+        return new IpfsNamespaceIndex.Entry(path, cid, size, false, null, null);
+    }
+
+    private static IpfsNamespacePublisher.Entry file(String name, String cid, long size) {
+        return entry(name, cid, size, true);
+    }
+
+    private static IpfsNamespacePublisher.Entry dir(String name, String cid) {
+        return entry(name, cid, 0, false);
+    }
+
+    private static IpfsNamespacePublisher.Entry entry(String name, String cid, long size, boolean file) {
+        return new IpfsNamespacePublisher.Entry() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Cid hash() {
+                return Cid.decode(cid);
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public boolean file() {
+                return file;
+            }
+        };
+    }
+}
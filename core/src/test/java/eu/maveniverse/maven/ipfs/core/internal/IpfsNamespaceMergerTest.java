@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import io.ipfs.multihash.Multihash;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Metadata merge, and tree merge with directories and files from fixtures, against a stand-in node recording MFS
+ * changes.
+ */
+class IpfsNamespaceMergerTest {
+    private static final String ADD_PARAMS = "cid-version=1&raw-leaves=true&chunker=size-1048576&pin=false";
+
+    private final Map<Cid, List<IpfsNamespacePublisher.Entry>> directories = new HashMap<>();
+    private final Map<Cid, String> files = new HashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final List<String> added = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private IpfsNamespaceMerger merger;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v0/", exchange -> {
+            String command = exchange.getRequestURI().getPath().substring("/api/v0/".length());
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            String response = "{}";
+            if (command.equals("add")) {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                added.add(body.substring(body.indexOf("\r\n\r\n") + 4, body.lastIndexOf("\r\n--")));
+                response = "{\"Hash\":\"added" + added.size() + "\"}";
+            } else if (command.equals("files/stat")) {
+                response = "{\"Hash\":\"" + cid("merged") + "\"}";
+            }
+            calls.add(command + " " + query);
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        merger = new IpfsNamespaceMerger(
+                new IpfsRpc("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/"),
+                List.of("cid-version", "1", "raw-leaves", "true", "chunker", "size-1048576"),
+                cid -> directories.get(cid).stream(),
+                cid -> new ByteArrayInputStream(files.get(cid).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void trivialMerges() throws IOException {
+        Cid base = cid("base");
+        Cid ours = cid("ours");
+        Cid theirs = cid("theirs");
+
+        assertEquals(ours, merger.merge(base, ours, base));
+        assertEquals(ours, merger.merge(base, ours, ours));
+        assertEquals(theirs, merger.merge(base, base, theirs));
+        assertEquals(List.of(), calls);
+    }
+
+    @Test
+    void mergeInScratchDirectory() throws IOException {
+        Cid base = dir("base", file("a.jar", "a1"));
+        Cid ours = dir("ours", file("a.jar", "a2"));
+        Cid theirs = dir("theirs", file("a.jar", "a1"), file("b.jar", "b"));
+
+        assertEquals(cid("merged"), merger.merge(base, ours, theirs));
+
+        assertEquals(4, calls.size(), calls.toString());
+        String scratch = calls.get(0).substring(calls.get(0).lastIndexOf("arg=") + 4);
+        assertTrue(scratch.matches("/\\.ipfs-merge-[^/]+"), scratch);
+        assertEquals("files/cp arg=/ipfs/" + ours + "&arg=" + scratch, calls.get(0));
+        assertEquals("files/cp arg=/ipfs/" + cid("b") + "&arg=" + scratch + "/b.jar", calls.get(1));
+        assertEquals("files/stat arg=" + scratch, calls.get(2));
+        assertEquals("files/rm arg=" + scratch + "&recursive=true", calls.get(3));
+    }
+
+    @Test
+    void oneSidedChanges() throws IOException {
+        Cid base = dir("base", file("a.jar", "a1"), file("b.jar", "b1"), file("c.jar", "c"), file("d.jar", "d"));
+        // we changed a.jar and removed d.jar, they changed b.jar, removed c.jar and added e.jar
+        Cid ours = dir("ours", file("a.jar", "a2"), file("b.jar", "b1"), file("c.jar", "c"));
+        Cid theirs = dir("theirs", file("a.jar", "a1"), file("b.jar", "b2"), file("d.jar", "d"), file("e.jar", "e"));
+
+        merger.mergeInto("/m", base, ours, theirs);
+
+        assertEquals(
+                List.of(
+                        "files/rm arg=/m/b.jar&recursive=true",
+                        "files/cp arg=/ipfs/" + cid("b2") + "&arg=/m/b.jar",
+                        "files/rm arg=/m/c.jar&recursive=true",
+                        "files/cp arg=/ipfs/" + cid("e") + "&arg=/m/e.jar"),
+                calls);
+    }
+
+    @Test
+    void deleteVersusModify() throws IOException {
+        Cid base = dir("base", file("a.jar", "a1"), file("b.jar", "b1"));
+        // we removed a.jar they changed, and changed b.jar they removed
+        Cid ours = dir("ours", file("b.jar", "b2"));
+        Cid theirs = dir("theirs", file("a.jar", "a2"));
+
+        merger.mergeInto("/m", base, ours, theirs);
+
+        // their change is restored, our change is kept
+        assertEquals(List.of("files/cp arg=/ipfs/" + cid("a2") + "&arg=/m/a.jar"), calls);
+    }
+
+    @Test
+    void conflictKeepsOwn() throws IOException {
+        Cid base = dir("base", file("a.jar", "a1"));
+        Cid ours = dir("ours", file("a.jar", "a2"));
+        Cid theirs = dir("theirs", file("a.jar", "a3"));
+
+        merger.mergeInto("/m", base, ours, theirs);
+
+        assertEquals(List.of(), calls);
+    }
+
+    @Test
+    void directoriesMergedRecursively() throws IOException {
+        Cid base = dir("base", dir("g", "g0", dir("a", "a0", dir("1.0", "v1"))));
+        Cid ours = dir("ours", dir("g", "g1", dir("a", "a1", dir("1.0", "v1"), dir("1.1", "v11"))));
+        Cid theirs = dir("theirs", dir("g", "g2", dir("a", "a2", dir("1.0", "v1"), dir("1.2", "v12"))), dir("h", "h"));
+
+        merger.mergeInto("/m", base, ours, theirs);
+
+        assertEquals(
+                List.of(
+                        "files/cp arg=/ipfs/" + cid("v12") + "&arg=/m/g/a/1.2",
+                        "files/cp arg=/ipfs/" + cid("h") + "&arg=/m/h"),
+                calls);
+    }
+
+    @Test
+    void metadataMergedWithChecksums() throws IOException {
+        String baseMetadata = metadata("1.0", "20240101000000");
+        String ourMetadata = metadata("1.1", "20240102000000");
+        String theirMetadata = metadata("1.2", "20240103000000");
+        Cid base = dir(
+                "base",
+                file("maven-metadata.xml", baseMetadata),
+                file("maven-metadata.xml.sha1", "s0"),
+                file("maven-metadata.xml.asc", "sig0"));
+        Cid ours = dir(
+                "ours",
+                file("maven-metadata.xml", ourMetadata),
+                file("maven-metadata.xml.sha1", "s1"),
+                file("maven-metadata.xml.asc", "sig1"));
+        // they added md5 too
+        Cid theirs = dir(
+                "theirs",
+                file("maven-metadata.xml", theirMetadata),
+                file("maven-metadata.xml.md5", "m2"),
+                file("maven-metadata.xml.sha1", "s2"),
+                file("maven-metadata.xml.asc", "sig2"));
+
+        merger.mergeInto("/m", base, ours, theirs);
+
+        String merged = new String(
+                IpfsNamespaceMerger.mergeMetadata(
+                        ourMetadata.getBytes(StandardCharsets.UTF_8), theirMetadata.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+        assertEquals(List.of(merged, hex("MD5", merged), hex("SHA-1", merged)), added);
+        assertEquals(
+                List.of(
+                        "files/cp arg=/ipfs/" + cid("m2") + "&arg=/m/maven-metadata.xml.md5",
+                        "add " + ADD_PARAMS,
+                        "files/rm arg=/m/maven-metadata.xml&force=true",
+                        "files/cp arg=/ipfs/added1&arg=/m/maven-metadata.xml",
+                        "files/rm arg=/m/maven-metadata.xml.asc&force=true",
+                        "add " + ADD_PARAMS,
+                        "files/rm arg=/m/maven-metadata.xml.md5&force=true",
+                        "files/cp arg=/ipfs/added2&arg=/m/maven-metadata.xml.md5",
+                        "add " + ADD_PARAMS,
+                        "files/rm arg=/m/maven-metadata.xml.sha1&force=true",
+                        "files/cp arg=/ipfs/added3&arg=/m/maven-metadata.xml.sha1"),
+                calls);
+    }
+
+    private Cid dir(String id, IpfsNamespacePublisher.Entry... entries) {
+        Cid cid = cid(id);
+        directories.put(cid, List.of(entries));
+        return cid;
+    }
+
+    private IpfsNamespacePublisher.Entry dir(String name, String id, IpfsNamespacePublisher.Entry... entries) {
+        return entry(name, dir(id, entries), false);
+    }
+
+    private IpfsNamespacePublisher.Entry file(String name, String content) {
+        Cid cid = cid(content);
+        files.put(cid, content);
+        return entry(name, cid, true);
+    }
+
+    private static String metadata(String version, String lastUpdated) {
+        return "<metadata><groupId>g</groupId><artifactId>a</artifactId><versioning><latest>" + version
+                + "</latest><versions><version>" + version + "</version></versions><lastUpdated>" + lastUpdated
+                + "</lastUpdated></versioning></metadata>";
+    }
+
+    private static Cid cid(String id) {
+        return new Cid(new Multihash(Multihash.Type.sha2_256, digest("SHA-256", id)));
+    }
+
+    private static String hex(String algorithm, String content) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest(algorithm, content)) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] digest(String algorithm, String content) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static IpfsNamespacePublisher.Entry entry(String name, Cid hash, boolean file) {
+        return new IpfsNamespacePublisher.Entry() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Cid hash() {
+                return hash;
+            }
+
+            @Override
+            public long size() {
+                return 1;
+            }
+
+            @Override
+            public boolean file() {
+                return file;
+            }
+        };
+    }
+
+    @Test
+    void versionsUnited() throws IOException {
+        String ours = "<metadata><groupId>g</groupId><artifactId>a</artifactId><versioning>"
+                + "<latest>1.1</latest><release>1.1</release>"
+                + "<versions><version>1.0</version><version>1.1</version></versions>"
+                + "<lastUpdated>20240101000000</lastUpdated></versioning></metadata>";
+        String theirs = "<metadata><groupId>g</groupId><artifactId>a</artifactId><versioning>"
+                + "<latest>1.2</latest><release>1.2</release>"
+                + "<versions><version>1.0</version><version>1.2</version></versions>"
+                + "<lastUpdated>20240102000000</lastUpdated></versioning></metadata>";
+
+        String merged = merge(ours, theirs);
+
+        // newer one is the base
+        assertTrue(merged.contains("<latest>1.2</latest>"), merged);
+        assertTrue(merged.contains("<lastUpdated>20240102000000</lastUpdated>"), merged);
+        assertTrue(
+                merged.contains(
+                        "<versions><version>1.0</version><version>1.2</version><version>1.1</version>" + "</versions>"),
+                merged);
+        // symmetric
+        assertEquals(merged, merge(theirs, ours));
+    }
+
+    @Test
+    void pluginsUnited() throws IOException {
+        String ours = "<metadata><plugins><plugin><name>A</name><prefix>a</prefix><artifactId>a-plugin</artifactId>"
+                + "</plugin></plugins></metadata>";
+        String theirs = "<metadata><plugins><plugin><name>B</name><prefix>b</prefix><artifactId>b-plugin</artifactId>"
+                + "</plugin></plugins></metadata>";
+
+        String merged = merge(ours, theirs);
+
+        assertTrue(merged.contains("<prefix>a</prefix>"), merged);
+        assertTrue(merged.contains("<prefix>b</prefix>"), merged);
+    }
+
+    @Test
+    void snapshotVersionsUnited() throws IOException {
+        String ours = "<metadata><versioning><snapshot><timestamp>20240101.000000</timestamp>"
+                + "<buildNumber>1</buildNumber></snapshot><lastUpdated>20240101000000</lastUpdated>"
+                + "<snapshotVersions><snapshotVersion><extension>jar</extension>"
+                + "<value>1.0-20240101.000000-1</value></snapshotVersion>"
+                + "<snapshotVersion><classifier>sources</classifier><extension>jar</extension>"
+                + "<value>1.0-20240101.000000-1</value></snapshotVersion></snapshotVersions></versioning></metadata>";
+        String theirs = "<metadata><versioning><snapshot><timestamp>20240102.000000</timestamp>"
+                + "<buildNumber>2</buildNumber></snapshot><lastUpdated>20240102000000</lastUpdated>"
+                + "<snapshotVersions><snapshotVersion><extension>jar</extension>"
+                + "<value>1.0-20240102.000000-2</value></snapshotVersion></snapshotVersions></versioning></metadata>";
+
+        String merged = merge(ours, theirs);
+
+        assertTrue(merged.contains("<buildNumber>2</buildNumber>"), merged);
+        assertTrue(merged.contains("<value>1.0-20240102.000000-2</value>"), merged);
+        assertTrue(merged.contains("<classifier>sources</classifier>"), merged);
+        // newer main artifact wins
+        assertFalse(merged.contains("<snapshotVersion><extension>jar</extension><value>1.0-20240101"), merged);
+    }
+
+    private static String merge(String ours, String theirs) throws IOException {
+        return new String(
+                IpfsNamespaceMerger.mergeMetadata(
+                        ours.getBytes(StandardCharsets.UTF_8), theirs.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+}
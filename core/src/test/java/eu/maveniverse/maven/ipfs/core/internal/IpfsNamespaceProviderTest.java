@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class IpfsNamespaceProviderTest {
+    private final Map<String, List<IpfsNamespacePublisher.Entry>> dirs = new HashMap<>();
+    private final Map<String, List<Cid>> refs = new HashMap<>();
+    private final Set<String> provided = ConcurrentHashMap.newKeySet();
+
+    private final IpfsNamespaceProvider provider = new IpfsNamespaceProvider(
+            c -> dirs.get(c.toString()).stream(),
+            c -> refs.getOrDefault(c.toString(), List.of()),
+            c -> {
+                if (c.toString().startsWith("fail")) {
+                    throw new IOException("no routing");
+                }
+                return provided.add(c.toString());
+            },
+            ForkJoinPool.commonPool());
+
+    @Test
+    void onlyNewBlocks() throws IOException {
+        dirs.put("root1", List.of(dir("g", "g1")));
+        dirs.put("g1", List.of(dir("a", "a1"), file("x.jar", "x1")));
+        dirs.put("a1", List.of(file("a-1.0.jar", "jar10")));
+        // new version of a added, x replaced
+        dirs.put("root2", List.of(dir("g", "g2")));
+        dirs.put("g2", List.of(dir("a", "a2"), file("x.jar", "x2")));
+        dirs.put("a2", List.of(file("a-1.0.jar", "jar10"), dir("1.1", "v11")));
+        dirs.put("v11", List.of(file("a-1.1.jar", "jar11")));
+        refs.put("jar11", List.of(Cid.decode("chunk1"), Cid.decode("chunk2")));
+
+        assertEquals(
+                List.of("root2", "g2", "a2", "v11", "jar11", "chunk1", "chunk2", "x2"),
+                provider.newBlocks(Cid.decode("root1"), Cid.decode("root2")).stream()
+                        .map(Cid::toString)
+                        .collect(Collectors.toList()));
+        assertEquals(Set.of(), provider.newBlocks(Cid.decode("root2"), Cid.decode("root2")));
+    }
+
+    @Test
+    void allBlocksWithoutPrevious() throws IOException {
+        dirs.put("root1", List.of(dir("g", "g1")));
+        dirs.put("g1", List.of(file("x.jar", "x1"), file("y.jar", "fail1")));
+
+        assertEquals(3, provider.provideNew(null, Cid.decode("root1")));
+        assertEquals(Set.of("root1", "g1", "x1"), provided);
+    }
+
+    private static IpfsNamespacePublisher.Entry file(String name, String cid) {
+        return entry(name, cid, true);
+    }
+
+    private static IpfsNamespacePublisher.Entry dir(String name, String cid) {
+        return entry(name, cid, false);
+    }
+
+    private static IpfsNamespacePublisher.Entry entry(String name, String cid, boolean file) {
+        return new IpfsNamespacePublisher.Entry() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Cid hash() {
+                return Cid.decode(cid);
+            }
+
+            @Override
+            public long size() {
+                return 0;
+            }
+
+            @Override
+            public boolean file() {
+                return file;
+            }
+        };
+    }
+}
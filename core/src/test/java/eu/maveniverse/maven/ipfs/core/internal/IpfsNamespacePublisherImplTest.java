@@ -7,17 +7,31 @@
  */
 package eu.maveniverse.maven.ipfs.core.internal;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
 import io.ipfs.api.IPFS;
+import io.ipfs.cid.Cid;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.internal.test.util.TestUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.BindMode;
 import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.images.builder.Transferable;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
@@ -28,22 +42,51 @@ class IpfsNamespacePublisherImplTest {
     public static GenericContainer<?> kubo = new GenericContainer<>(IPFS_KUBO_IMAGE).withExposedPorts(5001);
     public static int kuboPort;
 
+    /**
+     * Directory mounted into container at same path, so node can read files added with nocopy.
+     */
+    public static Path sharedDir;
+
     @BeforeAll
-    static void startContainer() {
-        kubo.start();
+    static void startContainer() throws IOException {
+        sharedDir = Files.createTempDirectory("ipfs-shared-");
+        Files.setPosixFilePermissions(sharedDir, PosixFilePermissions.fromString("rwxr-xr-x"));
+        // filestore refuses files outside the parent of repository directory, hence repository at /ipfs
+        kubo.withEnv("IPFS_PATH", "/ipfs")
+                .withCopyToContainer(
+                        Transferable.of("ipfs config --json Experimental.FilestoreEnabled true\n", 0755),
+                        "/container-init.d/001-filestore.sh")
+                .withFileSystemBind(sharedDir.toString(), sharedDir.toString(), BindMode.READ_ONLY)
+                .start();
         kuboPort = kubo.getMappedPort(5001);
     }
 
     @AfterAll
-    static void stopContainer() {
+    static void stopContainer() throws IOException {
         kubo.stop();
+        try (Stream<Path> files = Files.list(sharedDir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(sharedDir);
     }
 
     @Test
     void refreshWritePublish() throws IOException {
         IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
         try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
-                ipfs, "namespace", "filesPrefix", "namespacePrefix", "namespaceKey", true, false, false, null)) {
+                ipfs,
+                new IpfsConcurrencyLimiter(),
+                "namespace",
+                "filesPrefix",
+                "namespacePrefix",
+                "namespaceKey",
+                true,
+                false,
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS,
+                null)) {
             publisher.put("test/test.txt", new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
         }
 
@@ -51,6 +94,114 @@ class IpfsNamespacePublisherImplTest {
         ipfs.files.ls("/filesPrefix/namespace/namespacePrefix/test/test.txt");
     }
 
+    /**
+     * Uploads generated content, never held in memory. To verify memory use is bounded, run with large size and small
+     * heap, like {@code -Dipfs.test.uploadSize=4294967296 -DargLine=-Xmx64m}.
+     */
+    @Test
+    void largeUpload() throws IOException {
+        long size = Long.getLong("ipfs.test.uploadSize", 64L * 1024 * 1024);
+        IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
+        try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
+                ipfs,
+                new IpfsConcurrencyLimiter(),
+                "namespace",
+                "filesPrefix",
+                "namespacePrefix",
+                "namespaceKey",
+                true,
+                false,
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS,
+                null)) {
+            try (IpfsNamespacePublisher.Upload upload = publisher.put("large/large.bin")) {
+                byte[] buffer = new byte[IpfsRpc.CHUNK_SIZE];
+                long written = 0;
+                while (written < size) {
+                    int len = (int) Math.min(buffer.length, size - written);
+                    for (int i = 0; i < len; i++) {
+                        buffer[i] = (byte) (written + i);
+                    }
+                    upload.outputStream().write(buffer, 0, len);
+                    written += len;
+                }
+            }
+            assertEquals(size, publisher.stat("large/large.bin").orElseThrow().size());
+        }
+    }
+
+    /**
+     * Node in container has filestore enabled, and reads the file from shared directory: CID must be same as of
+     * content added with copy.
+     */
+    @Test
+    void nocopySameCid() throws IOException {
+        byte[] content = new byte[1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        Path file = sharedDir.resolve("artifact.jar");
+        Files.write(file, content);
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+
+        IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
+        try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
+                ipfs,
+                new IpfsConcurrencyLimiter(),
+                "namespace",
+                "filesPrefix",
+                "namespacePrefix",
+                "namespaceKey",
+                true,
+                false,
+                false,
+                IpfsNamespacePublisherOptions.builder().nocopy(true).build(),
+                null)) {
+            try (IpfsNamespacePublisher.Upload upload = publisher.put("nocopy/artifact.jar", file)) {
+                Files.copy(file, upload.outputStream());
+            }
+            publisher.put("copy/artifact.jar", new ByteArrayInputStream(content));
+
+            Cid nocopy = publisher.stat("nocopy/artifact.jar").orElseThrow().hash();
+            assertEquals(publisher.stat("copy/artifact.jar").orElseThrow().hash(), nocopy);
+            // blocks of file are references to it, not copies
+            assertEquals(
+                    file.toString(),
+                    new IpfsRpc(ipfs)
+                            .json("filestore/ls", "arg", nocopy.toString())
+                            .get("FilePath"));
+        }
+    }
+
+    @Test
+    void redeployAndList() throws IOException {
+        IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
+        try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
+                ipfs,
+                new IpfsConcurrencyLimiter(),
+                "namespace",
+                "filesPrefix",
+                "namespacePrefix",
+                "namespaceKey",
+                true,
+                false,
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS,
+                null)) {
+            publisher.put("list/a.txt", new ByteArrayInputStream("first".getBytes(StandardCharsets.UTF_8)));
+            publisher.put("list/a.txt", new ByteArrayInputStream("second".getBytes(StandardCharsets.UTF_8)));
+            publisher.put("list/sub/b.txt", new ByteArrayInputStream("b".getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(6, publisher.stat("list/a.txt").orElseThrow().size());
+            try (Stream<IpfsNamespacePublisher.Entry> entries =
+                    publisher.list("list").orElseThrow()) {
+                Map<String, Boolean> files = entries.collect(
+                        Collectors.toMap(IpfsNamespacePublisher.Entry::name, IpfsNamespacePublisher.Entry::file));
+                assertEquals(Map.of("a.txt", true, "sub", false), files);
+            }
+            assertTrue(publisher.list("list/a.txt").isEmpty());
+            assertTrue(publisher.list("nonexistent").isEmpty());
+        }
+    }
+
     @Test
     void registry() throws IOException {
         IpfsNamespacePublisherRegistryImpl registry = new IpfsNamespacePublisherRegistryImpl(new IpfsFactoryImpl());
@@ -64,7 +215,8 @@ class IpfsNamespacePublisherImplTest {
                 "firstNamespaceKey",
                 false,
                 false,
-                false);
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS);
         publisher1.put("test/test.txt", new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
 
         IpfsNamespacePublisher publisher2 = registry.acquire(
@@ -76,7 +228,8 @@ class IpfsNamespacePublisherImplTest {
                 "firstNamespaceKey",
                 false,
                 false,
-                false);
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS);
         publisher2.put("test/test.txt", new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
 
         // closes all
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherRegistry;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.internal.test.util.TestUtils;
+import org.junit.jupiter.api.Test;
+
+class IpfsNamespacePublisherRegistryImplTest {
+    private final Set<String> closed = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void closeAllConcurrently() throws IOException {
+        DefaultRepositorySystemSession session = session("a", "b", "c");
+        long started = System.nanoTime();
+        new IpfsNamespacePublisherRegistryImpl(multiaddr -> null).closeAll(session);
+        // each takes 500ms to publish
+        assertTrue(System.nanoTime() - started < 1_400_000_000L);
+        assertEquals(Set.of("a", "b", "c"), closed);
+    }
+
+    @Test
+    void failuresAreAggregated() {
+        DefaultRepositorySystemSession session = session("a", "fail-b", "fail-c");
+        IOException e = assertThrows(
+                IOException.class, () -> new IpfsNamespacePublisherRegistryImpl(multiaddr -> null).closeAll(session));
+        assertEquals(2, e.getSuppressed().length);
+        assertEquals(Set.of("a", "fail-b", "fail-c"), closed);
+    }
+
+    @Test
+    void acquireAfterCloseRejected() throws IOException {
+        DefaultRepositorySystemSession session = session("a");
+        IpfsNamespacePublisherRegistryImpl registry = new IpfsNamespacePublisherRegistryImpl(multiaddr -> null);
+        registry.closeAll(session);
+        assertThrows(
+                IOException.class,
+                () -> registry.acquire(
+                        session,
+                        "/ip4/127.0.0.1/tcp/5001",
+                        "b",
+                        "filesPrefix",
+                        "namespacePrefix",
+                        "namespaceKey",
+                        false,
+                        false,
+                        false,
+                        IpfsNamespacePublisherOptions.DEFAULTS));
+        assertEquals(Set.of("a"), closed);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DefaultRepositorySystemSession session(String... namespaces) {
+        DefaultRepositorySystemSession session = TestUtils.newSession();
+        ConcurrentMap<String, IpfsNamespacePublisher> publishers =
+                (ConcurrentMap<String, IpfsNamespacePublisher>) session.getData()
+                        .computeIfAbsent(IpfsNamespacePublisherRegistry.class.getName(), ConcurrentHashMap::new);
+        for (String namespace : namespaces) {
+            publishers.put(namespace, publisher(namespace));
+        }
+        return session;
+    }
+
+    private IpfsNamespacePublisher publisher(String namespace) {
+        return (IpfsNamespacePublisher) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {IpfsNamespacePublisher.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "namespace":
+                            return namespace;
+                        case "close":
+                            Thread.sleep(500);
+                            closed.add(namespace);
+                            if (namespace.startsWith("fail")) {
+                                throw new IOException("Could not publish " + namespace);
+                            }
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
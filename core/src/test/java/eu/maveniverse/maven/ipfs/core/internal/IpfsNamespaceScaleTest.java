@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
+import io.ipfs.api.IPFS;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Populates namespace with many synthetic paths, and tracks stat and put latency as namespace grows. The layout
+ * mimics big groupIds: one directory gets a tenth of all paths as entries, so node has to shard it. Run it with
+ * count of paths, like {@code -Dipfs.scale.paths=1000000}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "ipfs.scale.paths", matches = "\\d+")
+class IpfsNamespaceScaleTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IpfsNamespaceScaleTest.class);
+
+    public static final DockerImageName IPFS_KUBO_IMAGE = DockerImageName.parse("ipfs/kubo:release");
+
+    public static GenericContainer<?> kubo = new GenericContainer<>(IPFS_KUBO_IMAGE).withExposedPorts(5001);
+    public static int kuboPort;
+
+    private static final int CHECKPOINTS = 10;
+    private static final int SAMPLES = 20;
+
+    @BeforeAll
+    static void startContainer() {
+        kubo.start();
+        kuboPort = kubo.getMappedPort(5001);
+    }
+
+    @AfterAll
+    static void stopContainer() {
+        kubo.stop();
+    }
+
+    @Test
+    void statAndPutLatency() throws IOException {
+        int paths = Integer.getInteger("ipfs.scale.paths");
+        IPFS ipfs = new IpfsFactoryImpl().create("/ip4/127.0.0.1/tcp/" + kuboPort);
+        IpfsRpc rpc = new IpfsRpc(ipfs);
+        try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
+                ipfs,
+                new IpfsConcurrencyLimiter(),
+                "scale",
+                "filesPrefix",
+                "",
+                "scaleKey",
+                true,
+                false,
+                false,
+                IpfsNamespacePublisherOptions.DEFAULTS,
+                null)) {
+            // populating is copying same content to many paths, as adding each would dominate the run time
+            publisher.put("seed.jar", new ByteArrayInputStream("seed".getBytes(StandardCharsets.UTF_8)));
+            String seed = "/ipfs/" + publisher.stat("seed.jar").orElseThrow().hash();
+
+            int step = Math.max(1, paths / CHECKPOINTS);
+            for (int i = 0; i < paths; i++) {
+                rpc.json(
+                        "files/cp",
+                        "arg",
+                        seed,
+                        "arg",
+                        "/filesPrefix/scale/" + path(i),
+                        "parents",
+                        "true",
+                        "flush",
+                        "false");
+                if ((i + 1) % step == 0 || i + 1 == paths) {
+                    checkpoint(publisher, i + 1);
+                }
+            }
+
+            try (Stream<IpfsNamespacePublisher.Entry> entries =
+                    publisher.list("org/big").orElseThrow()) {
+                long count = entries.count();
+                LOGGER.info("org/big has {} entries", count);
+                assertTrue(count > 0);
+            }
+        }
+    }
+
+    private static void checkpoint(IpfsNamespacePublisherImpl publisher, int populated) throws IOException {
+        long statNanos = 0;
+        long putNanos = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            String path = path((int) ((long) populated * s / SAMPLES));
+            long started = System.nanoTime();
+            assertTrue(publisher.stat(path).isPresent(), path);
+            statNanos += System.nanoTime() - started;
+
+            byte[] content = ("put-" + populated + "-" + s).getBytes(StandardCharsets.UTF_8);
+            started = System.nanoTime();
+            publisher.put("org/big/put-" + s + "/" + populated + ".jar", new ByteArrayInputStream(content));
+            putNanos += System.nanoTime() - started;
+        }
+        assertTrue(publisher.stat("org/big/put-0/" + populated + ".jar").isPresent());
+        LOGGER.info(
+                "{} paths: stat {} ms, put {} ms (average)",
+                populated,
+                String.format("%.2f", statNanos / 1_000_000.0 / SAMPLES),
+                String.format("%.2f", putNanos / 1_000_000.0 / SAMPLES));
+    }
+
+    /**
+     * Synthetic artifact path; every tenth path lands in {@code org/big}, making it the directory with most entries.
+     */
+    private static String path(int i) {
+        if (i % 10 == 0) {
+            return "org/big/artifact-" + i / 10 + "/1.0/artifact-" + i / 10 + "-1.0.jar";
+        }
+        return "org/group" + i % 100 + "/artifact-" + i / 100 + "/1." + i % 10 + "/artifact.jar";
+    }
+}
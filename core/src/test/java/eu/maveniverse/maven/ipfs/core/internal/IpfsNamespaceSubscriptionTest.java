@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IpfsNamespaceSubscriptionTest {
+    private static final String IPNS_NAME = "k51qzi5uqu5dg6lcd99r9gmb963kgugjinxxggwy7o93oagk3f2eg3qcjh7127";
+    private static final String TOPIC = "/record/L2lwbnMvACQIARIgAAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8";
+    private static final Cid FIRST = Cid.decode("bafybeigdyrzt5sfp7udm7hu76uh7y26nf3efuylqabf3oclgtqy55fbzdi");
+    private static final Cid SECOND = Cid.decode("bafybeiczsscdsbs7ffqz55asqdf3smv6klcw3gofszvwlyarci47bgf354");
+
+    private HttpServer server;
+    private AtomicReference<Cid> current;
+    private BlockingQueue<String> announcements;
+
+    @BeforeEach
+    void start() throws IOException {
+        current = new AtomicReference<>(FIRST);
+        announcements = new LinkedBlockingQueue<>();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/v0/resolve", exchange -> respond(exchange, "/ipns/" + IPNS_NAME));
+        server.createContext("/api/v0/name/resolve", exchange -> respond(exchange, "/ipfs/" + current.get()));
+        server.createContext("/api/v0/pubsub/sub", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.flush();
+                while (true) {
+                    String message = announcements.poll(10, TimeUnit.SECONDS);
+                    if (message == null) {
+                        break;
+                    }
+                    body.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String path) throws IOException {
+        byte[] body = ("{\"Path\":\"" + path + "\"}\n").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void topic() throws IOException {
+        assertEquals(TOPIC, IpfsNamespaceSubscription.topic(IPNS_NAME));
+        assertEquals(TOPIC, IpfsNamespaceSubscription.topic("12D3KooW9pP4Seg3kZYhySpuVjn1RPdQBsUFZKiFxGMGQN5MeL6A"));
+        assertThrows(IOException.class, () -> IpfsNamespaceSubscription.topic("ipfs.maveniverse.eu"));
+    }
+
+    @Test
+    void announcedRecordUpdatesNamespace() throws Exception {
+        BlockingQueue<Cid> updates = new LinkedBlockingQueue<>();
+        try (IpfsNamespaceSubscription subscription = new IpfsNamespaceSubscription(
+                new IpfsRpc("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/"), "ipfs.maveniverse.eu")) {
+            subscription.start();
+            assertEquals(Optional.of(FIRST), subscription.latest());
+            subscription.addListener(updates::add);
+
+            current.set(SECOND);
+            announcements.add("{\"from\":\"peer\",\"data\":\"uAAAA\"}");
+            assertEquals(SECOND, updates.poll(10, TimeUnit.SECONDS));
+            assertEquals(Optional.of(SECOND), subscription.latest());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import io.ipfs.cid.Cid;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IpfsNamespaceWarmerTest {
+    private static final Cid ROOT = Cid.decode("bafybeigdyrzt5sfp7udm7hu76uh7y26nf3efuylqabf3oclgtqy55fbzdi");
+    private static final Cid DIR = Cid.decode("bafybeiczsscdsbs7ffqz55asqdf3smv6klcw3gofszvwlyarci47bgf354");
+    private static final Cid POM = Cid.decode("QmUNLLsPACCz1vLxQVkXqqLX5R1X345qqfHbsf67hvA3Nn");
+    private static final Cid JAR = Cid.decode("QmbFMke1KXqnYyBBWxB74N4c5SBnJMVAiMNRcGu6x1AwQH");
+    private static final Cid README = Cid.decode("bafkreihdwdcefgh4dqkjv67uzcmw7ojee6xedzdetojuzjevtenxquvyku");
+
+    private static final Map<Cid, List<IpfsNamespacePublisher.Entry>> TREE = Map.of(
+            ROOT, List.of(entry("g", DIR, false), entry("README", README, true)),
+            DIR, List.of(entry("a-1.0.pom", POM, true), entry("a-1.0.jar", JAR, true)));
+
+    private final Set<Cid> fetched = ConcurrentHashMap.newKeySet();
+    private final Set<Cid> pinned = ConcurrentHashMap.newKeySet();
+
+    private IpfsNamespaceWarmer warmer(Path stateFile) {
+        return new IpfsNamespaceWarmer(
+                cid -> TREE.get(cid).stream(),
+                cid -> {
+                    fetched.add(cid);
+                    return new ByteArrayInputStream(new byte[] {'{', '}', '\n'});
+                },
+                pinned::add,
+                4,
+                stateFile);
+    }
+
+    @Test
+    void warmPin(@TempDir Path state) throws IOException {
+        Path stateFile = state.resolve("ns");
+        warmer(stateFile).warmPin(ROOT);
+        assertEquals(Set.of(POM, JAR, README), fetched);
+        assertEquals(Set.of(ROOT), pinned);
+        assertTrue(Files.readAllLines(stateFile).containsAll(List.of(DIR.toString(), ROOT.toString())));
+
+        // complete root is only pinned again
+        fetched.clear();
+        warmer(stateFile).warmPin(ROOT);
+        assertEquals(Set.of(), fetched);
+    }
+
+    @Test
+    void resume(@TempDir Path state) throws IOException {
+        Path stateFile = state.resolve("ns");
+        Files.writeString(stateFile, DIR + "\n");
+        warmer(stateFile).warmPin(ROOT);
+        assertEquals(Set.of(README), fetched);
+        assertEquals(Set.of(ROOT), pinned);
+    }
+
+    @Test
+    void failure() {
+        IpfsNamespaceWarmer warmer = new IpfsNamespaceWarmer(
+                cid -> TREE.get(cid).stream(),
+                cid -> {
+                    throw new IOException("no providers");
+                },
+                pinned::add,
+                2,
+                null);
+        IOException e = assertThrows(IOException.class, () -> warmer.warmPin(ROOT));
+        assertEquals("no providers", e.getMessage());
+        assertEquals(Set.of(), pinned);
+    }
+
+    private static IpfsNamespacePublisher.Entry entry(String name, Cid hash, boolean file) {
+        return new IpfsNamespacePublisher.Entry() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public Cid hash() {
+                return hash;
+            }
+
+            @Override
+            public long size() {
+                return 3;
+            }
+
+            @Override
+            public boolean file() {
+                return file;
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IpfsNegativeCacheTest {
+    private static final String RELEASE = "org/example/lib/1.0/lib-1.0.jar";
+    private static final String METADATA = "org/example/lib/maven-metadata.xml";
+
+    @Test
+    void keyedByRoot() {
+        IpfsNegativeCache cache = new IpfsNegativeCache(Duration.ofMinutes(1), null);
+        cache.missing("root1", RELEASE);
+        assertTrue(cache.isMissing("root1", RELEASE));
+        assertFalse(cache.isMissing("root2", RELEASE));
+    }
+
+    @Test
+    void volatileEntriesExpire() {
+        AtomicLong now = new AtomicLong();
+        IpfsNegativeCache cache = new IpfsNegativeCache(Duration.ofSeconds(10), null, now::get);
+        cache.missing("root", RELEASE);
+        cache.missing("root", METADATA);
+        assertTrue(cache.isMissing("root", METADATA));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertFalse(cache.isMissing("root", METADATA));
+        assertTrue(cache.isMissing("root", RELEASE));
+    }
+
+    @Test
+    void zeroTtlDoesNotCacheVolatile() {
+        IpfsNegativeCache cache = new IpfsNegativeCache(Duration.ZERO, null);
+        cache.missing("root", "org/example/lib/1.0-SNAPSHOT/lib-1.0-SNAPSHOT.jar");
+        assertFalse(cache.isMissing("root", "org/example/lib/1.0-SNAPSHOT/lib-1.0-SNAPSHOT.jar"));
+    }
+
+    @Test
+    void persisted(@TempDir Path directory) throws IOException {
+        IpfsNegativeCache cache = new IpfsNegativeCache(Duration.ofMinutes(1), directory);
+        cache.missing("root", RELEASE);
+        cache.missing("root", METADATA);
+        cache.save();
+
+        IpfsNegativeCache reloaded = new IpfsNegativeCache(Duration.ofMinutes(1), directory);
+        assertTrue(reloaded.isMissing("root", RELEASE));
+        assertFalse(reloaded.isMissing("root", METADATA));
+    }
+
+    @Test
+    void unusedRootsPruned(@TempDir Path directory) throws IOException {
+        IpfsNegativeCache cache = new IpfsNegativeCache(Duration.ofMinutes(1), directory);
+        cache.missing("old", RELEASE);
+        cache.missing("recent", RELEASE);
+        cache.save();
+        Instant expired = Instant.now().minus(IpfsNegativeCache.RETENTION).minus(Duration.ofDays(1));
+        Files.setLastModifiedTime(directory.resolve("old"), FileTime.from(expired));
+
+        IpfsNegativeCache reloaded = new IpfsNegativeCache(Duration.ofMinutes(1), directory);
+        assertFalse(Files.exists(directory.resolve("old")));
+        assertFalse(reloaded.isMissing("old", RELEASE));
+        assertTrue(reloaded.isMissing("recent", RELEASE));
+    }
+}
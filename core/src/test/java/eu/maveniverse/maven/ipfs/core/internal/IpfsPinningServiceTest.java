@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pin requests against a stand-in pinning service.
+ */
+class IpfsPinningServiceTest {
+    private HttpServer server;
+    private String endpoint;
+    private final AtomicReference<String> requested = new AtomicReference<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private final AtomicInteger polls = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/psa/pins", exchange -> {
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            if ("POST".equals(exchange.getRequestMethod())) {
+                requested.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                if (requested.get().contains("\"bad\"")) {
+                    respond(exchange, 400, "{\"error\":{\"reason\":\"BAD_REQUEST\",\"details\":\"invalid cid\"}}");
+                } else {
+                    respond(
+                            exchange,
+                            202,
+                            "{\"requestid\":\"r1\",\"status\":\"queued\",\"created\":\"2024-01-01T00:00:00Z\","
+                                    + "\"pin\":{\"cid\":\"bafyroot\"},\"delegates\":[\"/ip4/10.0.0.1/tcp/4001/p2p/Qm\"]}");
+                }
+            } else if (exchange.getRequestURI().getPath().endsWith("/r1")) {
+                String status = polls.incrementAndGet() < 3 ? "pinning" : "pinned";
+                respond(exchange, 200, "{\"requestid\":\"r1\",\"status\":\"" + status + "\",\"delegates\":[]}");
+            } else {
+                respond(exchange, 404, "{\"error\":{\"reason\":\"NOT_FOUND\"}}");
+            }
+        });
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/psa/";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void addAndAwaitPinned() throws Exception {
+        IpfsPinningService service = new IpfsPinningService(endpoint, "secret", Duration.ofMillis(10));
+
+        IpfsPinningService.Status submitted =
+                service.add(Cid.decode("bafyroot"), "org.example", List.of("/ip4/1.2.3.4/tcp/4001/p2p/Qm"));
+
+        assertEquals("r1", submitted.requestId());
+        assertEquals("queued", submitted.status());
+        assertEquals(List.of("/ip4/10.0.0.1/tcp/4001/p2p/Qm"), submitted.delegates());
+        assertEquals("Bearer secret", authorization.get());
+        assertEquals(
+                "{\"cid\":\"bafyroot\",\"name\":\"org.example\",\"origins\":[\"/ip4/1.2.3.4/tcp/4001/p2p/Qm\"]}",
+                requested.get());
+
+        IpfsPinningService.Status done = service.await(submitted).get(10, TimeUnit.SECONDS);
+        assertTrue(done.pinned());
+        assertEquals(3, polls.get());
+    }
+
+    @Test
+    void serviceError() {
+        IpfsPinningService service = new IpfsPinningService(endpoint, null);
+
+        IOException e = assertThrows(IOException.class, () -> service.add(Cid.decode("bad"), "ns", List.of()));
+        assertTrue(e.getMessage().contains("BAD_REQUEST: invalid cid"), e.getMessage());
+        assertEquals(null, authorization.get());
+        assertThrows(IOException.class, () -> service.status("unknown"));
+    }
+}
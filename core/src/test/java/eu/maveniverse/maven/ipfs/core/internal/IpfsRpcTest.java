@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Deadlines against a stand-in node that never delivers, and recording of calls.
+ */
+class IpfsRpcTest {
+    private HttpServer server;
+    private CountDownLatch release;
+    private IpfsRpc rpc;
+
+    @BeforeEach
+    void start() throws IOException {
+        release = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/v0/silent", exchange -> {
+            await();
+            exchange.close();
+        });
+        server.createContext("/api/v0/stalling", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("partial".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                await();
+            }
+        });
+        server.createContext("/api/v0/short", exchange -> {
+            // node announces length, and fails in trailer
+            exchange.getResponseHeaders().set("X-Content-Length", "10");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("partial".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/api/v0/error", exchange -> {
+            byte[] body = "{\"Message\":\"file does not exist\",\"Code\":0,\"Type\":\"error\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        rpc = new IpfsRpc("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/");
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private void await() {
+        try {
+            release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void firstByteTimeout() {
+        long started = System.nanoTime();
+        assertThrows(
+                SocketTimeoutException.class,
+                () -> rpc.stream(Duration.ofMillis(200), Duration.ofSeconds(10), "silent"));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void stall() throws IOException {
+        try (InputStream content = rpc.stream(Duration.ofSeconds(10), Duration.ofMillis(300), "stalling")) {
+            assertEquals("partial", new String(content.readNBytes(7), StandardCharsets.UTF_8));
+            assertThrows(SocketTimeoutException.class, content::read);
+        }
+    }
+
+    @Test
+    void endedShort() throws IOException {
+        try (InputStream content = rpc.stream(Duration.ofSeconds(10), Duration.ofSeconds(10), "short")) {
+            assertEquals("partial", new String(content.readNBytes(7), StandardCharsets.UTF_8));
+            assertThrows(IOException.class, content::read);
+        }
+    }
+
+    @Test
+    void nodeError() {
+        IpfsRpc.IpfsRpcException e = assertThrows(
+                IpfsRpc.IpfsRpcException.class,
+                () -> rpc.stream(Duration.ofSeconds(10), Duration.ofSeconds(10), "error"));
+        assertEquals("file does not exist", e.nodeMessage());
+    }
+
+    @Test
+    void abort() throws Exception {
+        IpfsRpc abortable = rpc.abortable();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> call = executor.submit(() -> abortable.json("silent"));
+            Thread.sleep(200);
+            long started = System.nanoTime();
+            abortable.abort();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThrows(InterruptedIOException.class, () -> abortable.json("error"));
+        // other clients of node are not affected
+        assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("error"));
+    }
+
+    @Test
+    void flightRecorderEvent() throws IOException {
+        Path file = Files.createTempFile("ipfs-rpc-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("eu.maveniverse.maven.ipfs.Rpc");
+            recording.start();
+            assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("error", "arg", "/ipfs/cid/a.jar"));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("error", event.getString("command"));
+            assertEquals("/ipfs/cid/a.jar", event.getString("argument"));
+            assertEquals("node error", event.getString("outcome"));
+            assertEquals(Thread.currentThread().getName(), event.getThread().getJavaName());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
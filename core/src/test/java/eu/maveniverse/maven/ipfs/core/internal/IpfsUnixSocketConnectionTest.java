@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * RPC over Unix domain socket, against a stand-in node speaking raw HTTP/1.1, keeping connections alive.
+ */
+@EnabledForJreRange(minVersion = 16)
+class IpfsUnixSocketConnectionTest {
+    @TempDir
+    Path tmp;
+
+    private ServerSocketChannel server;
+    private CountDownLatch release;
+    private AtomicInteger accepted;
+    private List<String> requestLines;
+    private List<byte[]> requestBodies;
+    private IpfsRpc rpc;
+
+    @BeforeEach
+    void start() throws Exception {
+        Path socket = tmp.resolve("api.sock");
+        server = (ServerSocketChannel) ServerSocketChannel.class
+                .getMethod("open", ProtocolFamily.class)
+                .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        server.bind((SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                .getMethod("of", Path.class)
+                .invoke(null, socket));
+        release = new CountDownLatch(1);
+        accepted = new AtomicInteger();
+        requestLines = new CopyOnWriteArrayList<>();
+        requestBodies = new CopyOnWriteArrayList<>();
+        Thread acceptor = new Thread(this::accept, "uds-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        rpc = new IpfsRpc(socket);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        release.countDown();
+        server.close();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                accepted.incrementAndGet();
+                Thread handler = new Thread(() -> handle(channel), "uds-stand-in-handler");
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel;
+                InputStream in = Channels.newInputStream(channel);
+                OutputStream out = Channels.newOutputStream(channel)) {
+            String requestLine;
+            while (!(requestLine = line(in)).isEmpty() && respond(requestLine, in, out)) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    /**
+     * Responds to request, returning whether connection is kept alive.
+     */
+    private boolean respond(String requestLine, InputStream in, OutputStream out) throws IOException {
+        boolean chunked = false;
+        String header;
+        while (!(header = line(in)).isEmpty()) {
+            chunked |= header.equalsIgnoreCase("Transfer-Encoding: chunked");
+        }
+        requestLines.add(requestLine);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (chunked) {
+            int size;
+            while ((size = Integer.parseInt(line(in), 16)) > 0) {
+                body.write(in.readNBytes(size));
+                line(in);
+            }
+            line(in);
+        }
+        requestBodies.add(body.toByteArray());
+        String command = requestLine.split(" ")[1].replaceAll("\\?.*", "");
+        switch (command) {
+            case "/api/v0/files/stat":
+                out.write(ascii("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: 21\r\n\r\n"
+                        + "{\"Hash\":\"x\",\"Size\":1}"));
+                return true;
+            case "/api/v0/add":
+                out.write(ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" + chunk("{\"Bytes\":1}\n")
+                        + chunk("{\"Hash\":\"y\"}\n") + "0\r\n\r\n"));
+                return true;
+            case "/api/v0/error":
+                String error = "{\"Message\":\"file does not exist\",\"Code\":0,\"Type\":\"error\"}";
+                out.write(ascii("HTTP/1.1 500 Internal Server Error\r\nContent-Length: " + error.length() + "\r\n\r\n"
+                        + error));
+                return true;
+            case "/api/v0/trailer":
+                out.write(ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nTrailer: X-Stream-Error\r\n\r\n"
+                        + chunk("{\"Ref\":\"a\"}\n") + "0\r\nX-Stream-Error: block not found\r\n\r\n"));
+                return true;
+            case "/api/v0/idle":
+                // responds, then closes connection without telling, like node does with idle ones
+                out.write(ascii("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n{}"));
+                return false;
+            case "/api/v0/stalling":
+                out.write(ascii("HTTP/1.1 200 OK\r\nConnection: close\r\n\r\npartial"));
+                out.flush();
+                await();
+                return false;
+            default:
+                await();
+                return false;
+        }
+    }
+
+    private void await() {
+        try {
+            release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n' && b != -1) {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static String chunk(String data) {
+        return Integer.toHexString(data.length()) + "\r\n" + data + "\r\n";
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void json() throws IOException {
+        assertEquals("x", rpc.json("files/stat", "arg", "/a b").get("Hash"));
+        assertEquals(List.of("POST /api/v0/files/stat?arg=%2Fa+b HTTP/1.1"), requestLines);
+    }
+
+    @Test
+    void connectionReused() throws IOException {
+        assertEquals("x", rpc.json("files/stat", "arg", "/a").get("Hash"));
+        assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("error"));
+        assertEquals("x", rpc.abortable().json("files/stat", "arg", "/b").get("Hash"));
+        assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("trailer"));
+        assertEquals("x", rpc.json("files/stat", "arg", "/c").get("Hash"));
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    void connectionClosedByNode() throws IOException {
+        rpc.json("idle");
+        assertEquals("x", rpc.json("files/stat", "arg", "/a").get("Hash"));
+        assertEquals(2, accepted.get());
+    }
+
+    @Test
+    void upload() throws IOException {
+        byte[] content = new byte[3 * IpfsRpc.CHUNK_SIZE + 17];
+        new Random(1).nextBytes(content);
+        IpfsRpc.Upload upload = rpc.upload("add", "pin", "false");
+        upload.write(content);
+
+        assertEquals("y", upload.finish().get("Hash"));
+        String body = new String(requestBodies.get(0), StandardCharsets.ISO_8859_1);
+        byte[] part = body.substring(body.indexOf("\r\n\r\n") + 4, body.lastIndexOf("\r\n--"))
+                .getBytes(StandardCharsets.ISO_8859_1);
+        assertArrayEquals(content, part);
+    }
+
+    @Test
+    void nodeError() {
+        IpfsRpc.IpfsRpcException e = assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("error"));
+        assertEquals("file does not exist", e.nodeMessage());
+    }
+
+    @Test
+    void trailerError() {
+        IpfsRpc.IpfsRpcException e = assertThrows(IpfsRpc.IpfsRpcException.class, () -> rpc.json("trailer"));
+        assertEquals("block not found", e.nodeMessage());
+    }
+
+    @Test
+    void firstByteTimeout() {
+        assertThrows(
+                SocketTimeoutException.class,
+                () -> rpc.stream(Duration.ofMillis(200), Duration.ofSeconds(10), "silent"));
+    }
+
+    @Test
+    void stall() throws IOException {
+        try (InputStream content = rpc.stream(Duration.ofSeconds(10), Duration.ofMillis(200), "stalling")) {
+            assertEquals("partial", new String(content.readNBytes(7), StandardCharsets.US_ASCII));
+            assertThrows(SocketTimeoutException.class, content::read);
+        }
+    }
+
+    @Test
+    void multiaddr() {
+        assertEquals(Optional.of(Paths.get("/run/ipfs/api.sock")), IpfsRpc.unixSocket("/unix/run/ipfs/api.sock"));
+        assertEquals(Optional.empty(), IpfsRpc.unixSocket("/ip4/127.0.0.1/tcp/5001"));
+        assertEquals(Optional.empty(), IpfsRpc.unixSocket("/unix/"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.core.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares latency of stat heavy resolution over loopback TCP and Unix domain socket, against same local node, that
+ * has API listening on both, like with {@code Addresses.API} set to
+ * {@code ["/ip4/127.0.0.1/tcp/5001", "/unix/run/ipfs/api.sock"]}. Run it with
+ * {@code -Dipfs.benchmark.unix=/unix/run/ipfs/api.sock}, and optionally
+ * {@code -Dipfs.benchmark.tcp=/ip4/127.0.0.1/tcp/5001}.
+ */
+@EnabledForJreRange(minVersion = 16)
+@EnabledIfSystemProperty(named = "ipfs.benchmark.unix", matches = ".+")
+class UnixSocketBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnixSocketBenchmarkTest.class);
+
+    private static final String DIRECTORY = "/unix-socket-benchmark";
+    private static final int PATHS = 200;
+    private static final int ROUNDS = 10;
+    private static final int THREADS = 8;
+
+    @Test
+    void statLatency() throws Exception {
+        IpfsRpc tcp = new IpfsRpc(
+                new IpfsFactoryImpl().create(System.getProperty("ipfs.benchmark.tcp", "/ip4/127.0.0.1/tcp/5001")));
+        IpfsRpc unix = new IpfsRpc(IpfsRpc.unixSocket(System.getProperty("ipfs.benchmark.unix"))
+                .orElseThrow(() -> new IllegalArgumentException("Not a /unix multiaddr")));
+
+        // MFS tree of paths that resolve locally: measures transport, not node lookups
+        List<String> paths = new ArrayList<>();
+        String cid;
+        try (IpfsRpc.Upload upload = tcp.upload("add", "cid-version", "1", "pin", "false")) {
+            upload.write(new byte[1024]);
+            cid = String.valueOf(upload.finish().get("Hash"));
+        }
+        tcp.json("files/rm", "arg", DIRECTORY, "recursive", "true", "force", "true");
+        for (int i = 0; i < PATHS; i++) {
+            String path = DIRECTORY + "/org/example/a" + i % 10 + "/" + i + "/a-" + i + ".jar";
+            tcp.json("files/cp", "arg", "/ipfs/" + cid, "arg", path, "parents", "true");
+            paths.add(path);
+        }
+        try {
+            for (int warmup = 0; warmup < 2; warmup++) {
+                run(tcp, paths);
+                run(unix, paths);
+            }
+            long[] tcpNanos = run(tcp, paths);
+            long[] unixNanos = run(unix, paths);
+            LOGGER.info("TCP:  {}", summary(tcpNanos));
+            LOGGER.info("Unix: {}", summary(unixNanos));
+        } finally {
+            tcp.json("files/rm", "arg", DIRECTORY, "recursive", "true", "force", "true");
+        }
+    }
+
+    /**
+     * Stats all paths for some rounds, in parallel, and returns latencies of calls.
+     */
+    private static long[] run(IpfsRpc rpc, List<String> paths) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    long[] nanos = new long[ROUNDS * paths.size() / THREADS];
+                    for (int i = 0; i < nanos.length; i++) {
+                        String path = paths.get((thread + i * THREADS) % paths.size());
+                        long started = System.nanoTime();
+                        try {
+                            rpc.json("files/stat", "arg", path);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        nanos[i] = System.nanoTime() - started;
+                    }
+                    return nanos;
+                }));
+            }
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                results.add(future.get());
+            }
+            return results.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String summary(long[] sortedNanos) {
+        double mean = Arrays.stream(sortedNanos).average().orElse(0);
+        return String.format(
+                "%d stats, mean %.3f ms, p50 %.3f ms, p99 %.3f ms",
+                sortedNanos.length,
+                mean / TimeUnit.MILLISECONDS.toNanos(1),
+                (double) sortedNanos[sortedNanos.length / 2] / TimeUnit.MILLISECONDS.toNanos(1),
+                (double) sortedNanos[sortedNanos.length * 99 / 100] / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
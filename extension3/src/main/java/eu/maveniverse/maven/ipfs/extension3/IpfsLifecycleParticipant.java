@@ -10,13 +10,36 @@ package eu.maveniverse.maven.ipfs.extension3;
 import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherRegistry;
+import eu.maveniverse.maven.ipfs.transport.IpfsTransporterConfigurationKeys;
+import eu.maveniverse.maven.ipfs.transport.IpfsTransporterFactory;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.ArtifactType;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Lifecycle participant for IPFS.
@@ -24,15 +47,168 @@ import org.apache.maven.execution.MavenSession;
 @Singleton
 @Named
 public class IpfsLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final IpfsNamespacePublisherRegistry registry;
+    private final IpfsTransporterFactory transporterFactory;
+    private final AtomicReference<ExecutorService> prefetch;
 
     @Inject
-    public IpfsLifecycleParticipant(IpfsNamespacePublisherRegistry registry) {
+    public IpfsLifecycleParticipant(
+            IpfsNamespacePublisherRegistry registry, IpfsTransporterFactory transporterFactory) {
         this.registry = requireNonNull(registry);
+        this.transporterFactory = requireNonNull(transporterFactory);
+        this.prefetch = new AtomicReference<>();
+    }
+
+    /**
+     * Speculatively warms node blockstore with declared dependencies and plugins of reactor, if enabled. This is
+     * best effort: it runs in background, and failures are ignored, as Resolver will fetch them anyway.
+     */
+    @Override
+    public void afterProjectsRead(MavenSession session) {
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        if (!ConfigUtils.getBoolean(
+                repositorySession,
+                IpfsTransporterConfigurationKeys.DEFAULT_PREFETCH_DEPENDENCIES,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_PREFETCH_DEPENDENCIES)) {
+            return;
+        }
+        Map<String, RemoteRepository> repositories = new LinkedHashMap<>();
+        Map<String, Set<String>> paths = new LinkedHashMap<>();
+        Set<String> reactor = new HashSet<>();
+        for (MavenProject project : session.getProjects()) {
+            reactor.add(project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+        }
+        for (MavenProject project : session.getProjects()) {
+            for (Dependency dependency : project.getDependencies()) {
+                ArtifactType type = repositorySession.getArtifactTypeRegistry().get(dependency.getType());
+                String extension = type != null ? type.getExtension() : dependency.getType();
+                String classifier = dependency.getClassifier() != null
+                                && !dependency.getClassifier().isEmpty()
+                        ? dependency.getClassifier()
+                        : type != null ? type.getClassifier() : "";
+                collect(
+                        project.getRemoteProjectRepositories(),
+                        reactor,
+                        dependency.getGroupId(),
+                        dependency.getArtifactId(),
+                        dependency.getVersion(),
+                        classifier,
+                        extension,
+                        repositories,
+                        paths);
+            }
+            for (Plugin plugin : project.getBuildPlugins()) {
+                collect(
+                        project.getRemotePluginRepositories(),
+                        reactor,
+                        plugin.getGroupId(),
+                        plugin.getArtifactId(),
+                        plugin.getVersion(),
+                        "",
+                        "jar",
+                        repositories,
+                        paths);
+            }
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        int threads = ConfigUtils.getInteger(
+                repositorySession,
+                IpfsTransporterConfigurationKeys.DEFAULT_PREFETCH_THREADS,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_PREFETCH_THREADS);
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "ipfs-prefetch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorService previous = prefetch.getAndSet(executor);
+        if (previous != null) {
+            previous.shutdownNow();
+        }
+        for (Map.Entry<String, Set<String>> entry : paths.entrySet()) {
+            RemoteRepository repository = repositories.get(entry.getKey());
+            // acquiring may refresh namespace, so it is done in background as well
+            executor.execute(() -> {
+                try {
+                    transporterFactory.acquirePublisher(repositorySession, repository);
+                } catch (Exception e) {
+                    logger.debug("Not prefetching from {}: {}", repository.getId(), e.getMessage());
+                    return;
+                }
+                for (String path : entry.getValue()) {
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                transporterFactory.prefetch(repositorySession, repository, path);
+                            } catch (Exception e) {
+                                logger.debug("Could not prefetch {} from {}: {}", path, repository.getId(), e);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        return; // session ended
+                    }
+                }
+            });
+        }
+        logger.info(
+                "Prefetching {} paths from {} IPFS repositories in background",
+                paths.values().stream().mapToInt(Set::size).sum(),
+                paths.size());
+    }
+
+    private static void collect(
+            List<RemoteRepository> candidates,
+            Set<String> reactor,
+            String groupId,
+            String artifactId,
+            String version,
+            String classifier,
+            String extension,
+            Map<String, RemoteRepository> repositories,
+            Map<String, Set<String>> paths) {
+        if (groupId == null
+                || artifactId == null
+                || version == null
+                || version.contains("${")
+                || version.startsWith("[")
+                || version.startsWith("(")
+                || version.endsWith("-SNAPSHOT")
+                || reactor.contains(groupId + ":" + artifactId + ":" + version)) {
+            return; // range, unresolved or snapshot versions have no stable path
+        }
+        String base = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version;
+        for (RemoteRepository repository : candidates) {
+            if (repository.getUrl().startsWith(IpfsTransporterFactory.NAME + ":")) {
+                repositories.putIfAbsent(repository.getId(), repository);
+                Set<String> repositoryPaths = paths.computeIfAbsent(repository.getId(), k -> new LinkedHashSet<>());
+                repositoryPaths.add(base + ".pom");
+                if (!"pom".equals(extension)) {
+                    repositoryPaths.add(base + (classifier == null || classifier.isEmpty() ? "" : "-" + classifier)
+                            + "." + extension);
+                }
+            }
+        }
     }
 
     @Override
     public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        ExecutorService executor = prefetch.getAndSet(null);
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    // registry waits for publishers still being acquired, and rejects later acquisitions
+                    logger.debug("Prefetch still running at session end, closing namespaces anyway");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         try {
             registry.closeAll(session.getRepositorySession());
         } catch (IOException e) {
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.importer;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.car.IpfsCar;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsRpc;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams blocks to node as CAR files, imported ({@code dag/import}) in batches of given size; a batch is a single
+ * request. Blocks are not pinned.
+ */
+final class CarBatchSink implements UnixfsDag.BlockSink, Closeable {
+    private final IpfsRpc rpc;
+    private final long batchSize;
+    private IpfsRpc.Upload upload;
+    private long uploaded;
+    private long batches;
+
+    CarBatchSink(IpfsRpc rpc, long batchSize) {
+        this.rpc = requireNonNull(rpc);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized void put(byte[] cid, byte[] data) throws IOException {
+        if (upload == null) {
+            // CAR requires a root, that does not have to be a DAG root: use first block
+            upload = rpc.upload("dag/import", "pin-roots", "false");
+            upload.write(IpfsCar.header(cid));
+            uploaded = 0;
+        }
+        try {
+            IpfsCar.writeBlock(upload, cid, data);
+        } catch (IOException e) {
+            upload.abort();
+            upload = null;
+            throw e;
+        }
+        uploaded += data.length;
+        if (uploaded >= batchSize) {
+            finish();
+        }
+    }
+
+    private void finish() throws IOException {
+        IpfsRpc.Upload finished = upload;
+        upload = null;
+        finished.finish();
+        batches++;
+    }
+
+    /**
+     * The count of batches imported so far.
+     */
+    synchronized long batches() {
+        return batches;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (upload != null) {
+            finish();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.importer;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsConcurrencyLimiter;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsFactoryImpl;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsNamespacePublisherImpl;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Warms up namespace on node ahead of builds: refreshes namespace from its IPNS record, then fetches all its blocks
+ * with parallel workers and pins it (see warm pin option of publisher).
+ */
+public final class IpfsNamespaceWarmup {
+    private IpfsNamespaceWarmup() {}
+
+    /**
+     * Entry point. Arguments: {@code <multiaddr> <namespace> [<filesPrefix> [<threads> [<stateDirectory>]]]}. With
+     * state directory, interrupted warm-up resumes where it left off. Multiaddr may be Unix domain socket one, like
+     * {@code /unix/run/ipfs/api.sock}.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: IpfsNamespaceWarmup <multiaddr> <namespace> [<filesPrefix> [<threads> "
+                    + "[<stateDirectory>]]]");
+            System.exit(1);
+        }
+        IpfsNamespacePublisherOptions.Builder options = IpfsNamespacePublisherOptions.builder()
+                .warmPin(true)
+                .warmPinThreads(args.length > 3 ? Integer.parseInt(args[3]) : 8);
+        if (args.length > 4) {
+            options.warmPinStateDirectory(Paths.get(args[4]));
+        }
+        // refreshing the namespace triggers warm-up
+        new IpfsNamespacePublisherImpl(
+                        new IpfsFactoryImpl().createRpc(args[0]),
+                        new IpfsConcurrencyLimiter(),
+                        args[1],
+                        args.length > 2 ? args[2] : "publish",
+                        "",
+                        args[1],
+                        false,
+                        true,
+                        false,
+                        options.build(),
+                        null,
+                        null,
+                        null)
+                .close();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.importer;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsConcurrencyLimiter;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsFactoryImpl;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsNamespacePublisherImpl;
+import eu.maveniverse.maven.ipfs.core.internal.IpfsRpc;
+import io.ipfs.cid.Cid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports existing Maven repository directory (like Nexus storage, or file repository) into namespace in bulk: files
+ * are chunked and hashed in parallel, the DAG is built locally and imported into node in large batches, then linked
+ * into namespace, that is published once. Resulting CIDs are same as if files were deployed one by one, with same
+ * chunker, and with node using default directory sharding threshold (256 KiB).
+ */
+public class IpfsRepositoryImporter {
+    private static final long BATCH_SIZE = 256L * 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    /**
+     * Files that are local repository bookkeeping, not repository content.
+     */
+    private static final Pattern EXCLUDED = Pattern.compile(
+            "\\..*|_remote\\.repositories|resolver-status\\.properties|.*\\.lastUpdated|maven-metadata-.+\\.xml.*");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final IpfsRpc rpc;
+    private final int threads;
+    private final int chunkSize;
+    private final AtomicLong files;
+    private final AtomicLong bytes;
+
+    /**
+     * @param rpc the node to import into, see {@link IpfsFactoryImpl#createRpc(String)}.
+     * @param threads the count of parallel workers.
+     * @param chunker the chunker repository is deployed with (see {@link IpfsNamespacePublisherOptions#chunker()}),
+     *                or {@code null} for node default. Only fixed size chunkers are supported.
+     */
+    public IpfsRepositoryImporter(IpfsRpc rpc, int threads, String chunker) {
+        this.rpc = requireNonNull(rpc);
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.chunkSize = UnixfsDag.chunkSize(chunker);
+        this.files = new AtomicLong();
+        this.bytes = new AtomicLong();
+    }
+
+    /**
+     * Imports directory into node, and returns CID of it. Imported DAG is pinned.
+     */
+    public Cid importDirectory(Path directory) throws IOException {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "ipfs-import-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ipfs-import-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        progress.scheduleAtFixedRate(
+                () -> progress(started), PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        try {
+            UnixfsDag.Link root;
+            CarBatchSink sink = new CarBatchSink(rpc, BATCH_SIZE);
+            try (sink) {
+                root = importPath(new UnixfsDag(sink, chunkSize, UnixfsDag.MAX_LINKS), executor, directory)
+                        .join();
+            }
+            logger.info("Imported {} in {} batches, pinning...", root, sink.batches());
+            // node streams progress while pinning, so read timeout applies between progress reports only
+            rpc.json("pin/add", "arg", "/ipfs/" + root, "progress", "true");
+            progress(started);
+            return Cid.decode(root.toString());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            progress.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<UnixfsDag.Link> importPath(UnixfsDag dag, ExecutorService executor, Path path) {
+        if (!Files.isDirectory(path)) {
+            return CompletableFuture.supplyAsync(
+                    () -> {
+                        try (InputStream content = Files.newInputStream(path)) {
+                            UnixfsDag.Link file = dag.file(content);
+                            files.incrementAndGet();
+                            bytes.addAndGet(file.fileSize);
+                            return file;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    executor);
+        }
+        List<Path> children;
+        try (Stream<Path> list = Files.list(path)) {
+            children = list.filter(
+                            p -> !EXCLUDED.matcher(p.getFileName().toString()).matches())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Map<String, CompletableFuture<UnixfsDag.Link>> entries = new HashMap<>();
+        for (Path child : children) {
+            entries.put(child.getFileName().toString(), importPath(dag, executor, child));
+        }
+        return CompletableFuture.allOf(entries.values().toArray(new CompletableFuture[0]))
+                .thenApplyAsync(
+                        v -> {
+                            Map<String, UnixfsDag.Link> links = new HashMap<>();
+                            entries.forEach((name, link) -> links.put(name, link.join()));
+                            try {
+                                return dag.directory(links);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(path + ": " + e.getMessage(), e);
+                            }
+                        },
+                        executor);
+    }
+
+    private void progress(long started) {
+        double seconds = Math.max(1, System.nanoTime() - started) / 1_000_000_000.0;
+        logger.info(
+                "Imported {} files ({} MB); {} files/s, {} MB/s",
+                files.get(),
+                bytes.get() / 1024 / 1024,
+                String.format("%.1f", files.get() / seconds),
+                String.format("%.2f", bytes.get() / 1024.0 / 1024.0 / seconds));
+    }
+
+    /**
+     * Entry point. Arguments:
+     * {@code <multiaddr> <namespace> <directory> [<relPath> [<filesPrefix> [<threads> [<chunker>]]]]}. The imported
+     * directory replaces content at path in namespace (whole namespace, if path is empty), and namespace is
+     * published. Multiaddr may be Unix domain socket one, like {@code /unix/run/ipfs/api.sock}.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: IpfsRepositoryImporter <multiaddr> <namespace> <directory> [<relPath> "
+                    + "[<filesPrefix> [<threads> [<chunker>]]]]");
+            System.exit(1);
+        }
+        IpfsRpc rpc = new IpfsFactoryImpl().createRpc(args[0]);
+        String namespace = args[1];
+        Path directory = Paths.get(args[2]);
+        String relPath = args.length > 3 ? args[3] : "";
+        String filesPrefix = args.length > 4 ? args[4] : "publish";
+        int threads = args.length > 5
+                ? Integer.parseInt(args[5])
+                : Runtime.getRuntime().availableProcessors();
+        String chunker = args.length > 6 ? args[6] : null;
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Not a directory: " + directory);
+        }
+
+        Cid cid = new IpfsRepositoryImporter(rpc, threads, chunker).importDirectory(directory);
+        try (IpfsNamespacePublisherImpl publisher = new IpfsNamespacePublisherImpl(
+                rpc,
+                new IpfsConcurrencyLimiter(),
+                namespace,
+                filesPrefix,
+                "",
+                namespace,
+                true,
+                false,
+                true,
+                IpfsNamespacePublisherOptions.builder().chunker(chunker).build(),
+                null,
+                null,
+                null)) {
+            publisher.link(relPath, cid);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.importer;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.ipfs.core.car.IpfsCar;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds UnixFS DAGs locally, the way node adds content with CIDv1, raw leaves and fixed size chunker (balanced
+ * layout), so imported content has same CIDs as content deployed through publisher with same chunker. Directories are
+ * HAMT sharded the way node shards them (with default sharding threshold and fanout).
+ */
+final class UnixfsDag {
+    static final int CHUNK_SIZE = 256 * 1024;
+    static final int MAX_LINKS = 174;
+    static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * Estimated size of directory links (name and CID bytes), from which node shards directory.
+     */
+    static final int SHARDING_THRESHOLD = 256 * 1024;
+
+    private static final int HAMT_FANOUT = 256;
+    private static final int HAMT_MAX_DEPTH = Long.BYTES;
+    private static final int HASH_MURMUR3_X64_64 = 0x22;
+
+    private static final String FIXED_SIZE_CHUNKER = "size-";
+
+    private static final int CODEC_RAW = 0x55;
+    private static final int CODEC_DAG_PB = 0x70;
+    private static final int UNIXFS_DIRECTORY = 1;
+    private static final int UNIXFS_FILE = 2;
+    private static final int UNIXFS_HAMT_SHARD = 5;
+    private static final char[] BASE32 = "abcdefghijklmnopqrstuvwxyz234567".toCharArray();
+
+    /**
+     * Receives blocks of built DAGs, children before parents. May be invoked concurrently.
+     */
+    interface BlockSink {
+        void put(byte[] cid, byte[] data) throws IOException;
+    }
+
+    /**
+     * Built DAG node, as linked from its parent.
+     */
+    static final class Link {
+        final byte[] cid;
+        final long tsize;
+        final long fileSize;
+
+        private Link(byte[] cid, long tsize, long fileSize) {
+            this.cid = cid;
+            this.tsize = tsize;
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public String toString() {
+            return UnixfsDag.toString(cid);
+        }
+    }
+
+    private final BlockSink sink;
+    private final int chunkSize;
+    private final int maxLinks;
+
+    UnixfsDag(BlockSink sink) {
+        this(sink, CHUNK_SIZE, MAX_LINKS);
+    }
+
+    UnixfsDag(BlockSink sink, int chunkSize, int maxLinks) {
+        this.sink = requireNonNull(sink);
+        this.chunkSize = chunkSize;
+        this.maxLinks = maxLinks;
+    }
+
+    /**
+     * Returns chunk size of given chunker, as accepted by node (see {@code chunker} option of publisher), or default
+     * chunk size, if none. Only fixed size chunkers are supported, content defined ones are implemented by node only.
+     */
+    static int chunkSize(String chunker) {
+        if (chunker == null || chunker.isBlank()) {
+            return CHUNK_SIZE;
+        }
+        if (chunker.startsWith(FIXED_SIZE_CHUNKER)) {
+            try {
+                int chunkSize = Integer.parseInt(chunker.substring(FIXED_SIZE_CHUNKER.length()));
+                if (chunkSize > 0 && chunkSize <= MAX_BLOCK_SIZE) {
+                    return chunkSize;
+                }
+            } catch (NumberFormatException e) {
+                // unsupported
+            }
+        }
+        throw new IllegalArgumentException("Unsupported chunker " + chunker + ": only fixed size chunkers (size-N, "
+                + "N up to " + MAX_BLOCK_SIZE + ") can be imported, deploy content with this chunker instead");
+    }
+
+    /**
+     * Builds file DAG of content.
+     */
+    Link file(InputStream content) throws IOException {
+        List<Link> links = new ArrayList<>();
+        byte[] chunk;
+        do {
+            chunk = content.readNBytes(chunkSize);
+            if (chunk.length > 0 || links.isEmpty()) {
+                byte[] cid = cid(CODEC_RAW, chunk);
+                sink.put(cid, chunk);
+                links.add(new Link(cid, chunk.length, chunk.length));
+            }
+        } while (chunk.length == chunkSize);
+        // balanced layout: every node but the rightmost ones on each level is full
+        while (links.size() > 1) {
+            List<Link> parents = new ArrayList<>();
+            for (int i = 0; i < links.size(); i += maxLinks) {
+                parents.add(fileNode(links.subList(i, Math.min(i + maxLinks, links.size()))));
+            }
+            links = parents;
+        }
+        return links.get(0);
+    }
+
+    private Link fileNode(List<Link> children) throws IOException {
+        long fileSize = 0;
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (Link child : children) {
+            fileSize += child.fileSize;
+        }
+        field(data, 1, UNIXFS_FILE);
+        field(data, 3, fileSize);
+        for (Link child : children) {
+            field(data, 4, child.fileSize);
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < children.size(); i++) {
+            names.add("");
+        }
+        return node(names, children, data.toByteArray(), fileSize);
+    }
+
+    /**
+     * Builds directory node of given entries, sharded if links exceed {@link #SHARDING_THRESHOLD}.
+     */
+    Link directory(Map<String, Link> entries) throws IOException {
+        long estimatedSize = 0;
+        for (Map.Entry<String, Link> entry : entries.entrySet()) {
+            estimatedSize += entry.getKey().getBytes(StandardCharsets.UTF_8).length + entry.getValue().cid.length;
+        }
+        if (estimatedSize >= SHARDING_THRESHOLD) {
+            return shard(new ArrayList<>(entries.keySet()), entries, 0);
+        }
+        List<String> names = new ArrayList<>(entries.keySet());
+        // links are ordered by name bytes
+        names.sort((a, b) ->
+                Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+        List<Link> links = new ArrayList<>();
+        for (String name : names) {
+            links.add(entries.get(name));
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        field(data, 1, UNIXFS_DIRECTORY);
+        return node(names, links, data.toByteArray(), 0);
+    }
+
+    /**
+     * Builds HAMT shard of given names at given depth: names are placed by byte of their hash at depth, and names
+     * sharing slot go to shard one level deeper. Links are named by hex slot index, followed by name for entries.
+     */
+    private Link shard(List<String> names, Map<String, Link> entries, int depth) throws IOException {
+        if (depth == HAMT_MAX_DEPTH) {
+            throw new IOException("Directory entries " + names + " have same hash, cannot be sharded");
+        }
+        TreeMap<Integer, List<String>> slots = new TreeMap<>();
+        for (String name : names) {
+            int index = (int) (murmur3(name.getBytes(StandardCharsets.UTF_8)) >>> (8 * (HAMT_MAX_DEPTH - 1 - depth)))
+                    & 0xff;
+            slots.computeIfAbsent(index, k -> new ArrayList<>()).add(name);
+        }
+        byte[] bitfield = new byte[HAMT_FANOUT / 8];
+        List<String> linkNames = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> slot : slots.entrySet()) {
+            int index = slot.getKey();
+            bitfield[bitfield.length - 1 - index / 8] |= (byte) (1 << (index % 8));
+            String prefix = String.format("%02X", index);
+            if (slot.getValue().size() == 1) {
+                String name = slot.getValue().get(0);
+                linkNames.add(prefix + name);
+                links.add(entries.get(name));
+            } else {
+                linkNames.add(prefix);
+                links.add(shard(slot.getValue(), entries, depth + 1));
+            }
+        }
+        int leadingZeros = 0;
+        while (bitfield[leadingZeros] == 0) {
+            leadingZeros++;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        field(data, 1, UNIXFS_HAMT_SHARD);
+        field(data, 2, Arrays.copyOfRange(bitfield, leadingZeros, bitfield.length));
+        field(data, 5, HASH_MURMUR3_X64_64);
+        field(data, 6, HAMT_FANOUT);
+        return node(linkNames, links, data.toByteArray(), 0);
+    }
+
+    /**
+     * Returns first half of MurmurHash3 x64 128-bit hash (seed 0), the hash function of HAMT shards.
+     */
+    static long murmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = data.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = littleEndian(data, i * 16, 8);
+            long k2 = littleEndian(data, i * 16 + 8, 8);
+            h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+            h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+            h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+        }
+        int tail = blocks * 16;
+        int remaining = data.length - tail;
+        if (remaining > 8) {
+            h2 ^= Long.rotateLeft(littleEndian(data, tail + 8, remaining - 8) * c2, 33) * c1;
+        }
+        if (remaining > 0) {
+            h1 ^= Long.rotateLeft(littleEndian(data, tail, Math.min(remaining, 8)) * c1, 31) * c2;
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        return h1 + h2;
+    }
+
+    private static long littleEndian(byte[] data, int offset, int length) {
+        long result = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            result = (result << 8) | (data[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Encodes DAG-PB node (links first, then data) and passes it to sink.
+     */
+    private Link node(List<String> names, List<Link> links, byte[] data, long fileSize) throws IOException {
+        ByteArrayOutputStream node = new ByteArrayOutputStream();
+        long tsize = 0;
+        for (int i = 0; i < links.size(); i++) {
+            Link link = links.get(i);
+            ByteArrayOutputStream pbLink = new ByteArrayOutputStream();
+            field(pbLink, 1, link.cid);
+            field(pbLink, 2, names.get(i).getBytes(StandardCharsets.UTF_8));
+            field(pbLink, 3, link.tsize);
+            field(node, 2, pbLink.toByteArray());
+            tsize += link.tsize;
+        }
+        field(node, 1, data);
+        byte[] block = node.toByteArray();
+        byte[] cid = cid(CODEC_DAG_PB, block);
+        sink.put(cid, block);
+        return new Link(cid, tsize + block.length, fileSize);
+    }
+
+    private static void field(ByteArrayOutputStream out, int number, long value) throws IOException {
+        IpfsCar.writeVarint(out, (long) number << 3);
+        IpfsCar.writeVarint(out, value);
+    }
+
+    private static void field(ByteArrayOutputStream out, int number, byte[] value) throws IOException {
+        IpfsCar.writeVarint(out, ((long) number << 3) | 2);
+        IpfsCar.writeVarint(out, value.length);
+        out.write(value);
+    }
+
+    /**
+     * Returns binary CIDv1 of block, with SHA2-256 multihash.
+     */
+    static byte[] cid(int codec, byte[] block) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(block);
+            byte[] cid = new byte[4 + digest.length];
+            cid[0] = 0x01;
+            cid[1] = (byte) codec;
+            cid[2] = 0x12;
+            cid[3] = (byte) digest.length;
+            System.arraycopy(digest, 0, cid, 4, digest.length);
+            return cid;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns string form of binary CIDv1: multibase base32.
+     */
+    static String toString(byte[] cid) {
+        StringBuilder result = new StringBuilder("b");
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : cid) {
+            buffer = (buffer << 8) | (b & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                result.append(BASE32[(buffer >>> (bits - 5)) & 0x1f]);
+                bits -= 5;
+            }
+        }
+        if (bits > 0) {
+            result.append(BASE32[(buffer << (5 - bits)) & 0x1f]);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.importer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class UnixfsDagTest {
+    private final Map<String, byte[]> blocks = new LinkedHashMap<>();
+    private final UnixfsDag dag = new UnixfsDag((cid, data) -> blocks.put(UnixfsDag.toString(cid), data));
+
+    @Test
+    void smallFilesAreRawBlocks() throws IOException {
+        assertEquals(
+                "bafkreihdwdcefgh4dqkjv67uzcmw7ojee6xedzdetojuzjevtenxquvyku",
+                dag.file(new ByteArrayInputStream(new byte[0])).toString());
+        UnixfsDag.Link hello = dag.file(new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("bafkreifzjut3te2nhyekklss27nh3k72ysco7y32koao5eei66wof36n5e", hello.toString());
+        assertEquals(11, hello.tsize);
+        assertEquals(2, blocks.size());
+    }
+
+    @Test
+    void emptyDirectory() throws IOException {
+        assertEquals(
+                "bafybeiczsscdsbs7ffqz55asqdf3smv6klcw3gofszvwlyarci47bgf354",
+                dag.directory(Map.of()).toString());
+    }
+
+    @Test
+    void balancedLayout() throws IOException {
+        UnixfsDag small = new UnixfsDag((cid, data) -> blocks.put(UnixfsDag.toString(cid), data), 4, 2);
+        // 3 leaves (4, 4, 1 bytes), 2 nodes above them, and the root
+        UnixfsDag.Link root = small.file(new ByteArrayInputStream("123456789".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(6, blocks.size());
+        assertEquals(9, root.fileSize);
+        List<String> order = new ArrayList<>(blocks.keySet());
+        assertEquals(root.toString(), order.get(order.size() - 1));
+        long blockBytes = blocks.values().stream().mapToLong(b -> b.length).sum();
+        assertEquals(blockBytes, root.tsize);
+    }
+
+    @Test
+    void directoryLinksAreSortedByName() throws IOException {
+        UnixfsDag.Link a = dag.file(new ByteArrayInputStream("a".getBytes(StandardCharsets.UTF_8)));
+        UnixfsDag.Link b = dag.file(new ByteArrayInputStream("b".getBytes(StandardCharsets.UTF_8)));
+        Map<String, UnixfsDag.Link> forward = new LinkedHashMap<>();
+        forward.put("a.pom", a);
+        forward.put("b.jar", b);
+        Map<String, UnixfsDag.Link> backward = new LinkedHashMap<>();
+        backward.put("b.jar", b);
+        backward.put("a.pom", a);
+        assertEquals(dag.directory(forward).toString(), dag.directory(backward).toString());
+    }
+
+    @Test
+    void bigDirectoryIsSharded() throws IOException {
+        UnixfsDag.Link a = dag.file(new ByteArrayInputStream(new byte[0]));
+        Map<String, UnixfsDag.Link> entries = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            entries.put("artifact-" + i + ".jar", a);
+        }
+        byte[] root = blocks.get(dag.directory(entries).toString());
+        // unixfs data ends with hash type (murmur3-x64-64) and fanout (256)
+        assertTrue(endsWith(root, 0x28, 0x22, 0x30, 0x80, 0x02));
+        assertTrue(blocks.values().stream().allMatch(b -> b.length <= UnixfsDag.MAX_BLOCK_SIZE));
+    }
+
+    @Test
+    void smallDirectoryIsNotSharded() throws IOException {
+        UnixfsDag.Link a = dag.file(new ByteArrayInputStream(new byte[0]));
+        Map<String, UnixfsDag.Link> entries = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            entries.put("artifact-" + i + ".jar", a);
+        }
+        byte[] root = blocks.get(dag.directory(entries).toString());
+        // unixfs data of plain directory
+        assertTrue(endsWith(root, 0x0a, 0x02, 0x08, 0x01));
+    }
+
+    @Test
+    void murmur3() {
+        assertEquals(0L, UnixfsDag.murmur3(new byte[0]));
+        assertEquals(0xcbd8a7b341bd9b02L, UnixfsDag.murmur3("hello".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x96163939c7dcf88cL, UnixfsDag.murmur3("maven-metadata.xml".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static boolean endsWith(byte[] block, int... suffix) {
+        byte[] expected = new byte[suffix.length];
+        for (int i = 0; i < suffix.length; i++) {
+            expected[i] = (byte) suffix[i];
+        }
+        return Arrays.equals(block, block.length - expected.length, block.length, expected, 0, expected.length);
+    }
+
+    @Test
+    void chunkSize() {
+        assertEquals(UnixfsDag.CHUNK_SIZE, UnixfsDag.chunkSize(null));
+        assertEquals(UnixfsDag.CHUNK_SIZE, UnixfsDag.chunkSize(""));
+        assertEquals(1024 * 1024, UnixfsDag.chunkSize("size-1048576"));
+        assertThrows(IllegalArgumentException.class, () -> UnixfsDag.chunkSize("size-0"));
+        assertThrows(IllegalArgumentException.class, () -> UnixfsDag.chunkSize("size-2097152"));
+        assertThrows(IllegalArgumentException.class, () -> UnixfsDag.chunkSize("rabin"));
+        assertThrows(IllegalArgumentException.class, () -> UnixfsDag.chunkSize("buzhash"));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Host wide store of artifact content keyed by CID, shared by all repositories, namespaces and local repositories:
+ * same content is fetched from node, and stored, once per host. Files are materialized by hard link where file system
+ * allows, otherwise by copy. When stored content exceeds maximum size, least recently used content is evicted.
+ * <p>
+ * Store may be shared by concurrent processes: files are added by atomic move, and reads verify size. Content is
+ * linked, hence it must not be modified in place, as Resolver does not (it replaces files). For same reason use is
+ * tracked by marker files next to content, as times of content are shared with every materialized copy.
+ * <p>
+ * Stored content is not verified against its CID when served, as that means hashing whole file on every get: store
+ * directory is trusted like local repository is, so it must be writable only by users trusted to write to local
+ * repositories using it. Served content still passes Resolver checksum validation, same as content got from node.
+ */
+final class IpfsContentStore {
+    /**
+     * Content smaller than this is not stored: it is cheaper to fetch it again than to link it.
+     */
+    static final long MIN_SIZE = 16 * 1024;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String USED_SUFFIX = ".used";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong size;
+
+    IpfsContentStore(Path directory, long maxSize) throws IOException {
+        this.directory = requireNonNull(directory);
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        this.size = new AtomicLong(
+                files().stream().mapToLong(IpfsContentStore::sizeOf).sum());
+    }
+
+    /**
+     * Whether content of given path and size is worth storing: artifacts are, metadata (that changes) and small
+     * files (like checksums) are not.
+     */
+    static boolean accepts(String path, long size) {
+        return size >= MIN_SIZE && !path.substring(path.lastIndexOf('/') + 1).startsWith("maven-metadata");
+    }
+
+    /**
+     * Returns stored content of given CID, if present.
+     */
+    Optional<Path> get(String cid, long expectedSize) throws IOException {
+        Path file = file(cid);
+        try {
+            long actualSize = Files.size(file);
+            if (actualSize != expectedSize) {
+                logger.warn("Dropping stored content {}: size mismatch", cid);
+                if (Files.deleteIfExists(file)) {
+                    size.addAndGet(-actualSize);
+                }
+                Files.deleteIfExists(used(file));
+                return Optional.empty();
+            }
+            markUsed(file);
+            return Optional.of(file);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores content of given CID from file, unless already stored.
+     */
+    void put(String cid, Path content) throws IOException {
+        Path file = file(cid);
+        if (Files.exists(file)) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(cid + "." + UUID.randomUUID() + TMP_SUFFIX);
+        try {
+            link(content, tmp);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        markUsed(file);
+        if (size.addAndGet(Files.size(file)) > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Materializes stored content at target, replacing it.
+     */
+    void materialize(Path stored, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        link(stored, target);
+    }
+
+    private static void link(Path existing, Path link) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | IOException e) {
+            // different file stores, or file system without hard links
+            Files.copy(existing, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Evicts least recently used content, down to 90% of maximum size, to not evict on every put.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> files = files();
+        long used = files.stream().mapToLong(IpfsContentStore::sizeOf).sum();
+        long target = maxSize / 10 * 9;
+        files.sort(Comparator.comparing(IpfsContentStore::lastUsed));
+        int evicted = 0;
+        for (Path file : files) {
+            if (used <= target) {
+                break;
+            }
+            long fileSize = sizeOf(file);
+            if (Files.deleteIfExists(file)) {
+                used -= fileSize;
+                evicted++;
+            }
+            Files.deleteIfExists(used(file));
+        }
+        size.set(used);
+        logger.debug("Evicted {} files from content store {}, {} bytes used", evicted, directory, used);
+    }
+
+    private Path file(String cid) {
+        if (cid.length() < 4 || cid.contains("/") || cid.contains("\\") || cid.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid CID: " + cid);
+        }
+        // CIDs share their multibase/version prefix: shard on the last characters
+        return directory.resolve(cid.substring(cid.length() - 2)).resolve(cid);
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(f -> !f.getFileName().toString().endsWith(TMP_SUFFIX)
+                            && !f.getFileName().toString().endsWith(USED_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the use marker of content file.
+     */
+    static Path used(Path file) {
+        return file.resolveSibling(file.getFileName() + USED_SUFFIX);
+    }
+
+    /**
+     * Marks use of content, for eviction, by (re)writing its empty marker file.
+     */
+    private static void markUsed(Path file) throws IOException {
+        Files.write(used(file), new byte[0]);
+    }
+
+    /**
+     * Returns the last use of content, or its modification time, if never marked.
+     */
+    private static FileTime lastUsed(Path file) {
+        try {
+            return Files.getLastModifiedTime(used(file));
+        } catch (NoSuchFileException e) {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (NoSuchFileException e2) {
+                return FileTime.fromMillis(0);
+            } catch (IOException e2) {
+                throw new UncheckedIOException(e2);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "content store " + directory + " (" + size.get() + "/" + maxSize + " bytes)";
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority aware scheduler of transfers going to same IPFS node. It limits the count of concurrently executing
+ * transfers, and when limit is reached, queued transfers are let through in order of {@link Priority} (and in FIFO
+ * order within same priority). This lets small, dependency graph critical requests (POMs, metadata, checksums)
+ * overtake bulk transfers of big binaries. Waits for slots are recorded as {@link IpfsTransferSlotEvent}.
+ */
+final class IpfsTransferScheduler {
+    /**
+     * Transfer priorities, in decreasing order of importance.
+     */
+    enum Priority {
+        PEEK,
+        SMALL_GET,
+        LARGE_GET,
+        PUT,
+        /**
+         * Speculative warm-up of node blockstore, that nothing waits for.
+         */
+        PREFETCH
+    }
+
+    /**
+     * Granted slot, that must be closed once transfer is done.
+     */
+    interface Slot extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final String[] GRAPH_CRITICAL_SUFFIXES = {".pom", "maven-metadata.xml"};
+
+    private static final String[] CHECKSUM_SUFFIXES = {".asc", ".md5", ".sha1", ".sha256", ".sha512"};
+
+    /**
+     * Returns the priority for a GET of given path.
+     */
+    static Priority getPriority(String path) {
+        for (String checksum : CHECKSUM_SUFFIXES) {
+            if (path.endsWith(checksum)) {
+                // checksums are tiny, whatever they belong to
+                return Priority.SMALL_GET;
+            }
+        }
+        return Arrays.stream(GRAPH_CRITICAL_SUFFIXES).anyMatch(path::endsWith)
+                ? Priority.SMALL_GET
+                : Priority.LARGE_GET;
+    }
+
+    private final int maxConcurrent;
+    private final ReentrantLock lock;
+    private final Condition changed;
+    private final PriorityQueue<Waiter> queue;
+    private long sequence;
+    private int running;
+
+    IpfsTransferScheduler(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.lock = new ReentrantLock();
+        this.changed = lock.newCondition();
+        this.queue = new PriorityQueue<>();
+    }
+
+    /**
+     * Acquires a slot for transfer of given priority, blocking until it is granted.
+     */
+    Slot acquire(Priority priority) throws InterruptedIOException {
+        requireNonNull(priority);
+        IpfsTransferSlotEvent event = new IpfsTransferSlotEvent();
+        event.begin();
+        int queueDepth;
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(priority, sequence++);
+            queue.add(waiter);
+            queueDepth = queue.size();
+            try {
+                while (queue.peek() != waiter || running >= maxConcurrent) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                queue.remove(waiter);
+                changed.signalAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for IPFS transfer slot");
+            }
+            queue.poll();
+            running++;
+            // next in line may proceed as well, if there are free slots
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.priority = priority.name();
+            event.queueDepth = queueDepth;
+            event.commit();
+        }
+        return this::release;
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Current count of transfers waiting for a slot.
+     */
+    int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Priority priority;
+        private final long sequence;
+
+        private Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            int result = priority.compareTo(o.priority);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of waiting for transfer slot of {@link IpfsTransferScheduler}, recorded once slot is granted.
+ * Duration is the time transfer spent queued.
+ */
+@Name("eu.maveniverse.maven.ipfs.TransferSlot")
+@Label("IPFS Transfer Slot")
+@Category({"Maven", "IPFS"})
+@Description("Wait for slot to transfer from or to IPFS node")
+@StackTrace(false)
+final class IpfsTransferSlotEvent extends Event {
+    @Label("Priority")
+    String priority;
+
+    @Label("Queue Depth")
+    @Description("The count of transfers waiting for slot, this one included, when it was queued")
+    int queueDepth;
+}
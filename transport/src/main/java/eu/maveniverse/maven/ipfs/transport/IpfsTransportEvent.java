@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+
+/**
+ * Flight Recorder event of transport operation, with stack trace of Resolver caller. Duration covers waiting for
+ * transfer slot too. Fields are mostly set only if event is recorded, so disabled event costs next to nothing.
+ */
+@Name("eu.maveniverse.maven.ipfs.Transport")
+@Label("IPFS Transport")
+@Category({"Maven", "IPFS"})
+@Description("Peek, get or put of IPFS transport")
+final class IpfsTransportEvent extends Event {
+    @Label("Namespace")
+    String namespace;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Source")
+    @Description("Where got content came from: bundle, store or node")
+    String source;
+
+    @Label("Outcome")
+    @Description("One of ok, not found or failure")
+    String outcome;
+
+    @Label("Error")
+    String error;
+
+    static IpfsTransportEvent start() {
+        IpfsTransportEvent event = new IpfsTransportEvent();
+        event.begin();
+        return event;
+    }
+
+    void transferred(long bytes, String source) {
+        this.bytes = bytes;
+        this.source = source;
+    }
+
+    /**
+     * Ends event and records it, if enabled.
+     *
+     * @param failure the failure of operation, or {@code null} if it succeeded.
+     * @param errorClass the failure classified by transporter, see {@link Transporter#classify(Throwable)}.
+     */
+    void finish(String namespace, String operation, String path, Throwable failure, int errorClass) {
+        end();
+        if (shouldCommit()) {
+            this.namespace = namespace;
+            this.operation = operation;
+            this.path = path;
+            this.outcome = failure == null ? "ok" : errorClass == Transporter.ERROR_NOT_FOUND ? "not found" : "failure";
+            this.error = failure != null ? failure.getMessage() : null;
+            commit();
+        }
+    }
+}
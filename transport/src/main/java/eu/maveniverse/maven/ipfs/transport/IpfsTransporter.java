@@ -9,29 +9,54 @@ package eu.maveniverse.maven.ipfs.transport;
 
 import static java.util.Objects.requireNonNull;
 
+import eu.maveniverse.maven.ipfs.core.IpfsContentUnavailableException;
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 import org.eclipse.aether.spi.connector.transport.AbstractTransporter;
 import org.eclipse.aether.spi.connector.transport.GetTask;
 import org.eclipse.aether.spi.connector.transport.PeekTask;
 import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.eclipse.aether.spi.connector.transport.TransportListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A transporter using {@link IpfsNamespacePublisher} to implement transport features.
  */
 final class IpfsTransporter extends AbstractTransporter {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final IpfsNamespacePublisher publisher;
+    private final IpfsTransferScheduler scheduler;
+    private final IpfsContentStore store;
     private final boolean closePublisher;
 
-    IpfsTransporter(IpfsNamespacePublisher publisher, boolean closePublisher) {
+    /**
+     * @param store the host wide content store, or {@code null}.
+     */
+    IpfsTransporter(
+            IpfsNamespacePublisher publisher,
+            IpfsTransferScheduler scheduler,
+            IpfsContentStore store,
+            boolean closePublisher) {
         this.publisher = requireNonNull(publisher);
+        this.scheduler = requireNonNull(scheduler);
+        this.store = store;
         this.closePublisher = closePublisher;
     }
 
+    /**
+     * Only content known to be absent from namespace is not found. Deadlines exceeded (see
+     * {@link IpfsContentUnavailableException}) are errors, even if content is most likely not available from any
+     * peer: Resolver caches not found outcomes, so a slow node or temporary lack of peers would otherwise make the
+     * artifact missing until the cached outcome expires. Resolution still moves on to next repository.
+     */
     @Override
     public int classify(Throwable error) {
         if (error instanceof ResourceNotFoundException) {
@@ -40,25 +65,89 @@ final class IpfsTransporter extends AbstractTransporter {
         return ERROR_OTHER;
     }
 
+    @FunctionalInterface
+    private interface Operation {
+        void run(IpfsTransportEvent event) throws Exception;
+    }
+
+    /**
+     * Runs transport operation, recording it as Flight Recorder event.
+     */
+    private void recorded(String operation, String path, Operation body) throws Exception {
+        IpfsTransportEvent event = IpfsTransportEvent.start();
+        try {
+            body.run(event);
+            event.finish(publisher.namespace(), operation, path, null, 0);
+        } catch (Exception e) {
+            event.finish(publisher.namespace(), operation, path, e, classify(e));
+            throw e;
+        }
+    }
+
     @Override
     protected void implPeek(PeekTask task) throws Exception {
-        Optional<IpfsNamespacePublisher.Stat> stat =
-                publisher.stat(task.getLocation().getPath());
-        if (stat.isEmpty() || !stat.orElseThrow().file()) {
-            throw new ResourceNotFoundException();
+        recorded("peek", task.getLocation().getPath(), event -> peek(task, event));
+    }
+
+    private void peek(PeekTask task, IpfsTransportEvent event) throws Exception {
+        try (IpfsTransferScheduler.Slot slot = scheduler.acquire(IpfsTransferScheduler.Priority.PEEK)) {
+            Optional<IpfsNamespacePublisher.Stat> stat =
+                    publisher.stat(task.getLocation().getPath());
+            if (stat.isEmpty() || !stat.orElseThrow().file()) {
+                throw new ResourceNotFoundException();
+            }
+            event.transferred(0, "node");
         }
     }
 
     @Override
     protected void implGet(GetTask task) throws Exception {
-        Optional<IpfsNamespacePublisher.Stat> stat =
-                publisher.stat(task.getLocation().getPath());
-        if (stat.isPresent() && stat.orElseThrow().file()) {
-            IpfsNamespacePublisher.Stat node = stat.orElseThrow();
-            Optional<InputStream> nodeContent = publisher.get(node.hash());
-            if (nodeContent.isPresent()) {
-                try (InputStream content = nodeContent.orElseThrow()) {
-                    utilGet(task, content, true, node.size(), false);
+        recorded("get", task.getLocation().getPath(), event -> get(task, event));
+    }
+
+    private void get(GetTask task, IpfsTransportEvent event) throws Exception {
+        String path = task.getLocation().getPath();
+        // fetching directory bundle is bulk transfer, even if triggered by small file
+        IpfsTransferScheduler.Priority priority = publisher.fetchesBundle(path)
+                ? IpfsTransferScheduler.Priority.LARGE_GET
+                : IpfsTransferScheduler.getPriority(path);
+        try (IpfsTransferScheduler.Slot slot = scheduler.acquire(priority)) {
+            Optional<Path> bundled = publisher.getBundled(path);
+            if (bundled.isPresent()) {
+                try (InputStream content = Files.newInputStream(bundled.orElseThrow())) {
+                    utilGet(task, content, true, Files.size(bundled.orElseThrow()), false);
+                    event.transferred(Files.size(bundled.orElseThrow()), "bundle");
+                    publisher.recordAccess(path);
+                    return;
+                }
+            }
+            Optional<IpfsNamespacePublisher.Stat> stat = publisher.stat(path);
+            if (stat.isPresent() && stat.orElseThrow().file()) {
+                IpfsNamespacePublisher.Stat node = stat.orElseThrow();
+                boolean stored = store != null && IpfsContentStore.accepts(path, node.size());
+                if (stored) {
+                    Optional<Path> content = store.get(node.hash().toString(), node.size());
+                    if (content.isPresent()) {
+                        getStored(task, content.orElseThrow(), node.size());
+                        event.transferred(node.size(), "store");
+                        publisher.recordAccess(path);
+                        return;
+                    }
+                }
+                Optional<InputStream> nodeContent = publisher.get(node.hash());
+                if (nodeContent.isPresent()) {
+                    try (InputStream content = nodeContent.orElseThrow()) {
+                        utilGet(task, content, true, node.size(), false);
+                    }
+                    event.transferred(node.size(), "node");
+                    publisher.recordAccess(path);
+                    if (stored && task.getDataFile() != null) {
+                        try {
+                            store.put(node.hash().toString(), task.getDataFile().toPath());
+                        } catch (IOException e) {
+                            logger.debug("Could not store {} in {}: {}", path, store, e.getMessage());
+                        }
+                    }
                     return;
                 }
             }
@@ -66,12 +155,49 @@ final class IpfsTransporter extends AbstractTransporter {
         throw new ResourceNotFoundException();
     }
 
+    /**
+     * Gets content from store: data file is linked to stored content, and then read to pass it to listener, as
+     * connector calculates checksums from transported content.
+     */
+    private void getStored(GetTask task, Path content, long size) throws Exception {
+        if (task.getDataFile() == null) {
+            try (InputStream in = Files.newInputStream(content)) {
+                utilGet(task, in, true, size, false);
+            }
+            return;
+        }
+        Path dataFile = task.getDataFile().toPath();
+        store.materialize(content, dataFile);
+        TransportListener listener = task.getListener();
+        listener.transportStarted(0, size);
+        try (InputStream in = Files.newInputStream(dataFile)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                listener.transportProgressed(ByteBuffer.wrap(buffer, 0, read));
+            }
+        }
+    }
+
     @Override
     protected void implPut(PutTask task) throws Exception {
-        try (InputStream inputStream = task.newInputStream()) {
-            publisher.put(task.getLocation().getPath(), inputStream);
+        recorded("put", task.getLocation().getPath(), event -> put(task, event));
+    }
+
+    private void put(PutTask task, IpfsTransportEvent event) throws Exception {
+        try (IpfsTransferScheduler.Slot slot = scheduler.acquire(IpfsTransferScheduler.Priority.PUT);
+                IpfsNamespacePublisher.Upload upload = task.getDataFile() != null
+                        ? publisher.put(
+                                task.getLocation().getPath(), task.getDataFile().toPath())
+                        : publisher.put(task.getLocation().getPath())) {
+            try {
+                // progress is reported as bytes are handed over to node
+                utilPut(task, upload.outputStream(), false);
+                event.transferred(task.getDataLength(), "node");
+            } catch (Exception e) {
+                upload.abort();
+                throw e;
+            }
         }
-        utilPut(task, OutputStream.nullOutputStream(), true);
     }
 
     @Override
@@ -18,7 +18,9 @@ public final class IpfsTransporterConfigurationKeys {
     private static final String CONFIG_PROPS_PREFIX = "aether.transport." + IpfsTransporterFactory.NAME + ".";
 
     /**
-     * Multiaddress of node to connect to, by default expects local node.
+     * Multiaddress of node to connect to, by default expects local node. Node API listening on Unix domain socket,
+     * like {@code /unix/run/ipfs/api.sock}, is supported on Java 16 or newer, and spares loopback TCP overhead of
+     * chatty calls, like stat.
      *
      * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
      * @configurationType {@link String}
@@ -88,6 +90,366 @@ public final class IpfsTransporterConfigurationKeys {
 
     public static final boolean DEFAULT_NAMESPACE_KEY_CREATE = true;
 
+    /**
+     * Whether to deploy artifacts already present on local disk by reference (Kubo filestore, {@code --nocopy}),
+     * instead of copying their content into node blockstore. Requires a co-located node with filestore enabled
+     * ({@code Experimental.FilestoreEnabled}), and files being under filestore root, otherwise content is added by
+     * copy. Published CIDs are same in both cases. Note: referenced files must not be changed nor removed, as
+     * node serves content from them.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_NOCOPY}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_NOCOPY = CONFIG_PROPS_PREFIX + "nocopy";
+
+    public static final boolean DEFAULT_NOCOPY = false;
+
+    /**
+     * The chunker to use when adding deployed content: {@code size-N} (fixed size chunks of N bytes),
+     * {@code rabin[-min-avg-max]} or {@code buzhash}. Content defined chunkers (rabin, buzhash) let consecutive
+     * versions (like SNAPSHOTs) of big artifacts share blocks, so less has to be stored and transferred. If not set,
+     * node default is used (fixed size chunks). Note: chunker affects CIDs of published content.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_CHUNKER = CONFIG_PROPS_PREFIX + "chunker";
+
+    /**
+     * The deadline in milliseconds of path stat against IPFS node. On timeout the transfer fails (it is not
+     * considered not found, as that outcome is cached by Resolver).
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_STAT_TIMEOUT}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_STAT_TIMEOUT = CONFIG_PROPS_PREFIX + "statTimeout";
+
+    public static final long DEFAULT_STAT_TIMEOUT = 30_000L;
+
+    /**
+     * The deadline in milliseconds for IPFS node to start providing content. Node keeps looking for content not
+     * available from any peer indefinitely; on timeout the transfer fails, so resolution can move on to next
+     * repository (it is not considered not found, as that outcome is cached by Resolver).
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_FIRST_BYTE_TIMEOUT}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_FIRST_BYTE_TIMEOUT = CONFIG_PROPS_PREFIX + "firstByteTimeout";
+
+    public static final long DEFAULT_FIRST_BYTE_TIMEOUT = 30_000L;
+
+    /**
+     * The longest tolerated pause in milliseconds between bytes of content being received (waiting for response
+     * included). On timeout the transfer fails.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_STALL_TIMEOUT}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_STALL_TIMEOUT = CONFIG_PROPS_PREFIX + "stallTimeout";
+
+    public static final long DEFAULT_STALL_TIMEOUT = 60_000L;
+
+    /**
+     * How long in milliseconds are not found metadata and snapshot paths remembered, to not look them up again. If
+     * zero, they are not remembered. Other paths not found are remembered for as long as namespace root is unchanged,
+     * as content under same root cannot change.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_NEGATIVE_CACHE_TTL}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_NEGATIVE_CACHE_TTL = CONFIG_PROPS_PREFIX + "negativeCacheTtl";
+
+    public static final long DEFAULT_NEGATIVE_CACHE_TTL = 60_000L;
+
+    /**
+     * Whether to persist not found paths (except metadata and snapshots) into local repository, to be reused by
+     * subsequent builds, as long as namespace root is unchanged. Entries of roots not used for 30 days are deleted.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_NEGATIVE_CACHE_PERSIST}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_NEGATIVE_CACHE_PERSIST = CONFIG_PROPS_PREFIX + "negativeCachePersist";
+
+    public static final boolean DEFAULT_NEGATIVE_CACHE_PERSIST = false;
+
+    /**
+     * The maximum cumulative size in bytes of a directory, that is fetched as whole on first GET of a file in it, so
+     * sibling files (like JAR and checksums after POM) are served from local disk. If zero, directories are not
+     * fetched as whole.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_BUNDLE_MAX_SIZE}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_BUNDLE_MAX_SIZE = CONFIG_PROPS_PREFIX + "bundleMaxSize";
+
+    public static final long DEFAULT_BUNDLE_MAX_SIZE = 0L;
+
+    /**
+     * Whether refreshed namespace should be pinned by fetching all its blocks ahead of time with parallel workers,
+     * instead of plain recursive pin. Progress and throughput are reported, and interrupted warm-up resumes on next
+     * refresh, as progress is recorded into local repository. Meant for build farm nodes, so builds run at local disk
+     * speed.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_WARM_PIN}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_WARM_PIN = CONFIG_PROPS_PREFIX + "warmPin";
+
+    public static final boolean DEFAULT_WARM_PIN = false;
+
+    /**
+     * The count of parallel workers fetching blocks, see {@link #CONFIG_PROP_WARM_PIN}.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Integer}
+     * @configurationDefaultValue {@link #DEFAULT_WARM_PIN_THREADS}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_WARM_PIN_THREADS = CONFIG_PROPS_PREFIX + "warmPinThreads";
+
+    public static final int DEFAULT_WARM_PIN_THREADS = 8;
+
+    /**
+     * The CAR file to use as snapshot of namespace content: if exists, it is imported into node before namespace is
+     * used, and on session end it is overwritten with blocks of all files retrieved in session (and of directories
+     * leading to them). Meant for ephemeral CI runners starting with empty node, that can cache this single file
+     * between jobs. If not set, no snapshot is used.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_CAR_SNAPSHOT = CONFIG_PROPS_PREFIX + "carSnapshot";
+
+    /**
+     * Comma separated multiaddresses (ending with {@code /p2p/<peerID>}) of peers known to provide namespace content,
+     * like publisher nodes of the namespace. When namespace is first used in session, node connects to them and keeps
+     * the connections, so blocks are got directly, without DHT provider lookup. If not set, no peer is connected.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PEERS = CONFIG_PROPS_PREFIX + "peers";
+
+    /**
+     * Whether namespace should be kept current by subscribing to its IPNS over PubSub topic: the namespace is resolved
+     * once per process, and again only when new record is announced, when refreshed namespace is updated right away.
+     * Useful in long-lived processes (like Maven daemon). Requires node with PubSub enabled, and publishers with IPNS
+     * over PubSub enabled.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_IPNS_PUBSUB}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_IPNS_PUBSUB = CONFIG_PROPS_PREFIX + "ipnsPubsub";
+
+    public static final boolean DEFAULT_IPNS_PUBSUB = false;
+
+    /**
+     * Whether publisher should place binary index of all namespace paths (with CIDs, sizes and checksums) at namespace
+     * root before publishing, and whether consumer should answer path lookups from index found at namespace root,
+     * instead of asking node for each path. Index is updated incrementally, only changed directories are walked.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_NAMESPACE_INDEX}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_NAMESPACE_INDEX = CONFIG_PROPS_PREFIX + "namespaceIndex";
+
+    public static final boolean DEFAULT_NAMESPACE_INDEX = false;
+
+    /**
+     * The endpoint of IPFS Pinning Service API (like {@code https://api.pinata.cloud/psa}), that namespace root is
+     * replicated to after it is published, so content does not live on publishing node only. The pin is requested
+     * along with addresses of node, and status is polled in background and logged. If not set, namespace is not
+     * replicated.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PINNING_SERVICE = CONFIG_PROPS_PREFIX + "pinningService";
+
+    /**
+     * The access token of pinning service.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PINNING_SERVICE_TOKEN = CONFIG_PROPS_PREFIX + "pinningServiceToken";
+
+    /**
+     * How long (in milliseconds) publish waits for namespace root to be pinned by pinning service, failing if it is
+     * not. If zero, replication is not waited for.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_PINNING_SERVICE_WAIT}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PINNING_SERVICE_WAIT = CONFIG_PROPS_PREFIX + "pinningServiceWait";
+
+    public static final long DEFAULT_PINNING_SERVICE_WAIT = 0L;
+
+    /**
+     * Whether blocks new in published namespace root, compared to previous root, should be announced to routing (DHT)
+     * right after publishing, in parallel. Without it, consumers on other nodes may not find new content until node
+     * reprovider announces it, what may take hours on big blockstores. Announcing runs in background, not delaying
+     * publishing of other namespaces, and is waited for at session end at most as long as {@link #CONFIG_PROP_PROVIDE_WAIT}
+     * says; blocks not announced by then are left to reprovider.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_PROVIDE_NEW}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PROVIDE_NEW = CONFIG_PROPS_PREFIX + "provideNew";
+
+    public static final boolean DEFAULT_PROVIDE_NEW = false;
+
+    /**
+     * How long (in milliseconds) session end waits for announcing of new blocks (see {@link #CONFIG_PROP_PROVIDE_NEW})
+     * to end, before it is aborted, leaving the rest to reprovider. If zero, announcing is not waited for.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_PROVIDE_WAIT}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_PROVIDE_WAIT = CONFIG_PROPS_PREFIX + "provideWait";
+
+    public static final long DEFAULT_PROVIDE_WAIT = 60_000L;
+
+    /**
+     * Whether path lookups and content retrieval should first run with node offline, answering from local blocks
+     * without routing and bitswap, and go online only if content is not local. Useful with warm nodes (like CI caches),
+     * where most content is local.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_LOCAL_FIRST}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_LOCAL_FIRST = CONFIG_PROPS_PREFIX + "localFirst";
+
+    public static final boolean DEFAULT_LOCAL_FIRST = false;
+
+    /**
+     * How long (in milliseconds) offline lookup may take, before online lookup is started in parallel, the first
+     * answer winning. Applies only if local first is enabled.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_LOCAL_FIRST_HEDGE}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_LOCAL_FIRST_HEDGE = CONFIG_PROPS_PREFIX + "localFirstHedge";
+
+    public static final long DEFAULT_LOCAL_FIRST_HEDGE = 100L;
+
+    /**
+     * Whether to publish refreshed namespace even if its latest record cannot be resolved before publishing (like when
+     * routing lookup times out). Changes published by someone else since refresh are then overwritten, instead of
+     * merged. By default, publishing fails in this case.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_OVERWRITE_UNRESOLVED}
+     * @configurationRepoIdSuffix Yes
+     */
+    public static final String CONFIG_PROP_OVERWRITE_UNRESOLVED = CONFIG_PROPS_PREFIX + "overwriteUnresolved";
+
+    public static final boolean DEFAULT_OVERWRITE_UNRESOLVED = false;
+
+    /**
+     * The directory of host wide content store, shared by all repositories and local repositories (and processes)
+     * using same directory: artifacts are stored by CID, and materialized into local repository by hard link (or copy,
+     * where hard link is not possible), so same content is fetched and stored once per host. Stored content is not
+     * verified against its CID when served (only Resolver checksum validation applies), hence the directory must be
+     * writable only by users trusted like local repository writers. If not set, no store is used.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link String}
+     * @configurationRepoIdSuffix No
+     */
+    public static final String CONFIG_PROP_CONTENT_STORE = CONFIG_PROPS_PREFIX + "contentStore";
+
+    /**
+     * The maximum size of content store in bytes, when exceeded, least recently used content is evicted. This setting
+     * applies to store directory, hence first repository using the store sets it.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Long}
+     * @configurationDefaultValue {@link #DEFAULT_CONTENT_STORE_MAX_SIZE}
+     * @configurationRepoIdSuffix No
+     */
+    public static final String CONFIG_PROP_CONTENT_STORE_MAX_SIZE = CONFIG_PROPS_PREFIX + "contentStoreMaxSize";
+
+    public static final long DEFAULT_CONTENT_STORE_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+
+    /**
+     * The maximum count of concurrent transfers against one IPFS node. Transfers over this limit are queued, and
+     * are let through by priority: peeks first, then small and graph critical GETs (POMs, metadata, checksums), then
+     * other GETs, PUTs, and finally dependency prefetch (see {@link #CONFIG_PROP_PREFETCH_DEPENDENCIES}). This setting
+     * applies to node, hence first repository using the node sets it.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Integer}
+     * @configurationDefaultValue {@link #DEFAULT_MAX_CONCURRENT_TRANSFERS}
+     * @configurationRepoIdSuffix No
+     */
+    public static final String CONFIG_PROP_MAX_CONCURRENT_TRANSFERS = CONFIG_PROPS_PREFIX + "maxConcurrentTransfers";
+
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS = 8;
+
+    /**
+     * Whether to warm node blockstore with dependencies and plugins declared by reactor projects, right after projects
+     * are read. Blocks are fetched in background from every {@code ipfs:} repository the projects use, so by the time
+     * they are needed, they are served from node local storage. Prefetch takes transfer slots of lowest priority, see
+     * {@link #CONFIG_PROP_MAX_CONCURRENT_TRANSFERS}.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Boolean}
+     * @configurationDefaultValue {@link #DEFAULT_PREFETCH_DEPENDENCIES}
+     * @configurationRepoIdSuffix No
+     */
+    public static final String CONFIG_PROP_PREFETCH_DEPENDENCIES = CONFIG_PROPS_PREFIX + "prefetchDependencies";
+
+    public static final boolean DEFAULT_PREFETCH_DEPENDENCIES = false;
+
+    /**
+     * The count of threads warming node blockstore, see {@link #CONFIG_PROP_PREFETCH_DEPENDENCIES}.
+     *
+     * @configurationSource {@link RepositorySystemSession#getConfigProperties()}
+     * @configurationType {@link Integer}
+     * @configurationDefaultValue {@link #DEFAULT_PREFETCH_THREADS}
+     * @configurationRepoIdSuffix No
+     */
+    public static final String CONFIG_PROP_PREFETCH_THREADS = CONFIG_PROPS_PREFIX + "prefetchThreads";
+
+    public static final int DEFAULT_PREFETCH_THREADS = 4;
+
     /**
      * Whether to close publisher when transport is closed. This config is really only to help testing, as in reality
      * it is extension that should close all publishers at the session end.
@@ -9,9 +9,17 @@ package eu.maveniverse.maven.ipfs.transport;
 
 import static java.util.Objects.requireNonNull;
 
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherOptions;
 import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisherRegistry;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.eclipse.aether.RepositorySystemSession;
@@ -35,6 +43,11 @@ public final class IpfsTransporterFactory implements TransporterFactory {
     private static final String PROTO = NAME + ":";
     private static final int PROTO_LEN = PROTO.length();
 
+    /**
+     * Content stores by directory; static, as factory is not a singleton, and Sisu may create it more than once.
+     */
+    private static final ConcurrentMap<Path, IpfsContentStore> CONTENT_STORES = new ConcurrentHashMap<>();
+
     private float priority;
     private final IpfsNamespacePublisherRegistry registry;
 
@@ -68,6 +81,78 @@ public final class IpfsTransporterFactory implements TransporterFactory {
     @Override
     public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository)
             throws NoTransporterException {
+        IpfsNamespacePublisher publisher = acquirePublisher(session, repository);
+        boolean transportClosePublisher = ConfigUtils.getBoolean(
+                session.getConfigProperties(),
+                IpfsTransporterConfigurationKeys.DEFAULT_TRANSPORT_CLOSE_PUBLISHER,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_TRANSPORT_CLOSE_PUBLISHER + "." + repository.getId(),
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_TRANSPORT_CLOSE_PUBLISHER);
+        return new IpfsTransporter(
+                publisher, scheduler(session, repository), contentStore(session), transportClosePublisher);
+    }
+
+    /**
+     * Fetches all blocks of file of given {@code ipfs:} repository into node blockstore (see
+     * {@link IpfsNamespacePublisher#warm(String)}), in transfer slot of lowest priority, so speculative prefetch does
+     * not delay transfers that Resolver waits for. Returns {@code false} if there is no such file.
+     *
+     * @param session The session.
+     * @param repository The remote repository.
+     * @param path The path of file in repository.
+     * @throws NoTransporterException if repository is not an {@code ipfs:} repository.
+     */
+    public boolean prefetch(RepositorySystemSession session, RemoteRepository repository, String path)
+            throws NoTransporterException, IOException {
+        IpfsNamespacePublisher publisher = acquirePublisher(session, repository);
+        try (IpfsTransferScheduler.Slot slot =
+                scheduler(session, repository).acquire(IpfsTransferScheduler.Priority.PREFETCH)) {
+            return publisher.warm(path);
+        }
+    }
+
+    private IpfsTransferScheduler scheduler(RepositorySystemSession session, RemoteRepository repository) {
+        int maxConcurrentTransfers = ConfigUtils.getInteger(
+                session.getConfigProperties(),
+                IpfsTransporterConfigurationKeys.DEFAULT_MAX_CONCURRENT_TRANSFERS,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_MAX_CONCURRENT_TRANSFERS);
+        return sessionSchedulers(session)
+                .computeIfAbsent(
+                        multiaddr(session, repository), k -> new IpfsTransferScheduler(maxConcurrentTransfers));
+    }
+
+    /**
+     * Content stores are host wide, hence shared by all sessions using same directory.
+     */
+    private IpfsContentStore contentStore(RepositorySystemSession session) {
+        String directory = ConfigUtils.getString(
+                session.getConfigProperties(), null, IpfsTransporterConfigurationKeys.CONFIG_PROP_CONTENT_STORE);
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        long maxSize = ConfigUtils.getLong(
+                session.getConfigProperties(),
+                IpfsTransporterConfigurationKeys.DEFAULT_CONTENT_STORE_MAX_SIZE,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_CONTENT_STORE_MAX_SIZE);
+        return CONTENT_STORES.computeIfAbsent(
+                Paths.get(directory).toAbsolutePath().normalize(), d -> {
+                    try {
+                        return new IpfsContentStore(d, maxSize);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Acquires the publisher of given {@code ipfs:} repository, configured same way as for transporter. Publishers
+     * are session scoped, and closed at session end.
+     *
+     * @param session The session.
+     * @param repository The remote repository.
+     * @throws NoTransporterException if repository is not an {@code ipfs:} repository.
+     */
+    public IpfsNamespacePublisher acquirePublisher(RepositorySystemSession session, RemoteRepository repository)
+            throws NoTransporterException {
         requireNonNull(session, "session cannot be null");
         requireNonNull(repository, "repository cannot be null");
 
@@ -95,11 +180,7 @@ public final class IpfsTransporterFactory implements TransporterFactory {
                 namespacePrefix = "";
             }
 
-            String multiaddr = ConfigUtils.getString(
-                    session.getConfigProperties(),
-                    IpfsTransporterConfigurationKeys.DEFAULT_MULTIADDR,
-                    IpfsTransporterConfigurationKeys.CONFIG_PROP_MULTIADDR + "." + repository.getId(),
-                    IpfsTransporterConfigurationKeys.CONFIG_PROP_MULTIADDR);
+            String multiaddr = multiaddr(session, repository);
             String filesPrefix = ConfigUtils.getString(
                     session.getConfigProperties(),
                     IpfsTransporterConfigurationKeys.DEFAULT_FILES_PREFIX,
@@ -125,29 +206,186 @@ public final class IpfsTransporterFactory implements TransporterFactory {
                     IpfsTransporterConfigurationKeys.DEFAULT_NAMESPACE_KEY_CREATE,
                     IpfsTransporterConfigurationKeys.CONFIG_PROP_NAMESPACE_KEY_CREATE + "." + repository.getId(),
                     IpfsTransporterConfigurationKeys.CONFIG_PROP_NAMESPACE_KEY_CREATE);
-            boolean transportClosePublisher = ConfigUtils.getBoolean(
+            boolean nocopy = ConfigUtils.getBoolean(
                     session.getConfigProperties(),
-                    IpfsTransporterConfigurationKeys.DEFAULT_TRANSPORT_CLOSE_PUBLISHER,
-                    IpfsTransporterConfigurationKeys.CONFIG_PROP_TRANSPORT_CLOSE_PUBLISHER + "." + repository.getId(),
-                    IpfsTransporterConfigurationKeys.CONFIG_PROP_TRANSPORT_CLOSE_PUBLISHER);
+                    IpfsTransporterConfigurationKeys.DEFAULT_NOCOPY,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NOCOPY + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NOCOPY);
+            String chunker = ConfigUtils.getString(
+                    session.getConfigProperties(),
+                    null,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_CHUNKER + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_CHUNKER);
+            long statTimeout = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_STAT_TIMEOUT,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_STAT_TIMEOUT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_STAT_TIMEOUT);
+            long firstByteTimeout = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_FIRST_BYTE_TIMEOUT,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_FIRST_BYTE_TIMEOUT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_FIRST_BYTE_TIMEOUT);
+            long stallTimeout = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_STALL_TIMEOUT,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_STALL_TIMEOUT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_STALL_TIMEOUT);
+            long negativeCacheTtl = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_NEGATIVE_CACHE_TTL,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NEGATIVE_CACHE_TTL + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NEGATIVE_CACHE_TTL);
+            boolean negativeCachePersist = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_NEGATIVE_CACHE_PERSIST,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NEGATIVE_CACHE_PERSIST + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NEGATIVE_CACHE_PERSIST);
+            long bundleMaxSize = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_BUNDLE_MAX_SIZE,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_BUNDLE_MAX_SIZE + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_BUNDLE_MAX_SIZE);
+            boolean warmPin = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_WARM_PIN,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_WARM_PIN + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_WARM_PIN);
+            int warmPinThreads = ConfigUtils.getInteger(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_WARM_PIN_THREADS,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_WARM_PIN_THREADS + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_WARM_PIN_THREADS);
+            String carSnapshot = ConfigUtils.getString(
+                    session.getConfigProperties(),
+                    null,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_CAR_SNAPSHOT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_CAR_SNAPSHOT);
+            List<String> peers = ConfigUtils.parseCommaSeparatedUniqueNames(ConfigUtils.getString(
+                    session.getConfigProperties(),
+                    "",
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PEERS + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PEERS));
+            boolean ipnsPubsub = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_IPNS_PUBSUB,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_IPNS_PUBSUB + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_IPNS_PUBSUB);
+            boolean namespaceIndex = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_NAMESPACE_INDEX,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NAMESPACE_INDEX + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_NAMESPACE_INDEX);
+            String pinningService = ConfigUtils.getString(
+                    session.getConfigProperties(),
+                    null,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE);
+            String pinningServiceToken = ConfigUtils.getString(
+                    session.getConfigProperties(),
+                    null,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE_TOKEN + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE_TOKEN);
+            long pinningServiceWait = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_PINNING_SERVICE_WAIT,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE_WAIT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PINNING_SERVICE_WAIT);
+            boolean provideNew = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_PROVIDE_NEW,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PROVIDE_NEW + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PROVIDE_NEW);
+            long provideWait = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_PROVIDE_WAIT,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PROVIDE_WAIT + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_PROVIDE_WAIT);
+            boolean localFirst = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_LOCAL_FIRST,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_LOCAL_FIRST + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_LOCAL_FIRST);
+            long localFirstHedge = ConfigUtils.getLong(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_LOCAL_FIRST_HEDGE,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_LOCAL_FIRST_HEDGE + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_LOCAL_FIRST_HEDGE);
+            boolean overwriteUnresolved = ConfigUtils.getBoolean(
+                    session.getConfigProperties(),
+                    IpfsTransporterConfigurationKeys.DEFAULT_OVERWRITE_UNRESOLVED,
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_OVERWRITE_UNRESOLVED + "." + repository.getId(),
+                    IpfsTransporterConfigurationKeys.CONFIG_PROP_OVERWRITE_UNRESOLVED);
 
             try {
-                return new IpfsTransporter(
-                        registry.acquire(
-                                session,
-                                multiaddr,
-                                namespace,
-                                filesPrefix,
-                                namespacePrefix,
-                                namespaceKey,
-                                namespaceKeyCreate,
-                                refreshNamespace,
-                                publishNamespace),
-                        transportClosePublisher);
+                return registry.acquire(
+                        session,
+                        multiaddr,
+                        namespace,
+                        filesPrefix,
+                        namespacePrefix,
+                        namespaceKey,
+                        namespaceKeyCreate,
+                        refreshNamespace,
+                        publishNamespace,
+                        IpfsNamespacePublisherOptions.builder()
+                                .nocopy(nocopy)
+                                .chunker(chunker)
+                                .statTimeout(Duration.ofMillis(statTimeout))
+                                .firstByteTimeout(Duration.ofMillis(firstByteTimeout))
+                                .stallTimeout(Duration.ofMillis(stallTimeout))
+                                .negativeCacheTtl(Duration.ofMillis(negativeCacheTtl))
+                                .negativeCacheDirectory(
+                                        negativeCachePersist
+                                                ? session.getLocalRepository()
+                                                        .getBasedir()
+                                                        .toPath()
+                                                        .resolve(".ipfs")
+                                                        .resolve("negative-cache")
+                                                : null)
+                                .bundleMaxSize(bundleMaxSize)
+                                .warmPin(warmPin)
+                                .warmPinThreads(warmPinThreads)
+                                .warmPinStateDirectory(session.getLocalRepository()
+                                        .getBasedir()
+                                        .toPath()
+                                        .resolve(".ipfs")
+                                        .resolve("warm-pin"))
+                                .carSnapshot(
+                                        carSnapshot == null || carSnapshot.isBlank() ? null : Paths.get(carSnapshot))
+                                .peers(peers)
+                                .ipnsPubsub(ipnsPubsub)
+                                .namespaceIndex(namespaceIndex)
+                                .pinningService(pinningService)
+                                .pinningServiceToken(pinningServiceToken)
+                                .pinningServiceWait(Duration.ofMillis(pinningServiceWait))
+                                .provideNew(provideNew)
+                                .provideWait(Duration.ofMillis(provideWait))
+                                .localFirst(localFirst)
+                                .localFirstHedge(Duration.ofMillis(localFirstHedge))
+                                .overwriteUnresolved(overwriteUnresolved)
+                                .build());
             } catch (IOException e) {
                 throw new UncheckedIOException(e); // hard failure, like bad multiaddr or node not running
             }
         }
         throw new NoTransporterException(repository);
     }
+
+    private static String multiaddr(RepositorySystemSession session, RemoteRepository repository) {
+        return ConfigUtils.getString(
+                session.getConfigProperties(),
+                IpfsTransporterConfigurationKeys.DEFAULT_MULTIADDR,
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_MULTIADDR + "." + repository.getId(),
+                IpfsTransporterConfigurationKeys.CONFIG_PROP_MULTIADDR);
+    }
+
+    /**
+     * Schedulers are shared by all transporters using same node (multiaddr).
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<String, IpfsTransferScheduler> sessionSchedulers(RepositorySystemSession session) {
+        return (ConcurrentMap<String, IpfsTransferScheduler>)
+                session.getData().computeIfAbsent(IpfsTransferScheduler.class.getName(), ConcurrentHashMap::new);
+    }
 }
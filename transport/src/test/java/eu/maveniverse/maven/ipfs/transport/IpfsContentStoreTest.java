@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IpfsContentStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void accepts() {
+        assertTrue(IpfsContentStore.accepts("g/a/1.0/a-1.0.jar", IpfsContentStore.MIN_SIZE));
+        assertFalse(IpfsContentStore.accepts("g/a/1.0/a-1.0.jar.sha1", 40));
+        assertFalse(IpfsContentStore.accepts("g/a/maven-metadata.xml", IpfsContentStore.MIN_SIZE));
+    }
+
+    @Test
+    void storeAndMaterialize() throws IOException {
+        IpfsContentStore store = new IpfsContentStore(tempDir.resolve("store"), 1024 * 1024);
+        byte[] data = content(20_000, 1);
+        Path fetched = Files.write(tempDir.resolve("fetched"), data);
+
+        assertEquals(Optional.empty(), store.get("bafycid1", data.length));
+        store.put("bafycid1", fetched);
+        Path stored = store.get("bafycid1", data.length).orElseThrow();
+
+        // other local repository
+        Path target = tempDir.resolve("other").resolve("a.jar");
+        Files.createDirectories(target.getParent());
+        Files.write(target, new byte[] {1});
+        store.materialize(stored, target);
+        assertArrayEquals(data, Files.readAllBytes(target));
+
+        // size mismatch is not served
+        assertEquals(Optional.empty(), store.get("bafycid1", data.length + 1));
+        assertEquals(Optional.empty(), store.get("bafycid1", data.length));
+        assertTrue(store.toString().contains("(0/"));
+    }
+
+    @Test
+    void useDoesNotTouchContent() throws IOException {
+        IpfsContentStore store = new IpfsContentStore(tempDir.resolve("store"), 1024 * 1024);
+        store.put("bafycid1", Files.write(tempDir.resolve("fetched"), content(20_000, 1)));
+        Path stored = store.get("bafycid1", 20_000).orElseThrow();
+        // times of content are shared by all linked copies in local repositories
+        FileTime modified = FileTime.fromMillis(1_000_000L);
+        Files.setLastModifiedTime(stored, modified);
+
+        store.get("bafycid1", 20_000).orElseThrow();
+        assertEquals(modified, Files.getLastModifiedTime(stored));
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() throws IOException {
+        IpfsContentStore store = new IpfsContentStore(tempDir.resolve("store"), 50_000);
+        for (int i = 0; i < 5; i++) {
+            store.put("bafycid" + i, Files.write(tempDir.resolve("f" + i), content(20_000, i)));
+            Path stored = store.get("bafycid" + i, 20_000).orElseThrow();
+            Files.setLastModifiedTime(IpfsContentStore.used(stored), FileTime.fromMillis(1_000_000L * (i + 1)));
+            if (i > 0) {
+                // keep first one in use
+                Path first = store.get("bafycid0", 20_000).orElseThrow();
+                Files.setLastModifiedTime(IpfsContentStore.used(first), FileTime.fromMillis(1_000_000L * (i + 2)));
+            }
+        }
+
+        assertTrue(store.get("bafycid0", 20_000).isPresent());
+        assertTrue(store.get("bafycid4", 20_000).isPresent());
+        assertFalse(store.get("bafycid1", 20_000).isPresent());
+
+        // size is recovered by new instance
+        assertTrue(new IpfsContentStore(tempDir.resolve("store"), 50_000)
+                .toString()
+                .contains("(40000/50000 bytes)"));
+    }
+
+    private static byte[] content(int size, int fill) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) fill);
+        return data;
+    }
+}
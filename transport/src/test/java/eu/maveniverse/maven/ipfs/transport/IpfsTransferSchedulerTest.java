@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+class IpfsTransferSchedulerTest {
+    @Test
+    void priorities() {
+        assertEquals(IpfsTransferScheduler.Priority.SMALL_GET, IpfsTransferScheduler.getPriority("g/a/1.0/a-1.0.pom"));
+        assertEquals(
+                IpfsTransferScheduler.Priority.SMALL_GET, IpfsTransferScheduler.getPriority("g/a/maven-metadata.xml"));
+        assertEquals(
+                IpfsTransferScheduler.Priority.SMALL_GET, IpfsTransferScheduler.getPriority("g/a/1.0/a-1.0.jar.sha1"));
+        assertEquals(IpfsTransferScheduler.Priority.LARGE_GET, IpfsTransferScheduler.getPriority("g/a/1.0/a-1.0.jar"));
+    }
+
+    @Test
+    void smallRequestsOvertakeBulk() throws Exception {
+        IpfsTransferScheduler scheduler = new IpfsTransferScheduler(1);
+        IpfsTransferScheduler.Slot blocker = scheduler.acquire(IpfsTransferScheduler.Priority.LARGE_GET);
+
+        List<IpfsTransferScheduler.Priority> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (IpfsTransferScheduler.Priority priority : new IpfsTransferScheduler.Priority[] {
+            IpfsTransferScheduler.Priority.PREFETCH,
+            IpfsTransferScheduler.Priority.PUT,
+            IpfsTransferScheduler.Priority.LARGE_GET,
+            IpfsTransferScheduler.Priority.SMALL_GET,
+            IpfsTransferScheduler.Priority.PEEK
+        }) {
+            Thread thread = new Thread(() -> {
+                try (IpfsTransferScheduler.Slot slot = scheduler.acquire(priority)) {
+                    order.add(priority);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+            // make sure they are enqueued in this order
+            while (scheduler.queueDepth() < threads.size()) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        }
+        blocker.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(
+                List.of(
+                        IpfsTransferScheduler.Priority.PEEK,
+                        IpfsTransferScheduler.Priority.SMALL_GET,
+                        IpfsTransferScheduler.Priority.LARGE_GET,
+                        IpfsTransferScheduler.Priority.PUT,
+                        IpfsTransferScheduler.Priority.PREFETCH),
+                order);
+        assertEquals(0, scheduler.queueDepth());
+    }
+
+    @Test
+    void flightRecorderEvent() throws IOException {
+        IpfsTransferScheduler scheduler = new IpfsTransferScheduler(1);
+        Path file = Files.createTempFile("ipfs-scheduler-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("eu.maveniverse.maven.ipfs.TransferSlot");
+            recording.start();
+            try (IpfsTransferScheduler.Slot slot = scheduler.acquire(IpfsTransferScheduler.Priority.PUT)) {
+                recording.stop();
+            }
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("PUT", event.getString("priority"));
+            assertEquals(1, event.getInt("queueDepth"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
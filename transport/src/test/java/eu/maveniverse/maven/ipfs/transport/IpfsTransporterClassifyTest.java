@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.ipfs.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import eu.maveniverse.maven.ipfs.core.IpfsContentUnavailableException;
+import eu.maveniverse.maven.ipfs.core.IpfsNamespacePublisher;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.SocketTimeoutException;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Classification of errors, that does not need node.
+ */
+class IpfsTransporterClassifyTest {
+    private final Transporter transporter = new IpfsTransporter(
+            (IpfsNamespacePublisher) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[] {IpfsNamespacePublisher.class},
+                    (proxy, method, args) -> {
+                        throw new UnsupportedOperationException(method.getName());
+                    }),
+            new IpfsTransferScheduler(1),
+            null,
+            false);
+
+    @Test
+    void notFound() {
+        assertEquals(Transporter.ERROR_NOT_FOUND, transporter.classify(new ResourceNotFoundException()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(IpfsContentUnavailableException.Reason.class)
+    void deadlinesAreErrors(IpfsContentUnavailableException.Reason reason) {
+        assertEquals(
+                Transporter.ERROR_OTHER,
+                transporter.classify(
+                        new IpfsContentUnavailableException("a.jar", reason, new SocketTimeoutException())));
+    }
+
+    @Test
+    void otherErrors() {
+        assertEquals(Transporter.ERROR_OTHER, transporter.classify(new IOException("connection refused")));
+    }
+}